@@ -15,10 +15,14 @@ import org.gwt.speedchart.client.data.MutableDataset2D;
 import org.gwt.speedchart.client.data.BinaryMipMapStrategy;
 import org.gwt.speedchart.client.data.Mutation;
 import org.gwt.speedchart.client.data.MipMap;
+import org.gwt.speedchart.client.data.PrefetchPolicy;
 import org.gwt.speedchart.client.data.ZoomDataset2D;
+import org.gwt.speedchart.client.data.ZoomDataset2D.CancellableDatasetModel;
 import org.gwt.speedchart.client.data.ZoomDataset2D.DatasetModel;
 import org.gwt.speedchart.client.data.ZoomDataset2D.Request;
 import org.gwt.speedchart.client.data.ZoomDataset2D.Callback;
+import org.gwt.speedchart.client.data.ZoomDataset2D.RequestHandle;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
 import org.gwt.speedchart.client.util.Array1D;
 import org.gwt.speedchart.client.util.SumArrayFunction;
 import org.gwt.speedchart.client.util.Util;
@@ -54,12 +58,14 @@ public class SpeedChartSample implements EntryPoint {
         + "ms");
   }
 
-  public Dataset getZoomDataset(DatasetModel model) {
-    return new ZoomDataset2D(model, new Interval(0, 
+  public Dataset<Tuple2D> getZoomDataset(DatasetModel model) {
+    ZoomDataset2D dataset = new ZoomDataset2D(model, new Interval(0, 
         24 * 60 * 60 * 1000));
+    dataset.setPrefetchPolicy(new PrefetchPolicy());
+    return dataset;
   }
 
-  public Dataset getBasicDataset() {
+  public Dataset<Tuple2D> getBasicDataset() {
     int numSamples = 1000;
 
     double d = 0;
@@ -85,7 +91,7 @@ public class SpeedChartSample implements EntryPoint {
         BinaryMipMapStrategy.MEAN); // new Interval(min, max));
   }
 
-  public Dataset getTimeseriesDataset() {
+  public Dataset<Tuple2D> getTimeseriesDataset() {
     int numSamples = (30 * 24 * 60);
 
     double d = 0;
@@ -107,7 +113,7 @@ public class SpeedChartSample implements EntryPoint {
         BinaryMipMapStrategy.MEAN);
   }
 
-  public Dataset getRandomDataset() {
+  public Dataset<Tuple2D> getRandomDataset() {
     int numSamples = 1000;
 
     double d = 0;
@@ -132,7 +138,7 @@ public class SpeedChartSample implements EntryPoint {
         BinaryMipMapStrategy.MEAN); // new Interval(min, max));
   }
 
-  public MutableDataset getSmallRealtimeDataset() {
+  public MutableDataset<Tuple2D> getSmallRealtimeDataset() {
     int numSamples = 10;
 
     double d = (double) new Date().getTime();
@@ -153,7 +159,7 @@ public class SpeedChartSample implements EntryPoint {
   }
 
 
-  public Dataset getLargeDataset(final int numSamples) {
+  public Dataset<Tuple2D> getLargeDataset(final int numSamples) {
     double[] domainValues = new double[numSamples];
     double[] rangeValues = new double[numSamples];
 
@@ -196,7 +202,7 @@ public class SpeedChartSample implements EntryPoint {
     GraphUiProps dsUiProps = new GraphUiProps(Color.BLUE,
         Color.BLACK, 0);
 
-    final Dataset ds = getTimeseriesDataset();
+    final Dataset<Tuple2D> ds = getTimeseriesDataset();
 
     SparklineChart chart = new SparklineChart();
     chart.addDataset(ds, dsUiProps);
@@ -253,7 +259,7 @@ public class SpeedChartSample implements EntryPoint {
     return panel;
   }
 
-  private Dataset largeDataset;
+  private Dataset<Tuple2D> largeDataset;
 
   public Widget createLargeExample() {
     final GraphUiProps dsUiProps = new GraphUiProps(Color.BLUE,
@@ -373,7 +379,7 @@ public class SpeedChartSample implements EntryPoint {
         Color.BLACK, 0);
 
     final SpeedChart chart = new SpeedChart();
-    final MutableDataset ds = getSmallRealtimeDataset();
+    final MutableDataset<Tuple2D> ds = getSmallRealtimeDataset();
     chart.addDataset(ds, dsUiProps1);
     chart.zoomAll();
     
@@ -423,7 +429,7 @@ public class SpeedChartSample implements EntryPoint {
     return panel;
   }
 
-  private static class SampleDatasetModel implements DatasetModel {
+  private static class SampleDatasetModel implements CancellableDatasetModel {
 
     double[] units = new double[]{TimeUnit.SEC.ms(), 
 				  TimeUnit.MIN.ms(), 
@@ -436,7 +442,12 @@ public class SpeedChartSample implements EntryPoint {
       return units;
     }
 
-    public void requestData(Request request, final Callback callback) {
+    public void requestData(Request request, Callback callback) {
+      requestCancellableData(request, callback);
+    }
+
+    public RequestHandle requestCancellableData(Request request,
+        final Callback callback) {
       Interval region = request.getRegion();
       int unitIdx = request.getUnitIdx();
 
@@ -453,12 +464,18 @@ public class SpeedChartSample implements EntryPoint {
 	d += tick;
       }
 
-      Timer t = new Timer() {
+      final Timer t = new Timer() {
 	  public void run() {
 	    callback.provideData(domain, range);
 	  };
 	};
       t.schedule(1500);
+
+      return new RequestHandle() {
+	  public void cancel() {
+	    t.cancel();
+	  }
+	};
     }
   }
 
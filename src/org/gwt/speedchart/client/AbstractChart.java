@@ -4,8 +4,10 @@ import com.allen_sauer.gwt.log.client.Log;
 import com.google.gwt.dom.client.Style.Unit;
 import com.google.gwt.user.client.ui.LayoutPanel;
 import com.google.gwt.user.client.ui.RequiresResize;
-import org.gwt.speedchart.client.data.MutableDataset2D;
+import org.gwt.speedchart.client.data.IncrementalDataset2D;
 import org.gwt.speedchart.client.data.ZoomDataset2D;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
+import org.gwt.speedchart.client.fx.AnimationListener;
 import org.gwt.speedchart.client.graph.LineGraph;
 import org.gwt.speedchart.client.graph.TimelineModel.WindowBoundsObserver;
 import org.gwt.speedchart.client.graph.TimelineModel;
@@ -18,12 +20,19 @@ public abstract class AbstractChart extends LayoutPanel implements RequiresResiz
   
   protected TimelineModel timelineModel;
   
-  protected List<Dataset> datasets;
+  protected List<Dataset<Tuple2D>> datasets;
 
   private class TimelineObserver implements WindowBoundsObserver {
 
     public void onWindowBoundsChange(double domainStart,
         double domainEnd) {
+      if (datasets != null) {
+        for (Dataset<Tuple2D> ds : datasets) {
+          if (ds instanceof ZoomDataset2D) {
+            ((ZoomDataset2D) ds).onWindowBoundsChange(domainStart, domainEnd);
+          }
+        }
+      }
       redraw();
     }
   }
@@ -31,21 +40,56 @@ public abstract class AbstractChart extends LayoutPanel implements RequiresResiz
   private final TimelineObserver timelineObserver = 
       new TimelineObserver();
 
+  /**
+   * Passes the start and stop of zoom animations on to the datasets that
+   * defer their requests until the window settles.
+   */
+  private class DatasetAnimationListener implements AnimationListener {
+
+    public void animationStart() {
+      if (datasets != null) {
+        for (Dataset<Tuple2D> ds : datasets) {
+          if (ds instanceof ZoomDataset2D) {
+            ((ZoomDataset2D) ds).animationStart();
+          }
+        }
+      }
+    }
+
+    public void animationStop() {
+      if (datasets != null) {
+        for (Dataset<Tuple2D> ds : datasets) {
+          if (ds instanceof ZoomDataset2D) {
+            ((ZoomDataset2D) ds).animationStop();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Subclasses add this listener to the animations that move the window.
+   */
+  protected final AnimationListener datasetAnimationListener =
+      new DatasetAnimationListener();
+
   public AbstractChart(TimelineModel timelineModel) {
     setTimelineModel(timelineModel);
   }
 
-  public void addDataset(Dataset ds, GraphUiProps graphUiProps) {
+  public void addDataset(Dataset<Tuple2D> ds, GraphUiProps graphUiProps) {
     if (datasets == null) {
-      datasets = new ArrayList<Dataset>();
+      datasets = new ArrayList<Dataset<Tuple2D>>();
     }
     datasets.add(ds);
     timelineModel.onDatasetAdded(ds);
 
-    if (ds instanceof MutableDataset2D) {
-      ((MutableDataset2D) ds).addListener(timelineModel);
+    if (ds instanceof MutableDataset) {
+      ((MutableDataset<Tuple2D>) ds).addListener(timelineModel);
     } else if (ds instanceof ZoomDataset2D) {
       ((ZoomDataset2D) ds).addListener(timelineModel);
+    } else if (ds instanceof IncrementalDataset2D) {
+      ((IncrementalDataset2D) ds).addListener(timelineModel);
     }
   }
 
@@ -61,13 +105,16 @@ public abstract class AbstractChart extends LayoutPanel implements RequiresResiz
         timelineModel.getRightBound());
   }
 
-  public boolean removeDataset(Dataset ds) {
+  public boolean removeDataset(Dataset<Tuple2D> ds) {
     if (datasets != null) {
       datasets.remove(ds);
 
-      if (ds instanceof MutableDataset2D) {
+      if (ds instanceof MutableDataset) {
+	timelineModel.onDatasetRemoved(ds);
+	((MutableDataset<Tuple2D>) ds).removeListener(timelineModel);
+      } else if (ds instanceof IncrementalDataset2D) {
 	timelineModel.onDatasetRemoved(ds);
-	((MutableDataset2D) ds).removeListener(timelineModel);
+	((IncrementalDataset2D) ds).removeListener(timelineModel);
       }
 
       return true;
@@ -114,7 +161,7 @@ public abstract class AbstractChart extends LayoutPanel implements RequiresResiz
   public void zoomAll() {
     if (datasets.size() != 0) {
       Interval domain = null;
-      for (Dataset ds : datasets) {
+      for (Dataset<Tuple2D> ds : datasets) {
 	if (domain == null) {
 	  domain = ds.getDomainExtrema().copy();
 	} else {
@@ -18,6 +18,7 @@ import org.gwt.speedchart.client.graph.TimelineModel;
 import org.gwt.speedchart.client.graph.axis.DomainAxis;
 import org.gwt.speedchart.client.graph.axis.RangeAxis;
 import org.gwt.speedchart.client.graph.TimelineModel.WindowBoundsObserver;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
 import org.gwt.speedchart.client.util.Interval;
 import org.gwt.speedchart.client.fx.Zoom;
 import org.gwt.speedchart.client.fx.Pan;
@@ -59,7 +60,7 @@ public class AreaChart extends AbstractChart {
 
   private final Resources resources;
 
-  private AreaGraph areaGraph;
+  private AreaGraph<Tuple2D> areaGraph;
 
   private final Zoom zoom;
 
@@ -98,11 +99,13 @@ public class AreaChart extends AbstractChart {
 
     this.zoom = new Zoom(getTimelineModel());
 
-    areaGraph = new AreaGraph(chartUiProps);
+    areaGraph = new AreaGraph<Tuple2D>(chartUiProps);
     areaGraph.setStyleName(resources.areaGraphCss().mainGraph());
     zoom.addListener(areaGraph);
+    zoom.addListener(datasetAnimationListener);
 
     this.pan = new Pan(getTimelineModel(), areaGraph);
+    pan.addListener(datasetAnimationListener);
 
     domainAxis = new DomainAxis(resources);
     domainAxis.addStyleName(resources.areaGraphCss().domainAxis());
@@ -161,7 +164,7 @@ public class AreaChart extends AbstractChart {
   }
 
   @Override
-  public void addDataset(Dataset ds, GraphUiProps graphUiProps) {
+  public void addDataset(Dataset<Tuple2D> ds, GraphUiProps graphUiProps) {
     areaGraph.addDataset(ds, graphUiProps);
     super.addDataset(ds, graphUiProps);
   }
@@ -177,7 +180,7 @@ public class AreaChart extends AbstractChart {
   }
 
   @Override
-  public boolean removeDataset(Dataset ds) {
+  public boolean removeDataset(Dataset<Tuple2D> ds) {
     areaGraph.removeDataset(ds);
     return super.removeDataset(ds);
   }
@@ -11,6 +11,8 @@ public class ChartUiProps {
 
   private boolean drawBorders; 
 
+  private boolean pixelColumnReduction;
+
   public boolean isAutoZoomRangeTop() {
     return (visRange != null && Double.isNaN(visRange.getEnd()));
   }
@@ -23,6 +25,14 @@ public class ChartUiProps {
     return drawBorders;
   }
 
+  /**
+   * Return true if curves are reduced to at most four vertices per
+   * pixel column before they are drawn.
+   */
+  public boolean isPixelColumnReduction() {
+    return pixelColumnReduction;
+  }
+
   /**
    * Return visible range interval or {@code null} if no visible range
    * was set.
@@ -48,4 +58,16 @@ public class ChartUiProps {
     this.drawBorders = drawBorders;
   }
 
+  /**
+   * Set whether curves should be reduced to the first, last, minimum
+   * and maximum datapoint of every pixel column before they are
+   * drawn.  This bounds the number of path operations by the width of
+   * the graph, which allows denser mip levels to be drawn.  The curve
+   * is reduced from the drawn mip level, not from the raw data, so use an
+   * envelope mipmap strategy if short spikes must stay visible.
+   */
+  public void setPixelColumnReduction(boolean pixelColumnReduction) {
+    this.pixelColumnReduction = pixelColumnReduction;
+  }
+
 }
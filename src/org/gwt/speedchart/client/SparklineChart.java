@@ -18,6 +18,7 @@ import org.gwt.speedchart.client.graph.TimelineModel;
 import org.gwt.speedchart.client.graph.axis.DomainAxis;
 import org.gwt.speedchart.client.graph.axis.RangeAxis;
 import org.gwt.speedchart.client.graph.TimelineModel.WindowBoundsObserver;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
 import org.gwt.speedchart.client.util.Interval;
 import org.gwt.speedchart.client.fx.Zoom;
 import org.gwt.speedchart.client.fx.Pan;
@@ -54,7 +55,7 @@ public class SparklineChart extends AbstractChart {
 
   private final Resources resources;
 
-  private LineGraph lineGraph;
+  private LineGraph<Tuple2D> lineGraph;
 
   private static boolean styleInjected;
 
@@ -86,11 +87,12 @@ public class SparklineChart extends AbstractChart {
     
     // Create the line graph with any size what-so-ever since it will
     // be re-sized anyway.
-    lineGraph = new LineGraph(chartUiProps);
+    lineGraph = new LineGraph<Tuple2D>(chartUiProps);
 
     // Add zoom that we use for transitions, but do not add the graph
     // as listener since we do want to transition with full graphics.
     zoom = new Zoom(getTimelineModel());
+    zoom.addListener(datasetAnimationListener);
 
     add(lineGraph);
     setWidgetLeftRight(lineGraph, 0, Unit.PX, 0, Unit.PX);
@@ -114,7 +116,7 @@ public class SparklineChart extends AbstractChart {
   }
   
   @Override
-  public void addDataset(Dataset ds, GraphUiProps graphUiProps) {
+  public void addDataset(Dataset<Tuple2D> ds, GraphUiProps graphUiProps) {
     lineGraph.addDataset(ds, graphUiProps);
     super.addDataset(ds, graphUiProps);
   }
@@ -127,7 +129,7 @@ public class SparklineChart extends AbstractChart {
   }
 
   @Override
-  public boolean removeDataset(Dataset ds) {
+  public boolean removeDataset(Dataset<Tuple2D> ds) {
     lineGraph.removeDataset(ds);
     return super.removeDataset(ds);
   }
@@ -18,6 +18,7 @@ import org.gwt.speedchart.client.graph.TimelineModel;
 import org.gwt.speedchart.client.graph.axis.DomainAxis;
 import org.gwt.speedchart.client.graph.axis.RangeAxis;
 import org.gwt.speedchart.client.graph.TimelineModel.WindowBoundsObserver;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
 import org.gwt.speedchart.client.util.Interval;
 import org.gwt.speedchart.client.fx.Zoom;
 import org.gwt.speedchart.client.fx.Pan;
@@ -59,7 +60,7 @@ public class SpeedChart extends AbstractChart {
 
   private final Resources resources;
 
-  private LineGraph lineGraph;
+  private LineGraph<Tuple2D> lineGraph;
 
   private final Zoom zoom;
 
@@ -103,11 +104,13 @@ public class SpeedChart extends AbstractChart {
 
     this.zoom = new Zoom(getTimelineModel());
 
-    lineGraph = new LineGraph(chartUiProps);
+    lineGraph = new LineGraph<Tuple2D>(chartUiProps);
     lineGraph.setStyleName(resources.speedGraphCss().mainGraph());
     zoom.addListener(lineGraph);
+    zoom.addListener(datasetAnimationListener);
 
     this.pan = new Pan(getTimelineModel(), lineGraph);
+    pan.addListener(datasetAnimationListener);
 
     domainAxis = new DomainAxis(resources);
     domainAxis.addStyleName(resources.speedGraphCss().domainAxis());
@@ -166,7 +169,7 @@ public class SpeedChart extends AbstractChart {
   }
 
   @Override
-  public void addDataset(Dataset ds, GraphUiProps graphUiProps) {
+  public void addDataset(Dataset<Tuple2D> ds, GraphUiProps graphUiProps) {
     lineGraph.addDataset(ds, graphUiProps);
     super.addDataset(ds, graphUiProps);
   }
@@ -190,7 +193,7 @@ public class SpeedChart extends AbstractChart {
   }
 
   @Override
-  public boolean removeDataset(Dataset ds) {
+  public boolean removeDataset(Dataset<Tuple2D> ds) {
     lineGraph.removeDataset(ds);
     return super.removeDataset(ds);
   }
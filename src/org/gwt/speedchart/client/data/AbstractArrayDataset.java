@@ -55,6 +55,7 @@ public abstract class AbstractArrayDataset<T extends Tuple2D>
     List<double[]> rangeTuples = new ArrayList<double[]>();
     rangeTuples.add(range);
     mipMapChain = mms.mipmap(domain, rangeTuples);
+    mipMapChain.setRangeExtremaIndexed(true);
     rawData = mipMapChain.getMipMap(0);
   }
 
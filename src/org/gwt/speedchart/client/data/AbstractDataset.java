@@ -47,7 +47,8 @@ public abstract class AbstractDataset<T extends Tuple2D> implements Dataset<T> {
       Array1D domain = bestMipMap.getDomain();
       domainStartIdx = Util.binarySearch(domain, region.getStart());
       domainEndIdx = Util.binarySearch(domain, region.getEnd());
-      if ((domainEndIdx - domainStartIdx) <= maxSamples) {
+      if ((domainEndIdx - domainStartIdx) <= maxSamples
+          || bestMipMap.next() == null) {
         break;
       }
       bestMipMap = bestMipMap.next();
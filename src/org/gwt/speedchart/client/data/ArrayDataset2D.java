@@ -31,6 +31,11 @@ import org.gwt.speedchart.client.util.Interval;
  */
 public class ArrayDataset2D extends AbstractArrayDataset<Tuple2D> {
 
+  /**
+   * Depending on the {@link MipMapStrategy}, <tt>domain</tt> and
+   * <tt>range</tt> may be adopted as level 0 of the dataset rather than
+   * copied, so they must not be modified afterwards.
+   */
   public ArrayDataset2D(double[] domain, double[] range, MipMapStrategy mms) {
     super(domain, range, mms);
   }
@@ -22,8 +22,11 @@ package org.gwt.speedchart.client.data;
 
 import org.gwt.speedchart.client.util.ArgChecker;
 import org.gwt.speedchart.client.util.Array2D;
-import org.gwt.speedchart.client.util.JavaArray2D;
+import org.gwt.speedchart.client.util.JavaArray1D;
 import org.gwt.speedchart.client.util.MathUtil;
+import org.gwt.speedchart.client.util.RegularArray1D;
+import org.gwt.speedchart.client.util.StridedArray1D;
+import org.gwt.speedchart.client.util.StridedArray2D;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -60,57 +63,38 @@ public abstract class BinaryMipMapStrategy implements MipMapStrategy {
     return mipmap(domain, rangeTuple1d);
   }
 
-  private Array2D mipmapDomain(double[] domain) {
+  /**
+   * The minimum average run length for which a domain is stored as a
+   * {@link RegularArray1D} rather than as explicit values.
+   */
+  private static final int MIN_REGULAR_RUN_LENGTH = 16;
+
+  /**
+   * Mipmaps the specified domain by keeping every 2^n-th value at level n.
+   * Level 0 adopts <tt>domain</tt> without copying it (or stores it
+   * implicitly, if it is (mostly) sampled at a fixed interval), and the
+   * other levels are {@link StridedArray1D} views of level 0.
+   */
+  static Array2D mipmapDomain(double[] domain) {
     ArgChecker.isGT(domain.length, 0, "domain.length");
-    int numSamples = domain.length;
-    int numLevels = calcNumLevels(numSamples);
-    double[][] multiDomain = new double[numLevels][];
-
-    for (int level = 0; level < numLevels; level++) {
-      multiDomain[level] = new double[numSamples];
-      int index = 0;
-      int indexStep = 1 << level; // [1, 2, 4, 8, ...]
-
-      for (int i = 0; i < numSamples; i++) {
-        multiDomain[level][i] = domain[index];
-        index += indexStep;
-      }
 
-      numSamples /= 2;
+    RegularArray1D regularDomain =
+        RegularArray1D.create(domain, MIN_REGULAR_RUN_LENGTH);
+    if (regularDomain != null) {
+      return new StridedArray2D(regularDomain);
     }
-
-    return new JavaArray2D(multiDomain);
+    return new StridedArray2D(new JavaArray1D(domain));
   }
 
+  /**
+   * Mipmaps the specified range.  Level 0 adopts <tt>range</tt> without
+   * copying it, and the other levels are calculated the first time they
+   * are read.
+   */
   private Array2D mipmapRange(double[] range) {
     ArgChecker.isNotNull(range, "range");
     ArgChecker.isGT(range.length, 0, "range.length");
-    
-    int numSamples = range.length;
-    int numLevels = calcNumLevels(numSamples);
-    double[][] multiRange = new double[numLevels][];
-    double[] prevRange = range;
-
-    for (int level = 0; level < numLevels; level++) {
-      double[] currRange = new double[numSamples];
-      if (level == 0) {
-        for (int i = 0; i < numSamples; i++) {
-          currRange[i] = range[i];
-        }
-      } else {
-        for (int i = 0; i < numSamples; i++) {
-          int prevIndex = i * 2;
-          currRange[i] = calcRangeValue(prevRange[prevIndex],
-              prevRange[prevIndex + 1]);
-        }
-      }
-
-      multiRange[level] = currRange;
-      prevRange = currRange;
-      numSamples /= 2;
-    }
-
-    return new JavaArray2D(multiRange);
+    return new LazyRangeArray2D(range, this);
   }
 
   protected abstract double calcRangeValue(double prev1, double prev2);
@@ -128,12 +112,14 @@ public abstract class BinaryMipMapStrategy implements MipMapStrategy {
     }
   };
 
-  public final void setRangeValue(int pointIndex, double y, Array2D multiRange) {
+  public final void setRangeValue(int pointIndex, double y,
+      MipMapChain mipMapChain) {
+    Array2D multiRange = mipMapChain.getMipMappedRangeTuples()[0];
     if (!MathUtil.isBounded(pointIndex, 0, multiRange.numColumns(0) - 1)) {
       throw new IndexOutOfBoundsException("Invalid datapoint index: "
           + pointIndex);
     }
-    setRangeValue(pointIndex, y, multiRange, 0);
+    setRangeValue(pointIndex, y, multiRange, 0, mipMapChain);
   }
 
   public void appendXY(double x, double y, MipMapChain mipMapChain) {
@@ -153,8 +139,102 @@ public abstract class BinaryMipMapStrategy implements MipMapStrategy {
     }
   }
   
-  private void appendDomainValue(double x, Array2D a, int level) {
+  public void appendBatch(double[] xs, double[] ys, MipMapChain mipMapChain) {
+    checkBatch(xs, ys);
+
+    appendDomainValues(xs, mipMapChain.getMipMappedDomain());
+    appendRangeValues(ys, mipMapChain.getMipMappedRangeTuples()[0]);
+
+    while (mipMapChain.size() < mipMapChain.getMipMappedDomain().numRows()) {
+      mipMapChain.addMipLevel();
+    }
+  }
+
+  /**
+   * Validates the arguments of {@link MipMapStrategy#appendBatch}.
+   */
+  static void checkBatch(double[] xs, double[] ys) {
+    ArgChecker.isNotNull(xs, "xs");
+    ArgChecker.isNotNull(ys, "ys");
+    if (xs.length != ys.length) {
+      throw new IllegalArgumentException("xs.length != ys.length: "
+          + xs.length + ", " + ys.length);
+    }
+  }
+
+  /**
+   * Batch version of {@link #appendDomainValue(double, Array2D, int)}; each
+   * level is extended in a single pass with every pair of values that was
+   * completed in the level below it.
+   */
+  static void appendDomainValues(double[] xs, Array2D a) {
+    int firstNew = appendToRow0(xs, a);
+    if (a instanceof StridedArray2D) {
+      return;
+    }
+    for (int level = 0; ; level++) {
+      final int firstPair = firstNew / 2;
+      final int numPairs = a.numColumns(level) / 2;
+      if (firstPair >= numPairs) {
+        break;
+      }
+      final int nextLevel = level + 1;
+      if (nextLevel < a.numRows()) {
+        a.ensureCapacity(nextLevel, numPairs);
+      }
+      for (int i = firstPair; i < numPairs; i++) {
+        a.set(nextLevel, i, a.get(level, i * 2));
+      }
+      firstNew = firstPair;
+    }
+  }
+
+  private void appendRangeValues(double[] ys, Array2D a) {
+    int firstNew = appendToRow0(ys, a);
+    for (int level = 0; ; level++) {
+      final int firstPair = firstNew / 2;
+      final int numPairs = a.numColumns(level) / 2;
+      if (firstPair >= numPairs) {
+        break;
+      }
+      final int nextLevel = level + 1;
+      if (nextLevel < a.numRows()) {
+        a.ensureCapacity(nextLevel, numPairs);
+      }
+      for (int i = firstPair; i < numPairs; i++) {
+        a.set(nextLevel, i,
+            calcRangeValue(a.get(level, i * 2), a.get(level, i * 2 + 1)));
+      }
+      firstNew = firstPair;
+    }
+  }
+
+  /**
+   * Appends the specified values to row 0, growing it at most once.
+   * 
+   * @return the index of the first appended value.
+   */
+  static int appendToRow0(double[] values, Array2D a) {
+    final int oldLength = a.numColumns(0);
+    a.ensureCapacity(0, oldLength + values.length);
+    for (int i = 0; i < values.length; i++) {
+      a.set(0, oldLength + i, values[i]);
+    }
+    return oldLength;
+  }
+
+  /**
+   * Appends x to the specified level of a mipmapped domain, and recursively
+   * to the next level each time a pair of values is completed.
+   */
+  static void appendDomainValue(double x, Array2D a, int level) {
     //GWT.log("TESTING appendDomain: level=" + level + "; x=" + x, null);
+    if (a instanceof StridedArray2D) {
+      // Levels above 0 are views of level 0, and follow automatically.
+      a.set(0, a.numColumns(0), x);
+      return;
+    }
+
     boolean levelExists = (level < a.numRows());
     if (levelExists) {
       int oldLength = a.numColumns(level);
@@ -187,8 +267,10 @@ public abstract class BinaryMipMapStrategy implements MipMapStrategy {
     }
   }
 
-  private void setRangeValue(int pointIndex, double y, Array2D a, int level) {
+  private void setRangeValue(int pointIndex, double y, Array2D a, int level,
+      MipMapChain mipMapChain) {
     a.set(level, pointIndex, y);
+    mipMapChain.rangeValueChanged(level, pointIndex);
     
     boolean hasMoreLevels = level < (a.numRows() - 1);
     if (!hasMoreLevels) {
@@ -200,14 +282,14 @@ public abstract class BinaryMipMapStrategy implements MipMapStrategy {
       double nextLevelY1 = a.get(level, pointIndex - 1);
       double nextLevelY2 = a.get(level, pointIndex);
       double nextLevelY = this.calcRangeValue(nextLevelY1, nextLevelY2);
-      setRangeValue(pointIndex / 2, nextLevelY, a, level + 1);
+      setRangeValue(pointIndex / 2, nextLevelY, a, level + 1, mipMapChain);
     } else {
       boolean hasMorePoints = pointIndex < (a.numColumns(level) - 1);
       if (hasMorePoints) {
         double nextLevelY1 = a.get(level, pointIndex);
         double nextLevelY2 = a.get(level, pointIndex + 1);
         double nextLevelY = this.calcRangeValue(nextLevelY1, nextLevelY2);
-        setRangeValue(pointIndex / 2, nextLevelY, a, level + 1);
+        setRangeValue(pointIndex / 2, nextLevelY, a, level + 1, mipMapChain);
       }
       // else, this is this the first-and-only or last point in the dataset.
     }
@@ -217,8 +299,13 @@ public abstract class BinaryMipMapStrategy implements MipMapStrategy {
    * Calculates the number of MIP levels that will be needed for the specified
    * number of data points.
    */
-  private int calcNumLevels(int numSamples) {
-    return (int) MathUtil.log2(numSamples) + 1;
+  static int calcNumLevels(int numSamples) {
+    // Computed exactly, since log2() can round down at powers of 2.
+    int numLevels = 0;
+    for (int n = numSamples; n > 0; n >>= 1) {
+      numLevels++;
+    }
+    return numLevels;
   }
 
   /**
@@ -0,0 +1,129 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.data.ZoomDataset2D.Callback;
+import org.gwt.speedchart.client.data.ZoomDataset2D.CancellableDatasetModel;
+import org.gwt.speedchart.client.data.ZoomDataset2D.DatasetModel;
+import org.gwt.speedchart.client.data.ZoomDataset2D.Request;
+import org.gwt.speedchart.client.data.ZoomDataset2D.RequestHandle;
+import org.gwt.speedchart.client.data.ZoomDataset2D.StreamingCallback;
+import org.gwt.speedchart.client.util.ArgChecker;
+
+/**
+ * Local stand-in for a server that sends the binary format of
+ * {@link SeriesEncoder}: the data provided by another {@link DatasetModel}
+ * is encoded, and decoded by a {@link SeriesDecoder} a packet at a time, as
+ * it would be as it arrives over the network.  The decoded chunks are
+ * streamed to a {@link StreamingCallback} as they are decoded.  Used to
+ * exercise the codec and to measure the size of the responses without a
+ * backend.  Its requests can be cancelled if those of the other model can.
+ */
+public class EncodedDatasetModel implements CancellableDatasetModel {
+
+  public static final int DEFAULT_PACKET_SIZE = 1400;
+
+  private final DatasetModel source;
+
+  private final int packetSize;
+
+  private long numBytes;
+
+  private long numDataPoints;
+
+  public EncodedDatasetModel(DatasetModel source) {
+    this(source, DEFAULT_PACKET_SIZE);
+  }
+
+  /**
+   * @param packetSize - the number of bytes passed to the decoder at a
+   *    time.
+   */
+  public EncodedDatasetModel(DatasetModel source, int packetSize) {
+    ArgChecker.isNotNull(source, "source");
+    ArgChecker.isGT(packetSize, 0, "packetSize");
+    this.source = source;
+    this.packetSize = packetSize;
+  }
+
+  public double[] getUnits() {
+    return source.getUnits();
+  }
+
+  /**
+   * Returns the number of encoded bytes sent so far.
+   */
+  public long getNumBytes() {
+    return numBytes;
+  }
+
+  /**
+   * Returns the number of datapoints sent so far.
+   */
+  public long getNumDataPoints() {
+    return numDataPoints;
+  }
+
+  public void requestData(Request request, Callback callback) {
+    requestCancellableData(request, callback);
+  }
+
+  public RequestHandle requestCancellableData(Request request,
+      Callback callback) {
+    Callback encoder = encodingCallback(callback);
+    if (source instanceof CancellableDatasetModel) {
+      return ((CancellableDatasetModel) source).requestCancellableData(
+          request, encoder);
+    }
+    source.requestData(request, encoder);
+    return null;
+  }
+
+  /**
+   * Returns a callback that encodes the data it is provided, and passes
+   * the decoded data on to the specified callback.
+   */
+  private Callback encodingCallback(final Callback callback) {
+    return new Callback() {
+      public void provideData(double[] domain, double[] range) {
+        byte[] bytes = SeriesEncoder.encode(domain, range);
+        numBytes += bytes.length;
+        numDataPoints += domain.length;
+
+        StreamingCallback stream = (callback instanceof StreamingCallback)
+            ? (StreamingCallback) callback : null;
+        if (stream != null) {
+          stream.begin();
+        }
+        SeriesDecoder decoder = new SeriesDecoder();
+        for (int offset = 0; offset < bytes.length; offset += packetSize) {
+          int numDecoded = decoder.getNumDecoded();
+          decoder.feed(bytes, offset,
+              Math.min(packetSize, bytes.length - offset));
+          if (stream != null && decoder.getNumDecoded() > numDecoded) {
+            stream.provideChunk(
+                copyOfRange(decoder.getDomain(), numDecoded,
+                    decoder.getNumDecoded()),
+                copyOfRange(decoder.getRange(), numDecoded,
+                    decoder.getNumDecoded()));
+          }
+        }
+        if (!decoder.isComplete()) {
+          callback.onFailure(new IllegalStateException("truncated response"));
+        } else if (stream != null) {
+          stream.end();
+        } else {
+          callback.provideData(decoder.getDomain(), decoder.getRange());
+        }
+      }
+
+      public void onFailure(Throwable caught) {
+        callback.onFailure(caught);
+      }
+    };
+  }
+
+  private static double[] copyOfRange(double[] a, int from, int to) {
+    double[] copy = new double[to - from];
+    System.arraycopy(a, from, copy, 0, copy.length);
+    return copy;
+  }
+}
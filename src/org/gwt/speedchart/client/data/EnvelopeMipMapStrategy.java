@@ -0,0 +1,242 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.Array2D;
+import org.gwt.speedchart.client.util.JavaArray1D;
+import org.gwt.speedchart.client.util.MathUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mipmap strategy that keeps an envelope of every bucket instead of a
+ * single aggregated value.  Datapoints are paired up the same way as in
+ * {@link BinaryMipMapStrategy}, but each datapoint at level n+1 carries
+ * the maximum, minimum, first, last, sum and count of the raw values it
+ * represents, so that short spikes and dips survive at every level.
+ * <p>
+ * The envelope is stored as a 6-tuple range, indexed by the
+ * <tt>RANGE_*</tt> constants.  The maximum is placed in range tuple 0, and
+ * the chain is flagged as an envelope (see {@link MipMap#isEnvelope()}), so
+ * that graphs draw each datapoint from its minimum to its maximum.
+ * <p>
+ * At level 0 every element of the envelope equals the raw value (and the
+ * count is 1), so all elements share the raw range array there; only the
+ * levels above 0 are stored per element.
+ */
+public class EnvelopeMipMapStrategy implements MipMapStrategy {
+
+  public static final int RANGE_MAX = 0;
+
+  public static final int RANGE_MIN = 1;
+
+  public static final int RANGE_FIRST = 2;
+
+  public static final int RANGE_LAST = 3;
+
+  public static final int RANGE_SUM = 4;
+
+  public static final int RANGE_COUNT = 5;
+
+  /**
+   * The number of range tuple elements produced by this strategy.
+   */
+  public static final int TUPLE_SIZE = 6;
+
+  public MipMapChain mipmap(double[] domain, double[] range) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
+    ArgChecker.isGT(range.length, 0, "range.length");
+
+    Array2D mipMappedDomain = BinaryMipMapStrategy.mipmapDomain(domain);
+    final int numLevels = mipMappedDomain.numRows();
+
+    JavaArray1D raw = new JavaArray1D(range);
+    RawLevelArray2D[] envelope = new RawLevelArray2D[TUPLE_SIZE];
+    for (int t = 0; t < TUPLE_SIZE; t++) {
+      envelope[t] = new RawLevelArray2D(raw, t == RANGE_COUNT);
+    }
+
+    int numSamples = range.length / 2;
+    for (int level = 1; level < numLevels; level++) {
+      for (int t = 0; t < TUPLE_SIZE; t++) {
+        RawLevelArray2D a = envelope[t];
+        for (int i = 0; i < numSamples; i++) {
+          int prevIndex = i * 2;
+          a.set(level, i, combine(t, a.get(level - 1, prevIndex),
+              a.get(level - 1, prevIndex + 1)));
+        }
+      }
+      numSamples /= 2;
+    }
+
+    List<Array2D> mipMappedRangeTuples = new ArrayList<Array2D>(TUPLE_SIZE);
+    for (int t = 0; t < TUPLE_SIZE; t++) {
+      mipMappedRangeTuples.add(envelope[t]);
+    }
+    MipMapChain mipMapChain =
+        new MipMapChain(mipMappedDomain, mipMappedRangeTuples);
+    mipMapChain.setEnvelope(true);
+    return mipMapChain;
+  }
+
+  /**
+   * Only 1-dimensional ranges can be enveloped; <tt>range</tt> must
+   * contain exactly one element.
+   */
+  public MipMapChain mipmap(double[] domain, List<double[]> range) {
+    ArgChecker.isNotNull(range, "range");
+    if (range.size() != 1) {
+      throw new IllegalArgumentException(
+          "envelope can only be calculated for a 1-tuple range: "
+          + range.size());
+    }
+    return mipmap(domain, range.get(0));
+  }
+
+  public void appendXY(double x, double y, MipMapChain mipMapChain) {
+    final int origNumMipLevels = mipMapChain.getMipMappedDomain().numRows();
+
+    BinaryMipMapStrategy.appendDomainValue(x,
+        mipMapChain.getMipMappedDomain(), 0);
+    appendEnvelope(rawEnvelope(y), mipMapChain.getMipMappedRangeTuples(), 0);
+
+    final int newNumMipLevels = mipMapChain.getMipMappedDomain().numRows();
+    final int levelDiff = (newNumMipLevels - origNumMipLevels);
+    if (levelDiff == 1) {
+      mipMapChain.addMipLevel();
+    }
+    else if (levelDiff != 0) {
+      throw new IllegalStateException("levelDiff was " + levelDiff +
+          " after appendXY() method called");
+    }
+  }
+
+  public void appendBatch(double[] xs, double[] ys, MipMapChain mipMapChain) {
+    BinaryMipMapStrategy.checkBatch(xs, ys);
+
+    BinaryMipMapStrategy.appendDomainValues(xs,
+        mipMapChain.getMipMappedDomain());
+
+    Array2D[] tuples = mipMapChain.getMipMappedRangeTuples();
+    // Level 0 is shared by all elements of the envelope.
+    int firstNew = BinaryMipMapStrategy.appendToRow0(ys, tuples[0]);
+
+    for (int level = 0; ; level++) {
+      final int firstPair = firstNew / 2;
+      final int numPairs = tuples[0].numColumns(level) / 2;
+      if (firstPair >= numPairs) {
+        break;
+      }
+      final int nextLevel = level + 1;
+      for (int t = 0; t < TUPLE_SIZE; t++) {
+        Array2D a = tuples[t];
+        if (nextLevel < a.numRows()) {
+          a.ensureCapacity(nextLevel, numPairs);
+        }
+        for (int i = firstPair; i < numPairs; i++) {
+          a.set(nextLevel, i,
+              combine(t, a.get(level, i * 2), a.get(level, i * 2 + 1)));
+        }
+      }
+      firstNew = firstPair;
+    }
+
+    while (mipMapChain.size() < mipMapChain.getMipMappedDomain().numRows()) {
+      mipMapChain.addMipLevel();
+    }
+  }
+
+  public void setRangeValue(int pointIndex, double y, MipMapChain mipMapChain) {
+    Array2D[] tuples = mipMapChain.getMipMappedRangeTuples();
+    if (!MathUtil.isBounded(pointIndex, 0, tuples[0].numColumns(0) - 1)) {
+      throw new IndexOutOfBoundsException("Invalid datapoint index: "
+          + pointIndex);
+    }
+    setEnvelope(pointIndex, rawEnvelope(y), tuples, 0, mipMapChain);
+  }
+
+  /**
+   * Appends the envelope <tt>values</tt> to the specified level, and
+   * recursively to the next level each time a pair of datapoints is
+   * completed.  The contents of <tt>values</tt> are overwritten.
+   */
+  private void appendEnvelope(double[] values, Array2D[] tuples, int level) {
+    boolean levelExists = (level < tuples[0].numRows());
+    if (levelExists) {
+      int oldLength = tuples[0].numColumns(level);
+      int newLength = oldLength + 1;
+      for (int t = 0; t < TUPLE_SIZE; t++) {
+        tuples[t].set(level, newLength - 1, values[t]);
+      }
+      if (newLength % 2 == 0) {
+        for (int t = 0; t < TUPLE_SIZE; t++) {
+          values[t] = combine(t, tuples[t].get(level, oldLength - 1),
+              tuples[t].get(level, oldLength));
+        }
+        appendEnvelope(values, tuples, level + 1);
+      }
+    } else {
+      for (int t = 0; t < TUPLE_SIZE; t++) {
+        tuples[t].set(level, 0, values[t]);
+      }
+    }
+  }
+
+  private void setEnvelope(int pointIndex, double[] values, Array2D[] tuples,
+      int level, MipMapChain mipMapChain) {
+    for (int t = 0; t < TUPLE_SIZE; t++) {
+      tuples[t].set(level, pointIndex, values[t]);
+    }
+    mipMapChain.rangeValueChanged(level, pointIndex);
+
+    boolean hasMoreLevels = level < (tuples[0].numRows() - 1);
+    if (!hasMoreLevels) {
+      return;
+    }
+
+    // Index of the first datapoint of the pair that pointIndex belongs to.
+    int pairIndex = pointIndex - (pointIndex % 2);
+    boolean isPairComplete = (pairIndex + 1) < tuples[0].numColumns(level);
+    if (isPairComplete) {
+      for (int t = 0; t < TUPLE_SIZE; t++) {
+        values[t] = combine(t, tuples[t].get(level, pairIndex),
+            tuples[t].get(level, pairIndex + 1));
+      }
+      setEnvelope(pointIndex / 2, values, tuples, level + 1, mipMapChain);
+    }
+    // else, this is this the first-and-only or last point in the dataset.
+  }
+
+  /**
+   * Returns the envelope of a single raw datapoint.
+   */
+  private static double[] rawEnvelope(double y) {
+    double[] values = new double[TUPLE_SIZE];
+    for (int t = 0; t < TUPLE_SIZE; t++) {
+      values[t] = y;
+    }
+    values[RANGE_COUNT] = 1;
+    return values;
+  }
+
+  /**
+   * Merges the envelope elements of two adjacent datapoints, where
+   * <tt>prev1</tt> precedes <tt>prev2</tt> in the domain.
+   */
+  private static double combine(int tupleIndex, double prev1, double prev2) {
+    switch (tupleIndex) {
+      case RANGE_MAX:
+        return Math.max(prev1, prev2);
+      case RANGE_MIN:
+        return Math.min(prev1, prev2);
+      case RANGE_FIRST:
+        return prev1;
+      case RANGE_LAST:
+        return prev2;
+      default:
+        // RANGE_SUM and RANGE_COUNT
+        return prev1 + prev2;
+    }
+  }
+}
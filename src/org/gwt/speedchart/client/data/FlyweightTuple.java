@@ -29,20 +29,20 @@ import org.gwt.speedchart.client.util.Array1D;
  */
 public final class FlyweightTuple implements Tuple5D {
   private int dataPointIndex = 0;
-  private double[] domainData;
-  private double[][] rangeTupleData;
+  private Array1D domainData;
+  private Array1D[] rangeTupleData;
   private int tupleLength;
   
   public FlyweightTuple(Array1D domain, Array1D[] rangeTuples) {
     this.tupleLength = 1 + rangeTuples.length;
-    rangeTupleData = new double[rangeTuples.length][];
+    rangeTupleData = new Array1D[rangeTuples.length];
     setDomainAndRange(domain, rangeTuples);
   }
   
   public void setDomainAndRange(Array1D domain, Array1D[] rangeTuples) {
-    domainData = domain.backingArray();
+    domainData = domain;
     for (int i = 0; i < this.rangeTupleData.length; i++) {
-      rangeTupleData[i] = rangeTuples[i].backingArray();
+      rangeTupleData[i] = rangeTuples[i];
     }
   }
 
@@ -51,7 +51,7 @@ public final class FlyweightTuple implements Tuple5D {
   }
   
   public double getRange(int rangeTupleIndex) {
-    return rangeTupleData[rangeTupleIndex][this.dataPointIndex];
+    return rangeTupleData[rangeTupleIndex].get(this.dataPointIndex);
   }
 
   public int size() {
@@ -59,23 +59,23 @@ public final class FlyweightTuple implements Tuple5D {
   }
 
   public double getDomain() {
-    return domainData[this.dataPointIndex];
+    return domainData.get(this.dataPointIndex);
   }
 
   public double getRange0() {
-    return rangeTupleData[0][this.dataPointIndex];
+    return rangeTupleData[0].get(this.dataPointIndex);
   }
 
   public double getRange1() {
-    return rangeTupleData[1][this.dataPointIndex];
+    return rangeTupleData[1].get(this.dataPointIndex);
   }
 
   public double getRange2() {
-    return rangeTupleData[2][this.dataPointIndex];
+    return rangeTupleData[2].get(this.dataPointIndex);
   }
 
   public double getRange3() {
-    return rangeTupleData[3][this.dataPointIndex];
+    return rangeTupleData[3].get(this.dataPointIndex);
   }
   
   public void setDataPointIndex(int dataPointIndex) {
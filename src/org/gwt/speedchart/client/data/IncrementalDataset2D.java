@@ -0,0 +1,156 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.Dataset;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.Array1D;
+import org.gwt.speedchart.client.util.Array2D;
+import org.gwt.speedchart.client.util.Interval;
+import org.gwt.speedchart.client.util.TaskScheduler;
+import org.gwt.speedchart.client.util.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Dataset} whose mip levels are built in the background through a
+ * {@link TaskScheduler}, rather than all at once, so that a large dataset
+ * can be drawn without freezing the page.
+ * <p>
+ * Until a level has been built, {@link #getBestMipMapForInterval(Interval,
+ * int)} falls back to the nearest coarser level that has.  A coarse level
+ * of at most 1024 datapoints is built by the constructor, so there is
+ * always one to fall back to, and {@link DatasetListener}s are notified as
+ * each of the other levels is published, so that charts can redraw at
+ * higher resolution.
+ */
+public class IncrementalDataset2D extends AbstractArrayDataset<Tuple2D> {
+
+  private final LazyRangeArray2D lazyRange;
+
+  private final IncrementalMipMapBuilder builder;
+
+  private List<DatasetListener<Tuple2D>> listeners =
+      new ArrayList<DatasetListener<Tuple2D>>();
+
+  public IncrementalDataset2D(double[] domain, double[] range,
+      TaskScheduler scheduler) {
+    this(domain, range, BinaryMipMapStrategy.MEAN, scheduler);
+  }
+
+  /**
+   * Constructs a dataset from the domain and the first range tuple slice
+   * of the specified request.
+   */
+  public IncrementalDataset2D(DatasetRequest.Basic request,
+      TaskScheduler scheduler) {
+    this(validate(request).getDomain(), request.getRangeTupleSlice(0),
+        request.getDefaultMipMapStrategy(), scheduler);
+  }
+
+  /**
+   * @param domain - adopted as level 0 of the dataset; must not be modified
+   *    afterwards.
+   * @param range - adopted as level 0 of the dataset; must not be modified
+   *    afterwards.
+   * @param mms - must be a {@link BinaryMipMapStrategy}.
+   * @param scheduler - runs the slices in which the mip levels are built.
+   */
+  public IncrementalDataset2D(double[] domain, double[] range,
+      MipMapStrategy mms, TaskScheduler scheduler) {
+    this(domain, range, mms, scheduler,
+        IncrementalMipMapBuilder.DEFAULT_SLICE_SIZE);
+  }
+
+  /**
+   * @param sliceSize - the number of level 0 values that are reduced in a
+   *    single slice.
+   */
+  IncrementalDataset2D(double[] domain, double[] range, MipMapStrategy mms,
+      TaskScheduler scheduler, int sliceSize) {
+    super(domain, range, mms);
+    ArgChecker.isNotNull(scheduler, "scheduler");
+
+    Array2D mipMappedRange = mipMapChain.getMipMappedRangeTuples()[0];
+    if (!(mipMappedRange instanceof LazyRangeArray2D)) {
+      throw new IllegalArgumentException(
+          "only BinaryMipMapStrategy is supported: " + mms.getClass().getName());
+    }
+    this.lazyRange = (LazyRangeArray2D) mipMappedRange;
+
+    builder = new IncrementalMipMapBuilder(lazyRange,
+        new IncrementalMipMapBuilder.LevelListener() {
+          public void onLevelBuilt(int mipLevel) {
+            Interval domainExtrema = getDomainExtrema();
+            notifyListeners(IncrementalDataset2D.this, domainExtrema.getStart(),
+                domainExtrema.getEnd());
+          }
+        }, sliceSize);
+    builder.buildCoarseLevel();
+    scheduler.scheduleIncremental(builder);
+  }
+
+  public void addListener(DatasetListener<Tuple2D> listener) {
+    ArgChecker.isNotNull(listener, "listener");
+    this.listeners.add(listener);
+  }
+
+  public void removeListener(DatasetListener<Tuple2D> listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Returns true if the specified mip level can be drawn without having to
+   * build it first.
+   */
+  public boolean isMipLevelBuilt(int mipLevel) {
+    return lazyRange.isBuilt(mipLevel);
+  }
+
+  /**
+   * Returns true once all mip levels have been built.
+   */
+  public boolean isComplete() {
+    return builder.isDone();
+  }
+
+  /**
+   * Returns the highest resolution {@link MipMap} that has been built, and
+   * has no more than <tt>maxSamples</tt> datapoints within <tt>region</tt>,
+   * or else the coarsest one that has been built.  Since the coarse level is
+   * built by the constructor, level 0 is only returned if it fits.
+   */
+  @Override
+  public MipMapRegion getBestMipMapForInterval(Interval region,
+      int maxSamples) {
+    MipMap bestMipMap = rawData;
+    int domainStartIdx = 0;
+    int domainEndIdx = 0;
+    for (MipMap mipMap = rawData; mipMap != null; mipMap = mipMap.next()) {
+      if (!isMipLevelBuilt(mipMap.getLevel())) {
+        continue;
+      }
+      Array1D domain = mipMap.getDomain();
+      bestMipMap = mipMap;
+      domainStartIdx = Util.binarySearch(domain, region.getStart());
+      domainEndIdx = Util.binarySearch(domain, region.getEnd());
+      if ((domainEndIdx - domainStartIdx) <= maxSamples) {
+        break;
+      }
+    }
+    return new MipMapRegion(bestMipMap, domainStartIdx, domainEndIdx);
+  }
+
+  private static DatasetRequest.Basic validate(DatasetRequest.Basic request) {
+    ArgChecker.isNotNull(request, "request");
+    request.validate();
+    return request;
+  }
+
+  private void notifyListeners(Dataset<Tuple2D> ds, double domainStart,
+      double domainEnd) {
+    for (DatasetListener<Tuple2D> l : this.listeners) {
+      l.onDatasetChanged(ds, domainStart, domainEnd);
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.TaskScheduler;
+
+/**
+ * Builds the levels of a {@link LazyRangeArray2D} a slice at a time, so
+ * that mipmapping a large dataset does not block the UI.
+ * <p>
+ * The first level built is the densest one with at most
+ * {@link #COARSE_LEVEL_MAX_POINTS} datapoints, so that the whole dataset
+ * can be drawn as early as possible (see {@link #buildCoarseLevel()}); the
+ * remaining levels follow from the
+ * finest to the coarsest.  Each level is built from the nearest finer
+ * level that has already been built, and is only published to the range
+ * once it is complete.  A level that is read before the builder gets to
+ * it is simply built synchronously by the range, and skipped here.
+ */
+final class IncrementalMipMapBuilder implements TaskScheduler.IncrementalTask {
+
+  /**
+   * Receives the levels as they are published.
+   */
+  interface LevelListener {
+    void onLevelBuilt(int mipLevel);
+  }
+
+  /**
+   * The maximum number of datapoints in the level that is built first.
+   */
+  static final int COARSE_LEVEL_MAX_POINTS = 1024;
+
+  /**
+   * The default number of level 0 values that are reduced per slice.
+   */
+  static final int DEFAULT_SLICE_SIZE = 1 << 15;
+
+  private final LazyRangeArray2D range;
+
+  private final LevelListener listener;
+
+  private final int sliceSize;
+
+  /**
+   * The levels in the order in which they are built.
+   */
+  private final int[] buildOrder;
+
+  private int buildOrderIdx;
+
+  // State of the level that is currently being built; row is -1 if none.
+  private int row = -1;
+  private double[] source;
+  private int depth;
+  private double[] level;
+  private int numBuilt;
+
+  IncrementalMipMapBuilder(LazyRangeArray2D range, LevelListener listener,
+      int sliceSize) {
+    ArgChecker.isNotNull(range, "range");
+    ArgChecker.isNotNull(listener, "listener");
+    ArgChecker.isGT(sliceSize, 0, "sliceSize");
+    this.range = range;
+    this.listener = listener;
+    this.sliceSize = sliceSize;
+    this.buildOrder = calcBuildOrder(range);
+  }
+
+  /**
+   * Returns the levels above 0, starting with the coarse level.
+   */
+  private static int[] calcBuildOrder(LazyRangeArray2D range) {
+    final int numRows = range.numRows();
+    int[] order = new int[Math.max(0, numRows - 1)];
+    if (order.length == 0) {
+      return order;
+    }
+
+    int coarse = 1;
+    while (coarse < numRows - 1
+        && range.numColumns(coarse) > COARSE_LEVEL_MAX_POINTS) {
+      coarse++;
+    }
+
+    int i = 0;
+    order[i++] = coarse;
+    for (int row = 1; row < numRows; row++) {
+      if (row != coarse) {
+        order[i++] = row;
+      }
+    }
+    return order;
+  }
+
+  public boolean execute() {
+    int budget = sliceSize;
+    while (budget > 0) {
+      if (row == -1 && !startNextLevel()) {
+        return false;
+      }
+      if (range.isBuilt(row)) {
+        // Built synchronously by a reader in the meantime.
+        row = -1;
+        continue;
+      }
+
+      final int cost = 1 << depth;
+      final int n = Math.min(level.length - numBuilt, Math.max(1, budget / cost));
+      for (int i = numBuilt; i < numBuilt + n; i++) {
+        level[i] = range.reduceBlock(source, i << depth, depth);
+      }
+      numBuilt += n;
+      budget -= n * cost;
+
+      if (numBuilt == level.length) {
+        final int builtRow = row;
+        row = -1;
+        range.publishLevel(builtRow, level);
+        listener.onLevelBuilt(builtRow);
+      }
+    }
+    return row != -1 || buildOrderIdx < buildOrder.length;
+  }
+
+  /**
+   * Builds the level that is built first (the coarse level) synchronously,
+   * so that the whole dataset can be drawn before the first slice runs.
+   */
+  void buildCoarseLevel() {
+    if (buildOrder.length > 0) {
+      range.build(buildOrder[0]);
+    }
+  }
+
+  /**
+   * Returns true if all levels have been built.
+   */
+  boolean isDone() {
+    return row == -1 && buildOrderIdx == buildOrder.length;
+  }
+
+  /**
+   * Sets up the next level in the build order that has not been built.
+   *
+   * @return false if there is no such level.
+   */
+  private boolean startNextLevel() {
+    while (buildOrderIdx < buildOrder.length) {
+      int next = buildOrder[buildOrderIdx++];
+      if (!range.isBuilt(next)) {
+        int finer = range.findBuiltFinerLevel(next);
+        row = next;
+        source = range.getBuiltLevel(finer);
+        depth = next - finer;
+        level = new double[range.numColumns(next)];
+        numBuilt = 0;
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,238 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.Array2D;
+import org.gwt.speedchart.client.util.JavaArray2D;
+import org.gwt.speedchart.client.util.MathUtil;
+import org.gwt.speedchart.client.util.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mipmap strategy based on the Largest-Triangle-Three-Buckets (LTTB)
+ * downsampling algorithm.  Each pair of datapoints at level n forms a
+ * bucket, and the datapoint of the bucket that forms the largest triangle
+ * together with the previously selected datapoint and the average of the
+ * next bucket is selected for level n+1.
+ * <p>
+ * Unlike {@link BinaryMipMapStrategy}, every datapoint at every level is a
+ * real sample (both domain and range values), so the shape of the curve is
+ * preserved even when a level has fewer datapoints than there are pixels.
+ * The first and last datapoints of a level are always kept at the next
+ * level; a level with an odd number of datapoints ends with a bucket of
+ * just its last datapoint.  Only the final, single-datapoint level drops
+ * the last datapoint of the level below it.
+ * <p>
+ * Selection is only based on range tuple 0; the remaining tuple elements
+ * follow the selected datapoint.
+ */
+public class LargestTriangleMipMapStrategy implements MipMapStrategy {
+
+  public MipMapChain mipmap(double[] domain, double[] range) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
+
+    List<double[]> rangeTuple1d = new ArrayList<double[]>(1);
+    rangeTuple1d.add(range);
+    return mipmap(domain, rangeTuple1d);
+  }
+
+  public MipMapChain mipmap(double[] domain, List<double[]> range) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
+    ArgChecker.isGT(domain.length, 0, "domain.length");
+
+    Array2D mipMappedDomain = new JavaArray2D(Util.copyArray(domain));
+    Array2D[] tuples = new Array2D[range.size()];
+    for (int i = 0; i < tuples.length; i++) {
+      tuples[i] = new JavaArray2D(Util.copyArray(range.get(i)));
+    }
+
+    selectBuckets(mipMappedDomain, tuples, 0, 0, domain.length - 1, null);
+
+    List<Array2D> mipMappedRangeTuples = new ArrayList<Array2D>(tuples.length);
+    for (int i = 0; i < tuples.length; i++) {
+      mipMappedRangeTuples.add(tuples[i]);
+    }
+    return new MipMapChain(mipMappedDomain, mipMappedRangeTuples);
+  }
+
+  /**
+   * Appends the datapoint to the chain.  If the chain has a range tuple
+   * of more than one element, <tt>y</tt> is assigned to all of them.
+   */
+  public void appendXY(double x, double y, MipMapChain mipMapChain) {
+    Array2D domain = mipMapChain.getMipMappedDomain();
+    Array2D[] tuples = mipMapChain.getMipMappedRangeTuples();
+
+    final int pointIndex = domain.numColumns(0);
+    domain.set(0, pointIndex, x);
+    for (int i = 0; i < tuples.length; i++) {
+      tuples[i].set(0, pointIndex, y);
+    }
+
+    selectBuckets(domain, tuples, 0, pointIndex, pointIndex, mipMapChain);
+
+    while (mipMapChain.size() < domain.numRows()) {
+      mipMapChain.addMipLevel();
+    }
+  }
+
+  /**
+   * Appends the datapoints to the chain.  If the chain has a range tuple
+   * of more than one element, <tt>ys[i]</tt> is assigned to all of them.
+   */
+  public void appendBatch(double[] xs, double[] ys, MipMapChain mipMapChain) {
+    BinaryMipMapStrategy.checkBatch(xs, ys);
+    if (xs.length == 0) {
+      return;
+    }
+
+    Array2D domain = mipMapChain.getMipMappedDomain();
+    Array2D[] tuples = mipMapChain.getMipMappedRangeTuples();
+
+    final int firstIndex = BinaryMipMapStrategy.appendToRow0(xs, domain);
+    for (int i = 0; i < tuples.length; i++) {
+      BinaryMipMapStrategy.appendToRow0(ys, tuples[i]);
+    }
+
+    selectBuckets(domain, tuples, 0, firstIndex, domain.numColumns(0) - 1,
+        mipMapChain);
+
+    while (mipMapChain.size() < domain.numRows()) {
+      mipMapChain.addMipLevel();
+    }
+  }
+
+  public void setRangeValue(int pointIndex, double y, MipMapChain mipMapChain) {
+    Array2D domain = mipMapChain.getMipMappedDomain();
+    Array2D[] tuples = mipMapChain.getMipMappedRangeTuples();
+    if (!MathUtil.isBounded(pointIndex, 0, domain.numColumns(0) - 1)) {
+      throw new IndexOutOfBoundsException("Invalid datapoint index: "
+          + pointIndex);
+    }
+
+    tuples[0].set(0, pointIndex, y);
+    mipMapChain.rangeValueChanged(0, pointIndex);
+    selectBuckets(domain, tuples, 0, pointIndex, pointIndex, mipMapChain);
+  }
+
+  /**
+   * (Re)selects the datapoints of level <tt>level + 1</tt> after the
+   * datapoints <tt>[firstChanged, lastChanged]</tt> of <tt>level</tt> have
+   * been assigned or appended, and then recurses upwards for every level
+   * that changed as a result.
+   * <p>
+   * Since the selection of a bucket only depends on the selection of the
+   * previous bucket and on the datapoints of itself and the next bucket,
+   * the work stops as soon as a bucket past the changed datapoints
+   * selects the same datapoint as before.
+   * <p>
+   * Reselected datapoints are reported to <tt>mipMapChain</tt>, which may
+   * be null while the chain is first being built.
+   */
+  private void selectBuckets(Array2D domain, Array2D[] tuples, int level,
+      int firstChanged, int lastChanged, MipMapChain mipMapChain) {
+    final int numPoints = domain.numColumns(level);
+    final int numBuckets = numPoints <= 1 ? 0 : (numPoints + 1) / 2;
+    final int nextLevel = level + 1;
+    final boolean nextLevelExists = nextLevel < domain.numRows();
+    final int numSelected = nextLevelExists ? domain.numColumns(nextLevel) : 0;
+
+    // The bucket before the first changed one uses it as its "next" bucket.
+    final int firstBucket = Math.max(0, (firstChanged / 2) - 1);
+    final int lastForcedBucket = lastChanged / 2;
+
+    int minChanged = Integer.MAX_VALUE;
+    int maxChanged = -1;
+
+    for (int bucket = firstBucket; bucket < numBuckets; bucket++) {
+      int selected = selectPoint(domain, tuples[0], level, bucket, numPoints);
+
+      boolean isNew = bucket >= numSelected;
+      boolean isChanged = isNew
+          || !isSameDatapoint(domain, tuples, level, selected, bucket);
+      if (isChanged) {
+        domain.set(nextLevel, bucket, domain.get(level, selected));
+        for (int i = 0; i < tuples.length; i++) {
+          tuples[i].set(nextLevel, bucket, tuples[i].get(level, selected));
+        }
+        if (!isNew && mipMapChain != null) {
+          mipMapChain.rangeValueChanged(nextLevel, bucket);
+        }
+        minChanged = Math.min(minChanged, bucket);
+        maxChanged = Math.max(maxChanged, bucket);
+      } else if (bucket > lastForcedBucket) {
+        break;
+      }
+    }
+
+    if (maxChanged >= 0) {
+      selectBuckets(domain, tuples, nextLevel, minChanged, maxChanged,
+          mipMapChain);
+    }
+  }
+
+  /**
+   * Returns the index of the datapoint within <tt>level</tt> that
+   * represents the specified bucket at the next level.
+   */
+  private int selectPoint(Array2D domain, Array2D range, int level,
+      int bucket, int numPoints) {
+    final int first = bucket * 2;
+    if (bucket == 0 || first == numPoints - 1) {
+      // The first datapoint, or a lone trailing one
+      return first;
+    }
+
+    // Datapoint selected for the previous bucket
+    final double ax = domain.get(level + 1, bucket - 1);
+    final double ay = range.get(level + 1, bucket - 1);
+
+    // Average of the next bucket (which may be incomplete)
+    final int nextFirst = first + 2;
+    final int nextCount = Math.min(2, numPoints - nextFirst);
+    if (nextCount <= 0) {
+      return first + 1;
+    }
+    double cx = 0;
+    double cy = 0;
+    for (int i = nextFirst; i < nextFirst + nextCount; i++) {
+      cx += domain.get(level, i);
+      cy += range.get(level, i);
+    }
+    cx /= nextCount;
+    cy /= nextCount;
+
+    int selected = first;
+    double maxArea = -1;
+    for (int i = first; i < first + 2; i++) {
+      final double bx = domain.get(level, i);
+      final double by = range.get(level, i);
+      double area = Math.abs((ax - cx) * (by - ay) - (ax - bx) * (cy - ay));
+      if (area > maxArea) {
+        maxArea = area;
+        selected = i;
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Returns true if the datapoint at index <tt>bucket</tt> of the next
+   * level already holds the values of datapoint <tt>pointIndex</tt>.
+   */
+  private static boolean isSameDatapoint(Array2D domain, Array2D[] tuples,
+      int level, int pointIndex, int bucket) {
+    if (domain.get(level + 1, bucket) != domain.get(level, pointIndex)) {
+      return false;
+    }
+    for (int i = 0; i < tuples.length; i++) {
+      if (tuples[i].get(level + 1, bucket) != tuples[i].get(level, pointIndex)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
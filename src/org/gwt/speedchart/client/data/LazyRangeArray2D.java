@@ -0,0 +1,250 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.Array1D;
+import org.gwt.speedchart.client.util.Array2D;
+import org.gwt.speedchart.client.util.ArrayFunction;
+import org.gwt.speedchart.client.util.JavaArray2D;
+
+/**
+ * Mipmapped range of a {@link BinaryMipMapStrategy} whose levels above 0
+ * are only calculated the first time one of their values is read, so that
+ * a dataset can be constructed (and its coarsest levels drawn) without
+ * first reducing every level.
+ * <p>
+ * A level is built from the nearest finer level that has already been
+ * built, by reducing each block of datapoints in the same pairwise order as
+ * the level-by-level cascade, so the values are identical to those of an
+ * eagerly built range.  In particular, a coarse level can be built directly
+ * from level 0 without building any of the levels in between.
+ * <p>
+ * Before the first assignment (i.e. the first append or range mutation),
+ * all levels are built, and the array behaves as a {@link JavaArray2D} from
+ * then on.
+ */
+final class LazyRangeArray2D implements Array2D {
+
+  /**
+   * View of a row, which is built on first access.
+   */
+  private final class LazyRow implements Array1D {
+    private final int rowIndex;
+
+    LazyRow(int rowIndex) {
+      this.rowIndex = rowIndex;
+    }
+
+    public double[] backingArray() {
+      return (materialized != null)
+          ? materialized.getRow(rowIndex).backingArray() : level(rowIndex);
+    }
+
+    public double get(int index) {
+      return (materialized != null)
+          ? materialized.get(rowIndex, index) : level(rowIndex)[index];
+    }
+
+    public double getLast() {
+      final int size = size();
+      if (size == 0) {
+        throw new IllegalStateException("array is empty");
+      }
+      return get(size - 1);
+    }
+
+    public int size() {
+      return numColumns(rowIndex);
+    }
+
+    public boolean isEmpty() {
+      return size() == 0;
+    }
+
+    public void execFunction(ArrayFunction f) {
+      f.exec(backingArray(), size());
+    }
+
+    public double[] toArray() {
+      double[] a = new double[size()];
+      for (int i = 0; i < a.length; i++) {
+        a[i] = get(i);
+      }
+      return a;
+    }
+  }
+
+  private final BinaryMipMapStrategy strategy;
+
+  /**
+   * The levels that have been built so far; level 0 is the adopted range.
+   */
+  private final double[][] levels;
+
+  private final Array1D[] rows;
+
+  /**
+   * Non-null once all levels have been built for the first assignment.
+   */
+  private JavaArray2D materialized;
+
+  /**
+   * @param range - level 0; adopted, not copied.
+   */
+  LazyRangeArray2D(double[] range, BinaryMipMapStrategy strategy) {
+    ArgChecker.isNotNull(range, "range");
+    ArgChecker.isNotNull(strategy, "strategy");
+    this.strategy = strategy;
+    this.levels = new double[BinaryMipMapStrategy.calcNumLevels(range.length)][];
+    this.levels[0] = range;
+    this.rows = new Array1D[levels.length];
+  }
+
+  public void addRowByRef(double[] row) {
+    materialize().addRowByRef(row);
+  }
+
+  public void addRowByValue(double[] row) {
+    materialize().addRowByValue(row);
+  }
+
+  public void ensureCapacity(int rowIdx, int numColumns) {
+    materialize().ensureCapacity(rowIdx, numColumns);
+  }
+
+  public double get(int row, int column) {
+    return (materialized != null)
+        ? materialized.get(row, column) : level(row)[column];
+  }
+
+  public Array1D getRow(int rowIndex) {
+    if (materialized != null) {
+      return materialized.getRow(rowIndex);
+    }
+    Array1D row = rows[rowIndex];
+    if (row == null) {
+      row = new LazyRow(rowIndex);
+      rows[rowIndex] = row;
+    }
+    return row;
+  }
+
+  public boolean isSameSize(Array2D other) {
+    ArgChecker.isNotNull(other, "other");
+    if (numRows() != other.numRows()) {
+      return false;
+    }
+    for (int i = 0; i < numRows(); i++) {
+      if (numColumns(i) != other.numColumns(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int numColumns(int rowIndex) {
+    return (materialized != null)
+        ? materialized.numColumns(rowIndex) : levels[0].length >> rowIndex;
+  }
+
+  public int numRows() {
+    return (materialized != null) ? materialized.numRows() : levels.length;
+  }
+
+  public void set(int rowIdx, int colIdx, double value) {
+    materialize().set(rowIdx, colIdx, value);
+  }
+
+  /**
+   * Returns true if the specified level can be read without building it.
+   */
+  boolean isBuilt(int rowIndex) {
+    return materialized != null || levels[rowIndex] != null;
+  }
+
+  /**
+   * Builds the specified level, unless it has been built already.
+   */
+  void build(int rowIndex) {
+    if (materialized == null) {
+      level(rowIndex);
+    }
+  }
+
+  /**
+   * Returns the nearest level below <tt>rowIndex</tt> that has been built.
+   * Only valid before the array has been materialized.
+   */
+  int findBuiltFinerLevel(int rowIndex) {
+    int finer = rowIndex - 1;
+    while (levels[finer] == null) {
+      finer--;
+    }
+    return finer;
+  }
+
+  /**
+   * Returns the values of a built level, or null if the level has not been
+   * built or the array has been materialized.
+   */
+  double[] getBuiltLevel(int rowIndex) {
+    return (materialized != null) ? null : levels[rowIndex];
+  }
+
+  /**
+   * Assigns a level that was built elsewhere (see
+   * {@link IncrementalMipMapBuilder}), unless it has been built already.
+   */
+  void publishLevel(int rowIndex, double[] level) {
+    if (!isBuilt(rowIndex)) {
+      levels[rowIndex] = level;
+    }
+  }
+
+  /**
+   * Returns the specified level, building it if necessary.
+   */
+  private double[] level(int rowIndex) {
+    double[] level = levels[rowIndex];
+    if (level == null) {
+      int finer = findBuiltFinerLevel(rowIndex);
+      level = reduce(levels[finer], rowIndex - finer);
+      levels[rowIndex] = level;
+    }
+    return level;
+  }
+
+  /**
+   * Reduces every block of 2^depth values of <tt>finer</tt> into a single
+   * value.
+   */
+  private double[] reduce(double[] finer, int depth) {
+    double[] level = new double[finer.length >> depth];
+    for (int i = 0; i < level.length; i++) {
+      level[i] = reduceBlock(finer, i << depth, depth);
+    }
+    return level;
+  }
+
+  /**
+   * Reduces the block of 2^depth values of <tt>finer</tt> starting at
+   * <tt>start</tt> into a single value.
+   */
+  double reduceBlock(double[] finer, int start, int depth) {
+    if (depth == 0) {
+      return finer[start];
+    }
+    final int half = 1 << (depth - 1);
+    return strategy.calcRangeValue(reduceBlock(finer, start, depth - 1),
+        reduceBlock(finer, start + half, depth - 1));
+  }
+
+  private JavaArray2D materialize() {
+    if (materialized == null) {
+      for (int i = 1; i < levels.length; i++) {
+        level(i);
+      }
+      materialized = new JavaArray2D(levels);
+    }
+    return materialized;
+  }
+}
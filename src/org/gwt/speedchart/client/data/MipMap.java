@@ -26,6 +26,8 @@ import org.gwt.speedchart.client.data.tuple.Tuple2D;
 import org.gwt.speedchart.client.util.ArgChecker;
 import org.gwt.speedchart.client.util.Array1D;
 import org.gwt.speedchart.client.util.Array2D;
+import org.gwt.speedchart.client.util.Interval;
+import org.gwt.speedchart.client.util.RangeExtremaIndex;
 
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -44,9 +46,23 @@ public class MipMap {
   private FlyweightTuple flyweightTuple;
   private int mipLevel;
   private Array1D[] rangeTuples;
+  private RangeExtremaIndex rangeExtremaIndex;
+  private RangeExtremaIndex minRangeExtremaIndex;
   
   MipMap nextMipMap;
   
+  /**
+   * If true, {@link #getRangeExtrema(int, int)} is answered by a
+   * {@link RangeExtremaIndex} that is built on first use.
+   */
+  boolean rangeExtremaIndexed;
+  
+  /**
+   * True if the range tuples are laid out as by
+   * {@link EnvelopeMipMapStrategy}.
+   */
+  boolean envelope;
+  
   public MipMap(Array1D domain, Array1D rangeTuple) {
     ArgChecker.isNotNull(domain, "domain");
     ArgChecker.isNotNull(rangeTuple, "rangeTuple");
@@ -70,6 +86,16 @@ public class MipMap {
     this.flyweightTuple = new FlyweightTuple(this.domain, this.rangeTuples);
   }
   
+  /**
+   * Constructs a mipmap at the specified level of a chain that is not
+   * backed by {@link Array2D} objects.
+   */
+  MipMap(Array1D domain, Array1D[] rangeTuples, int mipLevel) {
+    this(domain, rangeTuples);
+    ArgChecker.isNonNegative(mipLevel, "mipLevel");
+    this.mipLevel = mipLevel;
+  }
+  
   MipMap(Array2D multiResDomain, Array2D[] multiResRangeTuple, int mipLevel) {
     ArgChecker.isNotNull(multiResDomain, "multiResDomain");
     ArgChecker.isNotNull(multiResRangeTuple, "multiResRangeTuple");
@@ -118,6 +144,51 @@ public class MipMap {
     return this.rangeTuples[tupleIndex];
   }
   
+  /**
+   * Returns the minimum and maximum values of range tuple element 0 at the
+   * datapoints <tt>[startIndex, endIndex]</tt>.  For an envelope, the
+   * minimum is that of the {@link EnvelopeMipMapStrategy#RANGE_MIN}
+   * element.
+   */
+  public Interval getRangeExtrema(int startIndex, int endIndex) {
+    if (rangeExtremaIndexed) {
+      if (rangeExtremaIndex == null) {
+        rangeExtremaIndex = new RangeExtremaIndex(rangeTuples[0]);
+      }
+      Interval extrema = rangeExtremaIndex.getExtrema(startIndex, endIndex);
+      if (envelope) {
+        if (minRangeExtremaIndex == null) {
+          minRangeExtremaIndex = new RangeExtremaIndex(
+              rangeTuples[EnvelopeMipMapStrategy.RANGE_MIN]);
+        }
+        extrema.setEndpoints(minRangeExtremaIndex.getExtrema(startIndex,
+            endIndex).getStart(), extrema.getEnd());
+      }
+      return extrema;
+    }
+
+    final Array1D range = rangeTuples[0];
+    final Array1D minRange = envelope
+        ? rangeTuples[EnvelopeMipMapStrategy.RANGE_MIN] : range;
+    double rangeMin = Double.POSITIVE_INFINITY;
+    double rangeMax = Double.NEGATIVE_INFINITY;
+    for (int i = startIndex; i <= endIndex; i++) {
+      rangeMin = Math.min(rangeMin, minRange.get(i));
+      rangeMax = Math.max(rangeMax, range.get(i));
+    }
+    return new Interval(rangeMin, rangeMax);
+  }
+  
+  /**
+   * Returns true if the range tuples of this mipmap are laid out as by
+   * {@link EnvelopeMipMapStrategy}, in which case each datapoint spans
+   * from its {@link EnvelopeMipMapStrategy#RANGE_MIN} to its
+   * {@link EnvelopeMipMapStrategy#RANGE_MAX} value.
+   */
+  public boolean isEnvelope() {
+    return envelope;
+  }
+  
   /**
    * Returns the number of elements in each range tuple within this mipmap. 
    */
@@ -136,6 +207,20 @@ public class MipMap {
     return this.nextMipMap;
   }
   
+  /**
+   * Notifies this mipmap that the value of range tuple element 0 at the
+   * specified datapoint was assigned in place.  Appended datapoints need
+   * not be reported.
+   */
+  void rangeValueChanged(int dataPointIndex) {
+    if (rangeExtremaIndex != null) {
+      rangeExtremaIndex.valueChanged(dataPointIndex);
+    }
+    if (minRangeExtremaIndex != null) {
+      minRangeExtremaIndex.valueChanged(dataPointIndex);
+    }
+  }
+  
   /**
    * The number of data points in this mipmap.
    */
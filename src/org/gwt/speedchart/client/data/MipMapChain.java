@@ -40,6 +40,8 @@ public class MipMapChain {
   private Map<String,MipMap> name2mipmap;
   private List<MipMap> mipMaps;
   private final int rangeTupleSize;
+  private boolean rangeExtremaIndexed;
+  private boolean envelope;
   
   private Array2D mipMappedDomain;
   private Array2D[] mipMappedRangeTuples;
@@ -86,6 +88,8 @@ public class MipMapChain {
     final int currHighestMipLevel = mipMaps.size() - 1;
     MipMap nextMipMap = 
       new MipMap(mipMappedDomain, mipMappedRangeTuples, currHighestMipLevel + 1);
+    nextMipMap.rangeExtremaIndexed = rangeExtremaIndexed;
+    nextMipMap.envelope = envelope;
     if (!this.mipMaps.isEmpty()) {
       MipMap currMipMap = this.mipMaps.get(currHighestMipLevel);
       currMipMap.nextMipMap = nextMipMap;
@@ -93,15 +97,79 @@ public class MipMapChain {
     this.mipMaps.add(nextMipMap);
   }
   
+  /**
+   * Appends the specified mipmap to the end of this chain.  Intended for
+   * chains that are not backed by {@link Array2D} objects.
+   */
+  void addMipMap(MipMap mipMap) {
+    ArgChecker.isNotNull(mipMap, "mipMap");
+    mipMap.rangeExtremaIndexed = rangeExtremaIndexed;
+    mipMap.envelope = envelope;
+    if (!this.mipMaps.isEmpty()) {
+      this.mipMaps.get(this.mipMaps.size() - 1).nextMipMap = mipMap;
+    }
+    this.mipMaps.add(mipMap);
+  }
+  
+  /**
+   * Removes all but the first <tt>numMipLevels</tt> mipmaps from this
+   * chain.  Intended for chains that are not backed by {@link Array2D}
+   * objects.
+   */
+  void truncate(int numMipLevels) {
+    ArgChecker.isInRange(numMipLevels, 1, mipMaps.size(), "numMipLevels");
+    while (mipMaps.size() > numMipLevels) {
+      mipMaps.remove(mipMaps.size() - 1);
+    }
+    mipMaps.get(numMipLevels - 1).nextMipMap = null;
+  }
+  
+  /**
+   * Specifies whether the {@link MipMap}s in this chain answer
+   * {@link MipMap#getRangeExtrema(int, int)} through an index (built on
+   * first use) rather than a linear scan.  The index costs 4 doubles per
+   * datapoint, and is kept up to date by the {@link MipMapStrategy}.
+   */
+  public void setRangeExtremaIndexed(boolean rangeExtremaIndexed) {
+    this.rangeExtremaIndexed = rangeExtremaIndexed;
+    for (MipMap mipMap : mipMaps) {
+      mipMap.rangeExtremaIndexed = rangeExtremaIndexed;
+    }
+  }
+  
+  /**
+   * Specifies whether the range tuples of the {@link MipMap}s in this chain
+   * are laid out as by {@link EnvelopeMipMapStrategy}.
+   *
+   * @see MipMap#isEnvelope()
+   */
+  public void setEnvelope(boolean envelope) {
+    this.envelope = envelope;
+    for (MipMap mipMap : mipMaps) {
+      mipMap.envelope = envelope;
+    }
+  }
+  
+  /**
+   * Notifies the chain that the range tuple element 0 value at the
+   * specified mip level and datapoint index was assigned in place.
+   */
+  void rangeValueChanged(int mipLevel, int dataPointIndex) {
+    if (mipLevel < mipMaps.size()) {
+      mipMaps.get(mipLevel).rangeValueChanged(dataPointIndex);
+    }
+  }
+  
   /**
    * Returns the "densest" (having the most data points) MipMap in this chain whose
-   * number of datapoints is not greater than <tt>maxDataPoints</tt>.
+   * number of datapoints is not greater than <tt>maxDataPoints</tt>, or the
+   * last MipMap in the chain if there is no such MipMap.
    */
   public MipMap findHighestResolution(int maxDataPoints) {
     MipMap mipMap = getMipMap(0);
     while (true) {
       int numPoints = mipMap.size();
-      if (numPoints <= maxDataPoints) {
+      if (numPoints <= maxDataPoints || mipMap.next() == null) {
         return mipMap;
       }
       mipMap = mipMap.next();
@@ -1,7 +1,5 @@
 package org.gwt.speedchart.client.data;
 
-import org.gwt.speedchart.client.util.Array2D;
-
 import java.util.List;
 
 /**
@@ -34,13 +32,25 @@ public interface MipMapStrategy {
 
   void appendXY(double x, double y, MipMapChain mipMapChain);
   
+  /**
+   * Appends the datapoints <tt>(xs[i], ys[i])</tt> to the chain.  The
+   * result is the same as calling {@link #appendXY} for each datapoint, but
+   * each mip level is updated in a single pass.
+   * 
+   * @param xs - the domain values, in ascending order.
+   * @param ys - the range values; must be the same length as <tt>xs</tt>.
+   * @param mipMapChain - the chain to which the datapoints are appended.
+   */
+  void appendBatch(double[] xs, double[] ys, MipMapChain mipMapChain);
+  
   /**
    * Updates the Y-value of an existing datapoint within a dataset (optional
    * operation).
    * 
    * @param pointIndex - the 0-based index of the datapoint.
    * @param y - the range value to be updated.
+   * @param mipMapChain - the chain whose range tuples are to be updated.
    */
-  void setRangeValue(int pointIndex, double y, Array2D mipmappedRange);
+  void setRangeValue(int pointIndex, double y, MipMapChain mipMapChain);
 
 }
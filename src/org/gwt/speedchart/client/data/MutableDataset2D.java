@@ -27,6 +27,7 @@ import org.gwt.speedchart.client.data.Mutation.AppendMutation;
 import org.gwt.speedchart.client.data.tuple.Tuple2D;
 import org.gwt.speedchart.client.util.ArgChecker;
 import org.gwt.speedchart.client.util.Interval;
+import org.gwt.speedchart.client.util.Util;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,8 +45,14 @@ public class MutableDataset2D extends ArrayDataset2D implements MutableDataset<T
   private MipMapStrategy mipMapStrategy;
   private List<DatasetListener<Tuple2D>> listeners = new ArrayList<DatasetListener<Tuple2D>>();
 
+  /**
+   * <tt>range</tt> is copied, since range mutations assign level 0 of the
+   * dataset in place and must not write through to the caller's array.
+   * <tt>domain</tt> may be adopted as in {@link ArrayDataset2D}, so it must
+   * not be modified afterwards.
+   */
   public MutableDataset2D(double[] domain, double[] range, MipMapStrategy mms) {
-    super(domain, range, mms);
+    super(domain, copyRange(range), mms);
     mipMapStrategy = mms;
   }
 
@@ -53,6 +60,11 @@ public class MutableDataset2D extends ArrayDataset2D implements MutableDataset<T
     this(domain, range, BinaryMipMapStrategy.MEAN);
   }
 
+  private static double[] copyRange(double[] range) {
+    ArgChecker.isNotNull(range, "range");
+    return Util.copyArray(range);
+  }
+
   public void addListener(DatasetListener<Tuple2D> listener) {
     ArgChecker.isNotNull(listener, "listener");
     this.listeners.add(listener);
@@ -65,20 +77,21 @@ public class MutableDataset2D extends ArrayDataset2D implements MutableDataset<T
   public void mutate(Mutation mutation) {
     ArgChecker.isNotNull(mutation, "mutation");
 
-    double newX, newY;
+    if (mutation instanceof Mutation.BatchMutation) {
+      mutateBatch((Mutation.BatchMutation) mutation);
+      return;
+    }
+
+    double newX;
 
     if (mutation instanceof Mutation.AppendMutation) {
       AppendMutation m = (Mutation.AppendMutation) mutation;
-      newY = m.getY();
       newX = m.getX();
-      double newInterval = newX - rawData.getDomain().getLast();
-      appendXY(newX, newY);
+      appendXY(newX, m.getY());
     } 
     else if (mutation instanceof Mutation.RangeMutation) {
       Mutation.RangeMutation m = (Mutation.RangeMutation) mutation;
-      newY = m.getY();
-      mipMapStrategy.setRangeValue(m.getPointIndex(), newY,
-          mipMapChain.getMipMappedRangeTuples()[0]);
+      mipMapStrategy.setRangeValue(m.getPointIndex(), m.getY(), mipMapChain);
       newX = rawData.getDomain().get(m.getPointIndex());
     } 
     else {
@@ -90,6 +103,99 @@ public class MutableDataset2D extends ArrayDataset2D implements MutableDataset<T
     notifyListeners(this, newX, newX);
   }
 
+  /**
+   * Appends the datapoints <tt>(xs[i], ys[i])</tt> to the end of this
+   * dataset.  Each mip level is updated in a single pass, and listeners are
+   * notified once for the whole batch.
+   * 
+   * @param xs - the domain values, in ascending order, and all greater than
+   *    the current domain end.
+   * @param ys - the range values; must be the same length as <tt>xs</tt>.
+   */
+  public void appendBatch(double[] xs, double[] ys) {
+    ArgChecker.isNotNull(xs, "xs");
+    ArgChecker.isNotNull(ys, "ys");
+    if (xs.length == 0) {
+      return;
+    }
+    appendXY(xs, ys);
+    notifyListeners(this, xs[0], xs[xs.length - 1]);
+  }
+
+  /**
+   * Applies the constituent mutations of <tt>batch</tt> in order.  Runs of
+   * consecutive appends are passed to the {@link MipMapStrategy} as a
+   * single batch, and listeners are notified once with the domain interval
+   * spanning all mutated datapoints.  If a mutation fails, the ones before
+   * it remain applied and listeners are notified of them before the
+   * exception propagates.
+   */
+  private void mutateBatch(Mutation.BatchMutation batch) {
+    List<Mutation> mutations = new ArrayList<Mutation>();
+    flatten(batch, mutations);
+
+    double domainStart = Double.POSITIVE_INFINITY;
+    double domainEnd = Double.NEGATIVE_INFINITY;
+    
+    int i = 0;
+    try {
+      while (i < mutations.size()) {
+        Mutation mutation = mutations.get(i);
+        if (mutation instanceof Mutation.AppendMutation) {
+          int runEnd = i;
+          while (runEnd < mutations.size()
+              && mutations.get(runEnd) instanceof Mutation.AppendMutation) {
+            runEnd++;
+          }
+          double[] xs = new double[runEnd - i];
+          double[] ys = new double[runEnd - i];
+          for (int j = 0; j < xs.length; j++) {
+            AppendMutation m = (AppendMutation) mutations.get(i + j);
+            xs[j] = m.getX();
+            ys[j] = m.getY();
+          }
+          appendXY(xs, ys);
+          domainStart = Math.min(domainStart, xs[0]);
+          domainEnd = Math.max(domainEnd, xs[xs.length - 1]);
+          i = runEnd;
+        }
+        else if (mutation instanceof Mutation.RangeMutation) {
+          Mutation.RangeMutation m = (Mutation.RangeMutation) mutation;
+          mipMapStrategy.setRangeValue(m.getPointIndex(), m.getY(),
+              mipMapChain);
+          double x = rawData.getDomain().get(m.getPointIndex());
+          domainStart = Math.min(domainStart, x);
+          domainEnd = Math.max(domainEnd, x);
+          i++;
+        }
+        else {
+          throw new UnsupportedOperationException("mutation of type "
+              + mutation.getClass().getName() + " currently not supported");
+        }
+      }
+    } finally {
+      // Mutations applied before a failing one stay applied, so listeners
+      // must hear about them either way.
+      if (domainStart <= domainEnd) {
+        notifyListeners(this, domainStart, domainEnd);
+      }
+    }
+  }
+
+  /**
+   * Adds the constituent mutations of <tt>mutation</tt>, with nested
+   * batches expanded, to <tt>result</tt>.
+   */
+  static void flatten(Mutation mutation, List<Mutation> result) {
+    if (mutation instanceof Mutation.BatchMutation) {
+      for (Mutation m : ((Mutation.BatchMutation) mutation).getAll()) {
+        flatten(m, result);
+      }
+    } else {
+      result.add(mutation);
+    }
+  }
+
   private void appendXY(double x, double y) {
     if (x <= getDomainExtrema().getEnd()) {
       throw new IllegalArgumentException(
@@ -100,6 +206,24 @@ public class MutableDataset2D extends ArrayDataset2D implements MutableDataset<T
     mipMapStrategy.appendXY(x, y, mipMapChain);
   }
 
+  private void appendXY(double[] xs, double[] ys) {
+    if (xs.length != ys.length) {
+      throw new IllegalArgumentException("xs.length != ys.length: "
+          + xs.length + ", " + ys.length);
+    }
+    double prevX = getDomainExtrema().getEnd();
+    for (int i = 0; i < xs.length; i++) {
+      if (xs[i] <= prevX) {
+        throw new IllegalArgumentException(
+            "Insertions not allowed; xs[" + i + "] was <= " + prevX + ": "
+                + xs[i]);
+      }
+      prevX = xs[i];
+    }
+    
+    mipMapStrategy.appendBatch(xs, ys, mipMapChain);
+  }
+
   private void notifyListeners(Dataset<Tuple2D> ds, double domainStart, double domainEnd) {
     for (DatasetListener<Tuple2D> l : this.listeners) {
       l.onDatasetChanged(ds, domainStart, domainEnd);
@@ -0,0 +1,57 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.Array1D;
+import org.gwt.speedchart.client.util.ArrayFunction;
+
+/**
+ * The count of each raw datapoint, which is 1; as long as another
+ * array.
+ */
+final class OnesArray1D implements Array1D {
+
+  private final Array1D base;
+
+  OnesArray1D(Array1D base) {
+    this.base = base;
+  }
+
+  /**
+   * Not supported, since the values are not stored.
+   *
+   * @throws UnsupportedOperationException
+   */
+  public double[] backingArray() {
+    throw new UnsupportedOperationException("backingArray()");
+  }
+
+  public double get(int index) {
+    return 1;
+  }
+
+  public double getLast() {
+    if (isEmpty()) {
+      throw new IllegalStateException("array is empty");
+    }
+    return 1;
+  }
+
+  public int size() {
+    return base.size();
+  }
+
+  public boolean isEmpty() {
+    return base.isEmpty();
+  }
+
+  public void execFunction(ArrayFunction f) {
+    f.exec(toArray(), size());
+  }
+
+  public double[] toArray() {
+    double[] a = new double[size()];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = 1;
+    }
+    return a;
+  }
+}
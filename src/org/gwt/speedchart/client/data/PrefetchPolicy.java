@@ -0,0 +1,173 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.data.ZoomDataset2D.Request;
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.Interval;
+
+import java.util.List;
+
+/**
+ * Decides which regions a {@link ZoomDataset2D} requests ahead of time,
+ * based on how the visible window has been moving.
+ * <p>
+ * While panning, the region ahead of the window is prefetched, as far as
+ * the window is expected to move during {@link #getLeadTime()}.  While
+ * zooming in, the window the zoom is heading for is prefetched at the next
+ * finer unit; while zooming out, the surrounding regions are prefetched at
+ * the current unit.  While the window is still, a margin of
+ * {@link #getIdleFraction()} window lengths is prefetched on either side.
+ * <p>
+ * Prefetch requests are only issued while fewer than
+ * {@link #getMaxInFlight()} requests (of any kind) are outstanding, and
+ * requests for the visible region always go first.
+ */
+public class PrefetchPolicy {
+
+  public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+
+  public static final double DEFAULT_LEAD_TIME = 1000.0;
+
+  public static final double DEFAULT_IDLE_FRACTION = 0.25;
+
+  /**
+   * The largest region prefetched ahead of a pan, in window lengths.
+   */
+  private static final double MAX_LOOK_AHEAD = 2.0;
+
+  /**
+   * Window moves further apart than this (in ms) are not considered to be
+   * part of the same gesture.
+   */
+  private static final double MAX_GESTURE_INTERVAL = 500.0;
+
+  private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+  private double leadTime = DEFAULT_LEAD_TIME;
+
+  private double idleFraction = DEFAULT_IDLE_FRACTION;
+
+  private double lastStart, lastEnd;
+
+  private double lastTime = Double.NaN;
+
+  /**
+   * Smoothed velocity of the window center, in domain units per ms.
+   */
+  private double panVelocity;
+
+  /**
+   * Ratio of the window length to that of the previous window.
+   */
+  private double zoomRatio = 1.0;
+
+  /**
+   * Returns the maximum number of outstanding requests for which
+   * prefetch requests are still issued.
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public void setMaxInFlight(int maxInFlight) {
+    ArgChecker.isGT(maxInFlight, 0, "maxInFlight");
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Returns the time (in ms) ahead of a pan for which data is prefetched;
+   * typically the latency of a request.
+   */
+  public double getLeadTime() {
+    return leadTime;
+  }
+
+  public void setLeadTime(double leadTime) {
+    ArgChecker.isNonNegative(leadTime, "leadTime");
+    this.leadTime = leadTime;
+  }
+
+  /**
+   * Returns the margin on either side of a still window that is
+   * prefetched, in window lengths.
+   */
+  public double getIdleFraction() {
+    return idleFraction;
+  }
+
+  public void setIdleFraction(double idleFraction) {
+    ArgChecker.isNonNegative(idleFraction, "idleFraction");
+    this.idleFraction = idleFraction;
+  }
+
+  /**
+   * Records that the visible window moved to <tt>[start, end]</tt> at the
+   * specified time (in ms).
+   */
+  public void onWindowBoundsChange(double start, double end, double now) {
+    final double dt = now - lastTime;
+    if (dt > 0 && dt <= MAX_GESTURE_INTERVAL) {
+      double velocity = ((start + end) - (lastStart + lastEnd)) / 2 / dt;
+      panVelocity = (panVelocity + velocity) / 2;
+      double lastLength = lastEnd - lastStart;
+      zoomRatio = (lastLength > 0) ? (end - start) / lastLength : 1.0;
+    } else if (dt != 0) {
+      panVelocity = 0;
+      zoomRatio = 1.0;
+    }
+    lastStart = start;
+    lastEnd = end;
+    lastTime = now;
+  }
+
+  /**
+   * Adds the regions to prefetch to <tt>requests</tt>, given that
+   * <tt>view</tt> is being drawn at the specified unit.  Units are ordered
+   * from the finest (index 0) to the coarsest.
+   */
+  public void getPrefetchRequests(Interval view, int unitIdx,
+      List<Request> requests) {
+    final double length = view.length();
+    if (!(length > 0)) {
+      return;
+    }
+
+    if (zoomRatio < 1.0 && unitIdx > 0) {
+      double half = length * zoomRatio / 2;
+      requests.add(new Request(new Interval(view.midpoint() - half,
+          view.midpoint() + half), unitIdx - 1));
+    }
+
+    double before = idleFraction * length;
+    double after = before;
+    if (zoomRatio > 1.0) {
+      double margin = Math.min(MAX_LOOK_AHEAD, (zoomRatio - 1) / 2) * length;
+      before = Math.max(before, margin);
+      after = Math.max(after, margin);
+    }
+    double lookAhead = Math.min(MAX_LOOK_AHEAD * length,
+        Math.abs(panVelocity) * leadTime);
+    if (panVelocity > 0) {
+      after = Math.max(after, lookAhead);
+    } else if (panVelocity < 0) {
+      before = Math.max(before, lookAhead);
+    }
+
+    // The side the window is heading for goes first.
+    Interval left = new Interval(view.getStart() - before, view.getStart());
+    Interval right = new Interval(view.getEnd(), view.getEnd() + after);
+    if (panVelocity < 0) {
+      addIfNotEmpty(left, unitIdx, requests);
+      addIfNotEmpty(right, unitIdx, requests);
+    } else {
+      addIfNotEmpty(right, unitIdx, requests);
+      addIfNotEmpty(left, unitIdx, requests);
+    }
+  }
+
+  private static void addIfNotEmpty(Interval region, int unitIdx,
+      List<Request> requests) {
+    if (region.length() > 0) {
+      requests.add(new Request(region, unitIdx));
+    }
+  }
+}
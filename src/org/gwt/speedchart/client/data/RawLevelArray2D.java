@@ -0,0 +1,106 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.Array1D;
+import org.gwt.speedchart.client.util.Array2D;
+import org.gwt.speedchart.client.util.JavaArray1D;
+import org.gwt.speedchart.client.util.JavaArray2D;
+
+/**
+ * One element of a range tuple whose row 0 is a raw range array shared with
+ * other elements (or, for a count, a constant 1 for each raw datapoint), and
+ * whose other rows are stored per element.  Used by mipmap strategies whose
+ * tuple elements all equal the raw value at level 0.
+ */
+final class RawLevelArray2D implements Array2D {
+
+  private final JavaArray1D raw;
+
+  private final Array1D row0;
+
+  private final boolean count;
+
+  /**
+   * Rows 1, 2, ... of this array, at row indexes 0, 1, ...
+   */
+  private final JavaArray2D levels = new JavaArray2D();
+
+  RawLevelArray2D(JavaArray1D raw, boolean count) {
+    this.raw = raw;
+    this.count = count;
+    this.row0 = count ? new OnesArray1D(raw) : raw;
+  }
+
+  /**
+   * Not supported, since rows are built by the strategy.
+   *
+   * @throws UnsupportedOperationException
+   */
+  public void addRowByRef(double[] row) {
+    throw new UnsupportedOperationException("addRowByRef()");
+  }
+
+  /**
+   * Not supported, since rows are built by the strategy.
+   *
+   * @throws UnsupportedOperationException
+   */
+  public void addRowByValue(double[] row) {
+    throw new UnsupportedOperationException("addRowByValue()");
+  }
+
+  public void ensureCapacity(int rowIdx, int numColumns) {
+    if (rowIdx == 0) {
+      raw.ensureCapacity(numColumns - 1);
+    } else {
+      levels.ensureCapacity(rowIdx - 1, numColumns);
+    }
+  }
+
+  public double get(int row, int column) {
+    return (row == 0) ? row0.get(column) : levels.get(row - 1, column);
+  }
+
+  public Array1D getRow(int rowIndex) {
+    return (rowIndex == 0) ? row0 : levels.getRow(rowIndex - 1);
+  }
+
+  public boolean isSameSize(Array2D other) {
+    ArgChecker.isNotNull(other, "other");
+    if (numRows() != other.numRows()) {
+      return false;
+    }
+    for (int i = 0; i < numRows(); i++) {
+      if (numColumns(i) != other.numColumns(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int numColumns(int rowIndex) {
+    return (rowIndex == 0) ? raw.size() : levels.numColumns(rowIndex - 1);
+  }
+
+  public int numRows() {
+    return raw.isEmpty() ? 0 : levels.numRows() + 1;
+  }
+
+  /**
+   * Assigns a value.  In row 0, which is shared, the value must be the
+   * raw value, or 1 for a count.
+   *
+   * @throws UnsupportedOperationException if a count of other than 1 is
+   *     assigned in row 0.
+   */
+  public void set(int rowIdx, int colIdx, double value) {
+    if (rowIdx > 0) {
+      levels.set(rowIdx - 1, colIdx, value);
+    } else if (!count) {
+      raw.set(colIdx, value);
+    } else if (value != 1) {
+      throw new UnsupportedOperationException(
+          "the count of a raw datapoint is 1: " + value);
+    }
+  }
+}
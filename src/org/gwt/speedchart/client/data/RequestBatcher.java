@@ -0,0 +1,130 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.data.ZoomDataset2D.BatchDatasetModel;
+import org.gwt.speedchart.client.data.ZoomDataset2D.Callback;
+import org.gwt.speedchart.client.data.ZoomDataset2D.Request;
+import org.gwt.speedchart.client.data.ZoomDataset2D.RequestHandle;
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the requests that {@link ZoomDataset2D}s sharing a
+ * {@link BatchDatasetModel} make while a frame is drawn, and passes them to
+ * the model in a single call once control returns to the scheduler, so
+ * that an interaction with many charts costs about one round trip.
+ * <p>
+ * A request that is cancelled before the batch is sent is simply left out
+ * of the batch.
+ */
+public class RequestBatcher {
+
+  /**
+   * A request waiting to be sent, or sent as part of a batch.
+   */
+  private final class Entry implements RequestHandle {
+    final Request request;
+    final Callback callback;
+    RequestHandle handle;
+    boolean cancelled;
+
+    Entry(Request request, Callback callback) {
+      this.request = request;
+      this.callback = callback;
+    }
+
+    public void cancel() {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      if (!queue.remove(this) && handle != null) {
+        handle.cancel();
+      }
+    }
+  }
+
+  private final BatchDatasetModel model;
+
+  private final TaskScheduler scheduler;
+
+  private final List<Entry> queue = new ArrayList<Entry>();
+
+  private final TaskScheduler.IncrementalTask flushTask =
+      new TaskScheduler.IncrementalTask() {
+        public boolean execute() {
+          flush();
+          return false;
+        }
+      };
+
+  /**
+   * @param scheduler - runs the task that sends the batch once the current
+   *    frame is done.
+   */
+  public RequestBatcher(BatchDatasetModel model, TaskScheduler scheduler) {
+    ArgChecker.isNotNull(model, "model");
+    ArgChecker.isNotNull(scheduler, "scheduler");
+    this.model = model;
+    this.scheduler = scheduler;
+  }
+
+  public BatchDatasetModel getModel() {
+    return model;
+  }
+
+  /**
+   * Returns the number of requests waiting to be sent.
+   */
+  public int getNumQueued() {
+    return queue.size();
+  }
+
+  /**
+   * Adds the specified request to the next batch.
+   *
+   * @return a handle with which the request can be cancelled.
+   */
+  public RequestHandle requestData(Request request, Callback callback) {
+    ArgChecker.isNotNull(request, "request");
+    ArgChecker.isNotNull(callback, "callback");
+    Entry entry = new Entry(request, callback);
+    queue.add(entry);
+    if (queue.size() == 1) {
+      scheduler.scheduleIncremental(flushTask);
+    }
+    return entry;
+  }
+
+  /**
+   * Sends the queued requests to the model as a single batch.
+   */
+  public void flush() {
+    if (queue.isEmpty()) {
+      return;
+    }
+    List<Entry> batch = new ArrayList<Entry>(queue);
+    queue.clear();
+
+    List<Request> requests = new ArrayList<Request>(batch.size());
+    List<Callback> callbacks = new ArrayList<Callback>(batch.size());
+    for (Entry entry : batch) {
+      requests.add(entry.request);
+      callbacks.add(entry.callback);
+    }
+
+    RequestHandle[] handles = model.requestData(requests, callbacks);
+    if (handles != null) {
+      for (int i = 0; i < batch.size(); i++) {
+        Entry entry = batch.get(i);
+        entry.handle = handles[i];
+        if (entry.cancelled && entry.handle != null) {
+          // Cancelled by a callback during the call above
+          entry.handle.cancel();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,361 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.data.ZoomDataset2D.Callback;
+import org.gwt.speedchart.client.data.ZoomDataset2D.Request;
+import org.gwt.speedchart.client.data.ZoomDataset2D.RequestHandle;
+import org.gwt.speedchart.client.data.ZoomDataset2D.StreamingCallback;
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queues the requests of one or more {@link ZoomDataset2D}s and sends them
+ * in order of {@link Priority}, with at most {@link #getMaxInFlight()} of
+ * them outstanding at a time, so that the regions being looked at are not
+ * held up behind slow or speculative requests, and so that several charts
+ * sharing a scheduler do not overload the backend.
+ * <p>
+ * Requests are sent once control returns to the scheduler, so that the
+ * requests made while a frame is drawn are ordered among each other.  The
+ * priority of a queued request can be changed (e.g. when the view moves)
+ * until it is sent; requests of the same priority are sent in the order
+ * they were submitted.
+ * <p>
+ * A request that has not completed {@link #getTimeout()} ms after it was
+ * sent is cancelled and reported to its callback as failed, so that a lost
+ * response does not hold its slot forever.
+ */
+public class RequestScheduler {
+
+  /**
+   * The priorities of requests, highest first.
+   */
+  public enum Priority {
+    /**
+     * A region of the view, at the unit it is drawn at.
+     */
+    VISIBLE,
+
+    /**
+     * A region of the view, at another unit that is drawn where the
+     * preferred one is not available.
+     */
+    FALLBACK,
+
+    /**
+     * A region outside of the view.
+     */
+    PREFETCH
+  }
+
+  /**
+   * Sends a request on its way, e.g. to a {@link ZoomDataset2D.DatasetModel}
+   * or a {@link RequestBatcher}.
+   */
+  public interface Target {
+
+    /**
+     * Sends the specified request.
+     *
+     * @return a handle with which the request can be cancelled, or null if
+     *    it cannot be cancelled.
+     */
+    RequestHandle send(Request request, Callback callback);
+  }
+
+  /**
+   * A request that has been submitted to the scheduler.
+   */
+  public final class ScheduledRequest implements RequestHandle {
+    private final Target target;
+    private final Request request;
+    private final StreamingCallback callback;
+    private final int sequence;
+    private Priority priority;
+    private RequestHandle handle;
+    private boolean sent;
+    private boolean done;
+    private boolean cancelled;
+
+    /**
+     * Passes the data on, and frees the slot of the request once it is
+     * complete.
+     */
+    private final StreamingCallback relay = new StreamingCallback() {
+      public void begin() {
+        if (!done) {
+          callback.begin();
+        }
+      }
+
+      public void provideChunk(double[] domain, double[] range) {
+        if (!done) {
+          callback.provideChunk(domain, range);
+        }
+      }
+
+      public void end() {
+        if (complete()) {
+          callback.end();
+        }
+      }
+
+      public void provideData(double[] domain, double[] range) {
+        if (complete()) {
+          callback.provideData(domain, range);
+        }
+      }
+
+      public void onFailure(Throwable caught) {
+        if (complete()) {
+          callback.onFailure(caught);
+        }
+      }
+    };
+
+    ScheduledRequest(Target target, Request request,
+        StreamingCallback callback, Priority priority, int sequence) {
+      this.target = target;
+      this.request = request;
+      this.callback = callback;
+      this.priority = priority;
+      this.sequence = sequence;
+    }
+
+    public Priority getPriority() {
+      return priority;
+    }
+
+    /**
+     * Changes the priority of this request, which only has an effect until
+     * it is sent.
+     */
+    public void setPriority(Priority priority) {
+      ArgChecker.isNotNull(priority, "priority");
+      this.priority = priority;
+    }
+
+    /**
+     * Returns true if this request is waiting to be sent.
+     */
+    public boolean isQueued() {
+      return !sent && !done;
+    }
+
+    public void cancel() {
+      if (done) {
+        return;
+      }
+      done = true;
+      cancelled = true;
+      if (!sent) {
+        queue.remove(this);
+        return;
+      }
+      release();
+      if (handle != null) {
+        handle.cancel();
+      }
+    }
+
+    private boolean complete() {
+      if (done) {
+        return false;
+      }
+      done = true;
+      release();
+      return true;
+    }
+
+    /**
+     * Cancels this request if it is still outstanding once its deadline
+     * has passed, and reports it as failed.
+     */
+    private void expire(int timeoutMillis) {
+      if (!complete()) {
+        return;
+      }
+      if (handle != null) {
+        handle.cancel();
+      }
+      callback.onFailure(new IllegalStateException("request timed out after "
+          + timeoutMillis + " ms"));
+    }
+  }
+
+  public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+  public static final int DEFAULT_TIMEOUT = 30000;
+
+  private final TaskScheduler scheduler;
+
+  private int maxInFlight;
+
+  private int timeoutMillis = DEFAULT_TIMEOUT;
+
+  private int numInFlight;
+
+  private int nextSequence;
+
+  private final List<ScheduledRequest> queue =
+      new ArrayList<ScheduledRequest>();
+
+  private boolean dispatchScheduled;
+
+  private final TaskScheduler.IncrementalTask dispatchTask =
+      new TaskScheduler.IncrementalTask() {
+        public boolean execute() {
+          dispatchScheduled = false;
+          dispatch();
+          return false;
+        }
+      };
+
+  public RequestScheduler(TaskScheduler scheduler) {
+    this(DEFAULT_MAX_IN_FLIGHT, scheduler);
+  }
+
+  /**
+   * @param scheduler - runs the task that sends the queued requests once
+   *    the current frame is done.
+   */
+  public RequestScheduler(int maxInFlight, TaskScheduler scheduler) {
+    ArgChecker.isGT(maxInFlight, 0, "maxInFlight");
+    ArgChecker.isNotNull(scheduler, "scheduler");
+    this.maxInFlight = maxInFlight;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Returns the maximum number of requests that are outstanding at a
+   * time.
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public void setMaxInFlight(int maxInFlight) {
+    ArgChecker.isGT(maxInFlight, 0, "maxInFlight");
+    this.maxInFlight = maxInFlight;
+    scheduleDispatch();
+  }
+
+  /**
+   * Returns the time (in ms) after which a request that has been sent and
+   * has not completed is cancelled and reported as failed, or 0 if
+   * requests never time out.
+   */
+  public int getTimeout() {
+    return timeoutMillis;
+  }
+
+  /**
+   * Sets the time (in ms) after which a request that has been sent and has
+   * not completed is cancelled and reported as failed; 0 disables the
+   * deadline.  Applies to the requests sent from now on.
+   */
+  public void setTimeout(int timeoutMillis) {
+    ArgChecker.isNonNegative(timeoutMillis, "timeoutMillis");
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Returns the number of requests that have been sent and have not
+   * completed yet.
+   */
+  public int getNumInFlight() {
+    return numInFlight;
+  }
+
+  /**
+   * Returns the number of requests waiting to be sent.
+   */
+  public int getNumQueued() {
+    return queue.size();
+  }
+
+  /**
+   * Queues a request, which is sent to <tt>target</tt> when its turn
+   * comes.
+   *
+   * @return the queued request, with which it can be reprioritized or
+   *    cancelled.
+   */
+  public ScheduledRequest submit(Target target, Request request,
+      StreamingCallback callback, Priority priority) {
+    ArgChecker.isNotNull(target, "target");
+    ArgChecker.isNotNull(request, "request");
+    ArgChecker.isNotNull(callback, "callback");
+    ArgChecker.isNotNull(priority, "priority");
+    ScheduledRequest scheduled = new ScheduledRequest(target, request,
+        callback, priority, nextSequence++);
+    queue.add(scheduled);
+    scheduleDispatch();
+    return scheduled;
+  }
+
+  /**
+   * Sends queued requests, highest priority first, while there is room
+   * for them.
+   */
+  public void dispatch() {
+    while (numInFlight < maxInFlight && !queue.isEmpty()) {
+      ScheduledRequest next = queue.remove(findNext());
+      next.sent = true;
+      numInFlight++;
+      RequestHandle handle = next.target.send(next.request, next.relay);
+      if (!next.done) {
+        next.handle = handle;
+        if (timeoutMillis > 0) {
+          scheduleDeadline(next, timeoutMillis);
+        }
+      } else if (next.cancelled && handle != null) {
+        // Cancelled from a callback before the handle was known.
+        handle.cancel();
+      }
+    }
+  }
+
+  private void scheduleDeadline(final ScheduledRequest request,
+      final int timeoutMillis) {
+    scheduler.scheduleDelayed(new TaskScheduler.IncrementalTask() {
+      public boolean execute() {
+        request.expire(timeoutMillis);
+        return false;
+      }
+    }, timeoutMillis);
+  }
+
+  /**
+   * Returns the index of the queued request to send next.
+   */
+  private int findNext() {
+    int best = 0;
+    for (int i = 1; i < queue.size(); i++) {
+      ScheduledRequest candidate = queue.get(i);
+      ScheduledRequest current = queue.get(best);
+      int cmp = candidate.priority.compareTo(current.priority);
+      if (cmp < 0 || (cmp == 0 && candidate.sequence < current.sequence)) {
+        best = i;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Frees the slot of a request that has completed or been cancelled.
+   */
+  private void release() {
+    numInFlight--;
+    scheduleDispatch();
+  }
+
+  private void scheduleDispatch() {
+    if (!dispatchScheduled && !queue.isEmpty()) {
+      dispatchScheduled = true;
+      scheduler.scheduleIncremental(dispatchTask);
+    }
+  }
+}
@@ -0,0 +1,306 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.Dataset;
+import org.gwt.speedchart.client.MutableDataset;
+import org.gwt.speedchart.client.data.Mutation.AppendMutation;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.Array1D;
+import org.gwt.speedchart.client.util.CircularArray1D;
+import org.gwt.speedchart.client.util.Interval;
+import org.gwt.speedchart.client.util.MathUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appendable dataset with bounded retention, for long-running streaming
+ * charts.  At most <tt>maxPoints</tt> raw datapoints are kept, and
+ * optionally only those within <tt>retentionWindow</tt> of the most
+ * recent one; older datapoints are evicted as new ones are appended, so
+ * that memory use stays constant.
+ * <p>
+ * Every mip level is stored in a {@link CircularArray1D}.  Datapoints are
+ * paired the same way as in {@link BinaryMipMapStrategy}, based on their
+ * absolute index since the dataset was created, and a datapoint at level
+ * n+1 is evicted as soon as either datapoint of its pair at level n is.
+ * <p>
+ * Datapoint indexes (e.g. of {@link Mutation#setY(int, double)}) are
+ * relative to the oldest retained datapoint.
+ */
+public class RingBufferDataset2D extends AbstractDataset<Tuple2D>
+    implements MutableDataset<Tuple2D> {
+
+  /**
+   * The datapoints of a single mip level.
+   */
+  private static final class Level {
+    final CircularArray1D domain = new CircularArray1D();
+    final CircularArray1D range = new CircularArray1D();
+
+    /**
+     * The absolute index of the first retained datapoint.
+     */
+    long absStart;
+
+    Level(long absStart) {
+      this.absStart = absStart;
+    }
+
+    long absEnd() {
+      return absStart + domain.size();
+    }
+
+    void removeFirst(int count) {
+      domain.removeFirst(count);
+      range.removeFirst(count);
+      absStart += count;
+    }
+
+    int size() {
+      return domain.size();
+    }
+  }
+
+  private final List<Level> levels = new ArrayList<Level>();
+
+  private final MipMapChain mipMapChain;
+
+  private final BinaryMipMapStrategy mipMapStrategy;
+
+  private final int maxPoints;
+
+  private final double retentionWindow;
+
+  private List<DatasetListener<Tuple2D>> listeners =
+      new ArrayList<DatasetListener<Tuple2D>>();
+
+  public RingBufferDataset2D(double[] domain, double[] range, int maxPoints) {
+    this(domain, range, maxPoints, 0, BinaryMipMapStrategy.MEAN);
+  }
+
+  /**
+   * @param domain - the initial domain values; at least one.
+   * @param range - the initial range values.
+   * @param maxPoints - the maximum number of raw datapoints to retain.
+   * @param retentionWindow - if greater than 0, datapoints whose domain
+   *    value is more than <tt>retentionWindow</tt> older than the most
+   *    recent one are evicted.
+   * @param mms - must be a {@link BinaryMipMapStrategy}.
+   */
+  public RingBufferDataset2D(double[] domain, double[] range, int maxPoints,
+      double retentionWindow, MipMapStrategy mms) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
+    ArgChecker.isGT(domain.length, 0, "domain.length");
+    ArgChecker.isGT(maxPoints, 1, "maxPoints");
+    ArgChecker.isNonNegative(retentionWindow, "retentionWindow");
+    ArgChecker.isNotNull(mms, "mms");
+    if (domain.length != range.length) {
+      throw new IllegalArgumentException("domain.length != range.length: "
+          + domain.length + ", " + range.length);
+    }
+    if (!(mms instanceof BinaryMipMapStrategy)) {
+      throw new IllegalArgumentException(
+          "only BinaryMipMapStrategy is supported: " + mms.getClass().getName());
+    }
+
+    this.maxPoints = maxPoints;
+    this.retentionWindow = retentionWindow;
+    this.mipMapStrategy = (BinaryMipMapStrategy) mms;
+    this.mipMapChain = new MipMapChain(new ArrayList<MipMap>(), 1);
+
+    addLevel(0);
+    for (int i = 0; i < domain.length; i++) {
+      appendXY(domain[i], range[i]);
+    }
+  }
+
+  public void addListener(DatasetListener<Tuple2D> listener) {
+    ArgChecker.isNotNull(listener, "listener");
+    this.listeners.add(listener);
+  }
+
+  public void removeListener(DatasetListener<Tuple2D> listener) {
+    listeners.remove(listener);
+  }
+
+  public Interval getDomainExtrema() {
+    final Array1D domain = levels.get(0).domain;
+    this.domainExtrema.setEndpoints(domain.get(0), domain.getLast());
+    return this.domainExtrema;
+  }
+
+  public MipMapChain getMipMapChain() {
+    return this.mipMapChain;
+  }
+
+  /**
+   * Returns the maximum number of raw datapoints retained.
+   */
+  public int getMaxPoints() {
+    return maxPoints;
+  }
+
+  /**
+   * Returns the domain interval that is retained behind the most recent
+   * datapoint, or 0 if datapoints are only evicted by count.
+   */
+  public double getRetentionWindow() {
+    return retentionWindow;
+  }
+
+  public void mutate(Mutation mutation) {
+    ArgChecker.isNotNull(mutation, "mutation");
+
+    List<Mutation> mutations = new ArrayList<Mutation>();
+    MutableDataset2D.flatten(mutation, mutations);
+
+    double domainStart = Double.POSITIVE_INFINITY;
+    double domainEnd = Double.NEGATIVE_INFINITY;
+    try {
+      for (Mutation m : mutations) {
+        double x = applyMutation(m);
+        domainStart = Math.min(domainStart, x);
+        domainEnd = Math.max(domainEnd, x);
+      }
+    } finally {
+      // Mutations applied before a failing one stay applied.
+      if (domainStart <= domainEnd) {
+        notifyListeners(this, domainStart, domainEnd);
+      }
+    }
+  }
+
+  /**
+   * Applies a single (non-batch) mutation.
+   *
+   * @return the domain value of the mutated datapoint.
+   */
+  private double applyMutation(Mutation mutation) {
+    if (mutation instanceof Mutation.AppendMutation) {
+      AppendMutation m = (Mutation.AppendMutation) mutation;
+      appendXY(m.getX(), m.getY());
+      return m.getX();
+    }
+    else if (mutation instanceof Mutation.RangeMutation) {
+      Mutation.RangeMutation m = (Mutation.RangeMutation) mutation;
+      setRangeValue(m.getPointIndex(), m.getY());
+      return levels.get(0).domain.get(m.getPointIndex());
+    }
+    else {
+      throw new UnsupportedOperationException("mutation of type "
+          + mutation.getClass().getName() + " currently not supported");
+    }
+  }
+
+  private void appendXY(double x, double y) {
+    Level raw = levels.get(0);
+    if (!raw.domain.isEmpty() && x <= raw.domain.getLast()) {
+      throw new IllegalArgumentException(
+          "Insertions not allowed; x was <= domainEnd: " + x + ":"
+              + raw.domain.getLast());
+    }
+
+    appendToLevel(0, raw.absEnd(), x, y);
+    evict(x);
+  }
+
+  /**
+   * Appends the datapoint with the specified absolute index to a level,
+   * and recursively to the next level whenever a pair is completed.
+   */
+  private void appendToLevel(int level, long absIndex, double x, double y) {
+    if (level == levels.size()) {
+      addLevel(absIndex);
+    }
+
+    Level l = levels.get(level);
+    l.domain.add(x);
+    l.range.add(y);
+
+    boolean isPairComplete = (absIndex % 2 == 1) && (absIndex - 1 >= l.absStart);
+    if (isPairComplete) {
+      int pairIndex = l.size() - 2;
+      appendToLevel(level + 1, absIndex / 2, l.domain.get(pairIndex),
+          mipMapStrategy.calcRangeValue(l.range.get(pairIndex), y));
+    }
+  }
+
+  private void addLevel(long absStart) {
+    Level l = new Level(absStart);
+    levels.add(l);
+    mipMapChain.addMipMap(new MipMap(l.domain, new Array1D[] {l.range},
+        levels.size() - 1));
+  }
+
+  /**
+   * Evicts the raw datapoints that exceed the point cap or fall outside of
+   * the retention window, followed by the datapoints at higher levels that
+   * were derived from them.  Levels that become empty are removed.
+   */
+  private void evict(double newestX) {
+    Level raw = levels.get(0);
+    int count = 0;
+    while (raw.size() - count > maxPoints
+        || (retentionWindow > 0 && raw.size() - count > 1
+            && raw.domain.get(count) < newestX - retentionWindow)) {
+      count++;
+    }
+    if (count == 0) {
+      return;
+    }
+    raw.removeFirst(count);
+
+    for (int level = 1; level < levels.size(); level++) {
+      Level prev = levels.get(level - 1);
+      Level l = levels.get(level);
+      long firstRetained = (prev.absStart + 1) / 2;
+      int numEvicted = (int) Math.min(l.size(),
+          Math.max(0, firstRetained - l.absStart));
+      if (numEvicted == 0) {
+        break;
+      }
+      l.removeFirst(numEvicted);
+      if (l.size() == 0) {
+        while (levels.size() > level) {
+          levels.remove(levels.size() - 1);
+        }
+        mipMapChain.truncate(level);
+        break;
+      }
+    }
+  }
+
+  private void setRangeValue(int pointIndex, double y) {
+    Level raw = levels.get(0);
+    if (!MathUtil.isBounded(pointIndex, 0, raw.size() - 1)) {
+      throw new IndexOutOfBoundsException("Invalid datapoint index: "
+          + pointIndex);
+    }
+    raw.range.set(pointIndex, y);
+
+    long absIndex = raw.absStart + pointIndex;
+    for (int level = 0; level < levels.size() - 1; level++) {
+      Level l = levels.get(level);
+      Level next = levels.get(level + 1);
+      long pairStart = absIndex - (absIndex % 2);
+      long parent = absIndex / 2;
+      if (pairStart < l.absStart || pairStart + 1 >= l.absEnd()
+          || parent < next.absStart || parent >= next.absEnd()) {
+        break;
+      }
+      int i = (int) (pairStart - l.absStart);
+      next.range.set((int) (parent - next.absStart),
+          mipMapStrategy.calcRangeValue(l.range.get(i), l.range.get(i + 1)));
+      absIndex = parent;
+    }
+  }
+
+  private void notifyListeners(Dataset<Tuple2D> ds, double domainStart,
+      double domainEnd) {
+    for (DatasetListener<Tuple2D> l : this.listeners) {
+      l.onDatasetChanged(ds, domainStart, domainEnd);
+    }
+  }
+}
@@ -0,0 +1,301 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.DoubleBits;
+
+/**
+ * Streaming decoder of the format written by {@link SeriesEncoder}.  The
+ * encoded bytes are passed to {@link #feed(byte[], int, int)} as they
+ * arrive, in pieces of any size, and each chunk is decoded straight into
+ * the domain and range arrays as soon as all of its bytes are there.
+ * <p>
+ * The arrays are allocated once the header has arrived, at the total
+ * number of datapoints, so that once the stream is complete they can be
+ * passed on (e.g. to {@link ZoomDataset2D.Callback#provideData}) without
+ * copying.
+ */
+public final class SeriesDecoder {
+
+  /**
+   * Reads a byte array a bit at a time, most significant bit first, up to
+   * a limit.
+   */
+  private static final class BitReader {
+    private final byte[] bytes;
+    private final int limit;
+    private int pos;
+    private int bitPos;
+
+    /**
+     * @param limit - the position following the last byte that may be
+     *    read.
+     */
+    BitReader(byte[] bytes, int pos, int limit) {
+      this.bytes = bytes;
+      this.pos = pos;
+      this.limit = limit;
+    }
+
+    int readBit() {
+      checkLimit();
+      final int bit = (bytes[pos] >>> (7 - bitPos)) & 1;
+      if (++bitPos == 8) {
+        bitPos = 0;
+        pos++;
+      }
+      return bit;
+    }
+
+    long readBits(int numBits) {
+      long value = 0;
+      while (numBits > 0) {
+        checkLimit();
+        final int avail = 8 - bitPos;
+        final int take = Math.min(avail, numBits);
+        final int bits = ((bytes[pos] & 0xff) >>> (avail - take))
+            & ((1 << take) - 1);
+        value = (value << take) | bits;
+        numBits -= take;
+        bitPos += take;
+        if (bitPos == 8) {
+          bitPos = 0;
+          pos++;
+        }
+      }
+      return value;
+    }
+
+    private void checkLimit() {
+      if (pos >= limit) {
+        throw new IllegalArgumentException("chunk overruns its length");
+      }
+    }
+  }
+
+  /**
+   * The bytes received but not decoded yet, at <tt>[0, size)</tt>.
+   */
+  private byte[] buffer = new byte[256];
+
+  private int size;
+
+  private final int maxDataPoints;
+
+  private double[] domain;
+
+  private double[] range;
+
+  private int numDecoded;
+
+  private boolean complete;
+
+  /**
+   * The position following the varint last read by {@link #readVarint}.
+   */
+  private int varintEnd;
+
+  public SeriesDecoder() {
+    this(Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxDataPoints - the largest number of datapoints accepted, so
+   *    that a malformed header does not allocate arbitrarily large arrays.
+   */
+  public SeriesDecoder(int maxDataPoints) {
+    ArgChecker.isNonNegative(maxDataPoints, "maxDataPoints");
+    this.maxDataPoints = maxDataPoints;
+  }
+
+  /**
+   * Decodes as much of the stream as has arrived, with the specified bytes
+   * appended to it.
+   *
+   * @throws IllegalArgumentException if the stream is malformed.
+   * @throws IllegalStateException if the stream is already complete.
+   */
+  public void feed(byte[] data, int offset, int length) {
+    ArgChecker.isNotNull(data, "data");
+    if (complete) {
+      throw new IllegalStateException("stream is complete");
+    }
+    if (size + length > buffer.length) {
+      byte[] grown = new byte[Math.max(size + length, buffer.length * 2)];
+      System.arraycopy(buffer, 0, grown, 0, size);
+      buffer = grown;
+    }
+    System.arraycopy(data, offset, buffer, size, length);
+    size += length;
+    decode();
+  }
+
+  public void feed(byte[] data) {
+    ArgChecker.isNotNull(data, "data");
+    feed(data, 0, data.length);
+  }
+
+  /**
+   * Returns true once the end of the stream has been decoded.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Returns the number of datapoints decoded so far, which are at the
+   * start of {@link #getDomain()} and {@link #getRange()}.
+   */
+  public int getNumDecoded() {
+    return numDecoded;
+  }
+
+  /**
+   * Returns the array of domain values, or null if the header has not
+   * arrived yet.
+   */
+  public double[] getDomain() {
+    return domain;
+  }
+
+  /**
+   * Returns the array of range values, or null if the header has not
+   * arrived yet.
+   */
+  public double[] getRange() {
+    return range;
+  }
+
+  private void decode() {
+    int pos = 0;
+    if (domain == null) {
+      if (size < 1) {
+        return;
+      }
+      if (buffer[0] != SeriesEncoder.VERSION) {
+        throw new IllegalArgumentException("unsupported version: "
+            + buffer[0]);
+      }
+      long total = readVarint(1);
+      if (total < 0) {
+        return;
+      }
+      if (total > maxDataPoints) {
+        throw new IllegalArgumentException("stream of " + total
+            + " datapoints exceeds the maximum of " + maxDataPoints);
+      }
+      domain = new double[(int) total];
+      range = new double[(int) total];
+      pos = varintEnd;
+    }
+
+    while (!complete) {
+      long numPoints = readVarint(pos);
+      if (numPoints < 0) {
+        break;
+      }
+      if (numPoints == 0) {
+        if (numDecoded != domain.length) {
+          throw new IllegalArgumentException("stream ended after "
+              + numDecoded + " of " + domain.length + " datapoints");
+        }
+        complete = true;
+        pos = varintEnd;
+        break;
+      }
+      long numBytes = readVarint(varintEnd);
+      if (numBytes < 0 || size - varintEnd < numBytes) {
+        if (numBytes > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("chunk of " + numBytes
+              + " bytes is too long");
+        }
+        break;
+      }
+      if (numPoints > domain.length - numDecoded) {
+        throw new IllegalArgumentException("chunk of " + numPoints
+            + " datapoints exceeds total of " + domain.length);
+      }
+      final int chunkEnd = varintEnd + (int) numBytes;
+      readChunk(new BitReader(buffer, varintEnd, chunkEnd), numDecoded,
+          numDecoded + (int) numPoints);
+      numDecoded += (int) numPoints;
+      pos = chunkEnd;
+    }
+
+    System.arraycopy(buffer, pos, buffer, 0, size - pos);
+    size -= pos;
+  }
+
+  /**
+   * Reads an unsigned varint from the buffer.
+   *
+   * @return the value, or -1 if the varint has not fully arrived.
+   */
+  private long readVarint(int pos) {
+    long value = 0;
+    int shift = 0;
+    while (pos < size) {
+      final int b = buffer[pos++] & 0xff;
+      value |= (long) (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        varintEnd = pos;
+        return value;
+      }
+      shift += 7;
+      if (shift > 28) {
+        throw new IllegalArgumentException("varint too long");
+      }
+    }
+    return -1;
+  }
+
+  private void readChunk(BitReader in, int start, int end) {
+    if (in.readBit() == 0) {
+      readDeltaOfDeltas(in, domain, start, end);
+    } else {
+      readXors(in, domain, start, end);
+    }
+    readXors(in, range, start, end);
+  }
+
+  private static void readDeltaOfDeltas(BitReader in, double[] values,
+      int start, int end) {
+    long value = in.readBits(64);
+    values[start] = value;
+    long delta = 0;
+    for (int i = start + 1; i < end; i++) {
+      long zigzag;
+      if (in.readBit() == 0) {
+        zigzag = 0;
+      } else if (in.readBit() == 0) {
+        zigzag = in.readBits(7);
+      } else if (in.readBit() == 0) {
+        zigzag = in.readBits(12);
+      } else if (in.readBit() == 0) {
+        zigzag = in.readBits(20);
+      } else {
+        zigzag = in.readBits(64);
+      }
+      delta += (zigzag >>> 1) ^ -(zigzag & 1);
+      value += delta;
+      values[i] = value;
+    }
+  }
+
+  private static void readXors(BitReader in, double[] values, int start,
+      int end) {
+    long bits = in.readBits(64);
+    values[start] = DoubleBits.longBitsToDouble(bits);
+    int leading = 0;
+    int trailing = 0;
+    for (int i = start + 1; i < end; i++) {
+      if (in.readBit() != 0) {
+        if (in.readBit() != 0) {
+          leading = (int) in.readBits(6);
+          trailing = 64 - leading - ((int) in.readBits(6) + 1);
+        }
+        bits ^= in.readBits(64 - leading - trailing) << trailing;
+      }
+      values[i] = DoubleBits.longBitsToDouble(bits);
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.DoubleBits;
+
+/**
+ * Encodes a series of (x, y) datapoints in a compact binary format, which
+ * is decoded by {@link SeriesDecoder}.  The format is:
+ * <pre>
+ *   stream  := VERSION totalPoints chunk* 0
+ *   chunk   := numPoints numBytes payload
+ * </pre>
+ * where the counts are unsigned varints (7 bits per byte, least
+ * significant group first, high bit set on all but the last byte).  Each
+ * chunk is decoded on its own, so that a decoder can fill in the
+ * datapoints as the chunks arrive.
+ * <p>
+ * The payload is a bit stream, most significant bit first and padded to a
+ * byte.  The first bit selects the encoding of the domain values:
+ * <ul>
+ * <li>0: integers (such as timestamps in ms), as delta-of-deltas.  The
+ *   first value is written in 64 bits, and each following one as the
+ *   zigzag-encoded difference between its delta and the previous delta
+ *   (which is 0 for the first delta): '0' if it is 0, otherwise '10',
+ *   '110' or '1110' followed by 7, 12 or 20 bits, or '1111' followed by 64
+ *   bits.  A regularly sampled series costs a bit per datapoint.
+ * <li>1: arbitrary doubles, XOR-encoded like the range values.
+ * </ul>
+ * The range values follow the domain values.  The first value is written
+ * as its 64 bits, and each following one as the XOR of its bits with those
+ * of the previous value: '0' if they are equal; '10' followed by the bits
+ * of the XOR within the window of the previous XOR, if they fit; otherwise
+ * '11', 6 bits of leading zeros, 6 bits of window length minus one, and
+ * the bits within the window.
+ */
+public final class SeriesEncoder {
+
+  public static final int VERSION = 1;
+
+  public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+  /**
+   * The largest integer up to which every integer is a double.
+   */
+  private static final double MAX_EXACT_INTEGER = 9007199254740992.0;
+
+  /**
+   * Growable buffer of bytes, also written to a bit at a time.
+   */
+  private static final class ByteBuffer {
+    byte[] bytes = new byte[256];
+    int size;
+    int bitPos;
+
+    void writeByte(int b) {
+      if (size == bytes.length) {
+        byte[] grown = new byte[bytes.length * 2];
+        System.arraycopy(bytes, 0, grown, 0, size);
+        bytes = grown;
+      }
+      bytes[size++] = (byte) b;
+    }
+
+    void writeVarint(int value) {
+      while ((value & ~0x7f) != 0) {
+        writeByte((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      writeByte(value);
+    }
+
+    void writeBytes(ByteBuffer other) {
+      for (int i = 0; i < other.size; i++) {
+        writeByte(other.bytes[i]);
+      }
+    }
+
+    /**
+     * Writes the <tt>numBits</tt> low bits of value, most significant
+     * first.
+     */
+    void writeBits(long value, int numBits) {
+      while (numBits > 0) {
+        if (bitPos == 0) {
+          writeByte(0);
+        }
+        final int take = Math.min(8 - bitPos, numBits);
+        final int bits = (int) (value >>> (numBits - take)) & ((1 << take) - 1);
+        bytes[size - 1] |= bits << (8 - bitPos - take);
+        numBits -= take;
+        bitPos = (bitPos + take) & 7;
+      }
+    }
+
+    void clear() {
+      size = 0;
+      bitPos = 0;
+    }
+
+    byte[] toArray() {
+      byte[] a = new byte[size];
+      System.arraycopy(bytes, 0, a, 0, size);
+      return a;
+    }
+  }
+
+  private SeriesEncoder() {
+  }
+
+  /**
+   * Encodes the specified datapoints in chunks of
+   * {@link #DEFAULT_CHUNK_SIZE}.
+   */
+  public static byte[] encode(double[] domain, double[] range) {
+    return encode(domain, range, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Encodes the specified datapoints in chunks of <tt>chunkSize</tt>
+   * datapoints.
+   */
+  public static byte[] encode(double[] domain, double[] range,
+      int chunkSize) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
+    ArgChecker.isGT(chunkSize, 0, "chunkSize");
+    if (domain.length != range.length) {
+      throw new IllegalArgumentException("domain.length != range.length: "
+          + domain.length + ", " + range.length);
+    }
+
+    ByteBuffer out = new ByteBuffer();
+    ByteBuffer payload = new ByteBuffer();
+    out.writeByte(VERSION);
+    out.writeVarint(domain.length);
+    for (int start = 0; start < domain.length; start += chunkSize) {
+      final int end = Math.min(domain.length, start + chunkSize);
+      payload.clear();
+      writeChunk(domain, range, start, end, payload);
+      out.writeVarint(end - start);
+      out.writeVarint(payload.size);
+      out.writeBytes(payload);
+    }
+    out.writeVarint(0);
+    return out.toArray();
+  }
+
+  private static void writeChunk(double[] domain, double[] range, int start,
+      int end, ByteBuffer out) {
+    if (isIntegral(domain, start, end)) {
+      out.writeBits(0, 1);
+      writeDeltaOfDeltas(domain, start, end, out);
+    } else {
+      out.writeBits(1, 1);
+      writeXors(domain, start, end, out);
+    }
+    writeXors(range, start, end, out);
+  }
+
+  /**
+   * Returns true if the values are integers that survive the round trip
+   * through a long, which -0 does not.
+   */
+  private static boolean isIntegral(double[] values, int start, int end) {
+    for (int i = start; i < end; i++) {
+      final double v = values[i];
+      if (!(Math.abs(v) <= MAX_EXACT_INTEGER) || v != Math.floor(v)
+          || (v == 0 && 1 / v < 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void writeDeltaOfDeltas(double[] values, int start,
+      int end, ByteBuffer out) {
+    long prev = (long) values[start];
+    out.writeBits(prev, 64);
+    long prevDelta = 0;
+    for (int i = start + 1; i < end; i++) {
+      final long value = (long) values[i];
+      final long delta = value - prev;
+      final long dod = delta - prevDelta;
+      final long zigzag = (dod << 1) ^ (dod >> 63);
+      if (zigzag == 0) {
+        out.writeBits(0, 1);
+      } else if ((zigzag >>> 7) == 0) {
+        out.writeBits(0x2, 2);
+        out.writeBits(zigzag, 7);
+      } else if ((zigzag >>> 12) == 0) {
+        out.writeBits(0x6, 3);
+        out.writeBits(zigzag, 12);
+      } else if ((zigzag >>> 20) == 0) {
+        out.writeBits(0xe, 4);
+        out.writeBits(zigzag, 20);
+      } else {
+        out.writeBits(0xf, 4);
+        out.writeBits(zigzag, 64);
+      }
+      prev = value;
+      prevDelta = delta;
+    }
+  }
+
+  private static void writeXors(double[] values, int start, int end,
+      ByteBuffer out) {
+    long prev = DoubleBits.doubleToLongBits(values[start]);
+    out.writeBits(prev, 64);
+    // An empty window, so that the first non-zero XOR describes its own.
+    int prevLeading = 64;
+    int prevTrailing = 64;
+    for (int i = start + 1; i < end; i++) {
+      final long bits = DoubleBits.doubleToLongBits(values[i]);
+      final long xor = bits ^ prev;
+      if (xor == 0) {
+        out.writeBits(0, 1);
+      } else {
+        final int leading = numberOfLeadingZeros(xor);
+        final int trailing = numberOfTrailingZeros(xor);
+        if (leading >= prevLeading && trailing >= prevTrailing) {
+          out.writeBits(0x2, 2);
+          out.writeBits(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+        } else {
+          final int length = 64 - leading - trailing;
+          out.writeBits(0x3, 2);
+          out.writeBits(leading, 6);
+          out.writeBits(length - 1, 6);
+          out.writeBits(xor >>> trailing, length);
+          prevLeading = leading;
+          prevTrailing = trailing;
+        }
+      }
+      prev = bits;
+    }
+  }
+
+  private static int numberOfLeadingZeros(long value) {
+    int n = 0;
+    while (n < 64 && (value & (Long.MIN_VALUE >>> n)) == 0) {
+      n++;
+    }
+    return n;
+  }
+
+  private static int numberOfTrailingZeros(long value) {
+    int n = 0;
+    while (n < 64 && (value & (1L << n)) == 0) {
+      n++;
+    }
+    return n;
+  }
+}
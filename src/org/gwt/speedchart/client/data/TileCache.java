@@ -0,0 +1,141 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the tiles fetched by a tiled {@link ZoomDataset2D}, keyed by
+ * (unitIdx, tileIdx).  When the number of datapoints held exceeds the
+ * capacity, the least recently used tiles are dropped.
+ * <p>
+ * The cache outlives the dataset's own memory budget: a tile whose
+ * datapoints have been evicted from the dataset is served from here when
+ * it is needed again, without another request.
+ */
+final class TileCache {
+
+  /**
+   * The datapoints of a tile, as they were provided.
+   */
+  static final class Tile {
+    final int unitIdx;
+    final long tileIdx;
+    final double[] domain;
+    final double[] range;
+
+    Tile(int unitIdx, long tileIdx, double[] domain, double[] range) {
+      this.unitIdx = unitIdx;
+      this.tileIdx = tileIdx;
+      this.domain = domain;
+      this.range = range;
+    }
+
+    /**
+     * The cost of a tile; empty tiles are cached too, and count as one
+     * datapoint.
+     */
+    int getWeight() {
+      return Math.max(1, domain.length);
+    }
+  }
+
+  private final LinkedHashMap<String, Tile> tiles =
+      new LinkedHashMap<String, Tile>(16, 0.75f, true);
+
+  private int capacity;
+
+  private int numDataPoints;
+
+  TileCache(int capacity) {
+    setCapacity(capacity);
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sets the maximum number of datapoints held; 0 disables the cache.
+   */
+  void setCapacity(int capacity) {
+    ArgChecker.isNonNegative(capacity, "capacity");
+    this.capacity = capacity;
+    trim();
+  }
+
+  int getNumDataPoints() {
+    return numDataPoints;
+  }
+
+  /**
+   * Returns the specified tile, or null if it is not cached.
+   */
+  Tile get(int unitIdx, long tileIdx) {
+    return tiles.get(key(unitIdx, tileIdx));
+  }
+
+  /**
+   * Caches the datapoints of the specified tile.  The arrays are held by
+   * reference, and must not be modified afterwards.
+   */
+  void put(int unitIdx, long tileIdx, double[] domain, double[] range) {
+    Tile tile = new Tile(unitIdx, tileIdx, domain, range);
+    Tile old = tiles.put(key(unitIdx, tileIdx), tile);
+    if (old != null) {
+      numDataPoints -= old.getWeight();
+    }
+    numDataPoints += tile.getWeight();
+    trim();
+  }
+
+  /**
+   * Drops the tiles <tt>[firstTileIdx, lastTileIdx]</tt> of the specified
+   * unit, e.g. since their data is out of date.
+   */
+  void remove(int unitIdx, long firstTileIdx, long lastTileIdx) {
+    if (lastTileIdx - firstTileIdx < tiles.size()) {
+      for (long tileIdx = firstTileIdx; tileIdx <= lastTileIdx; tileIdx++) {
+        Tile tile = tiles.remove(key(unitIdx, tileIdx));
+        if (tile != null) {
+          numDataPoints -= tile.getWeight();
+        }
+      }
+      return;
+    }
+
+    // Fewer tiles are cached than are in the range.
+    Iterator<Tile> it = tiles.values().iterator();
+    while (it.hasNext()) {
+      Tile tile = it.next();
+      if (tile.unitIdx == unitIdx && tile.tileIdx >= firstTileIdx
+          && tile.tileIdx <= lastTileIdx) {
+        numDataPoints -= tile.getWeight();
+        it.remove();
+      }
+    }
+  }
+
+  void clear() {
+    tiles.clear();
+    numDataPoints = 0;
+  }
+
+  /**
+   * Drops the least recently used tiles until the number of datapoints is
+   * within the capacity.
+   */
+  private void trim() {
+    Iterator<Map.Entry<String, Tile>> it = tiles.entrySet().iterator();
+    while (numDataPoints > capacity && it.hasNext()) {
+      numDataPoints -= it.next().getValue().getWeight();
+      it.remove();
+    }
+  }
+
+  private static String key(int unitIdx, long tileIdx) {
+    return unitIdx + ":" + tileIdx;
+  }
+}
@@ -0,0 +1,429 @@
+package org.gwt.speedchart.client.data;
+
+import org.gwt.speedchart.client.util.ArgChecker;
+import org.gwt.speedchart.client.util.Array1D;
+import org.gwt.speedchart.client.util.Array2D;
+import org.gwt.speedchart.client.util.JavaArray1D;
+import org.gwt.speedchart.client.util.JavaArray2D;
+import org.gwt.speedchart.client.util.MathUtil;
+import org.gwt.speedchart.client.util.TimeUnit;
+import org.gwt.speedchart.client.util.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mipmap strategy whose levels are fixed, calendar-aligned time buckets
+ * rather than halvings of the previous level.  Level 0 holds the raw
+ * datapoints, and level n (n > 0) holds one datapoint per bucket of
+ * width <tt>getBucketWidth(n)</tt> milliseconds, whose domain value is
+ * the start of the bucket.
+ * <p>
+ * Bucket edges are the bucket origin plus multiples of the bucket width,
+ * so the bucket that a timestamp belongs to can be found with O(1)
+ * arithmetic, and the levels of two datasets (or of a dataset and the
+ * units of a {@link ZoomDataset2D.DatasetModel}) with the same origin
+ * always line up.  The origin defaults to 0, which aligns days to
+ * midnight UTC; e.g. an origin of -5 hours aligns them to midnight UTC+5.
+ * <p>
+ * Each bucket width must be a multiple of the previous one, so that every
+ * bucket is made up of whole buckets of the level below it.
+ * <p>
+ * For a range tuple of n elements, the chain holds 2n + 1 elements: the
+ * n range values, followed by the n accumulated values of the buckets
+ * (see {@link #accumulate}) and the number of raw datapoints in each
+ * bucket.  At level 0 these all share the raw range arrays.  A datapoint
+ * appended to the chain is folded into the last bucket of each level,
+ * without visiting the other datapoints in it.
+ */
+public abstract class TimeBucketMipMapStrategy implements MipMapStrategy {
+
+  /**
+   * 1 second, 10 seconds, 1 minute, 5 minutes, 1 hour and 1 day.
+   */
+  public static final double[] DEFAULT_BUCKET_WIDTHS = {
+      TimeUnit.SEC.ms(), 10 * TimeUnit.SEC.ms(), TimeUnit.MIN.ms(),
+      5 * TimeUnit.MIN.ms(), TimeUnit.HOUR.ms(), TimeUnit.DAY.ms()};
+
+  public static final TimeBucketMipMapStrategy MEAN =
+      createMean(DEFAULT_BUCKET_WIDTHS, 0);
+
+  public static final TimeBucketMipMapStrategy MAX =
+      createMax(DEFAULT_BUCKET_WIDTHS, 0);
+
+  /**
+   * Returns a strategy whose buckets hold the mean of the raw values within
+   * them, which is calculated from their sum and count.
+   */
+  public static TimeBucketMipMapStrategy createMean(double[] bucketWidths,
+      double bucketOrigin) {
+    return new TimeBucketMipMapStrategy(bucketWidths, bucketOrigin) {
+      protected double accumulate(double acc, double value) {
+        return acc + value;
+      }
+
+      protected double calcRangeValue(double acc, double count) {
+        return acc / count;
+      }
+    };
+  }
+
+  /**
+   * Returns a strategy whose buckets hold the maximum of the raw values
+   * within them.
+   */
+  public static TimeBucketMipMapStrategy createMax(double[] bucketWidths,
+      double bucketOrigin) {
+    return new TimeBucketMipMapStrategy(bucketWidths, bucketOrigin) {
+      protected double accumulate(double acc, double value) {
+        return Math.max(acc, value);
+      }
+    };
+  }
+
+  private final double[] bucketWidths;
+
+  private final double bucketOrigin;
+
+  /**
+   * Equivalent to <tt>TimeBucketMipMapStrategy(bucketWidths, 0)</tt>.
+   */
+  public TimeBucketMipMapStrategy(double[] bucketWidths) {
+    this(bucketWidths, 0);
+  }
+
+  /**
+   * @param bucketWidths - the bucket width in milliseconds of mip levels
+   *    1, 2, 3, ...; in ascending order.
+   * @param bucketOrigin - a timestamp at which a bucket of every level
+   *    starts.
+   */
+  public TimeBucketMipMapStrategy(double[] bucketWidths, double bucketOrigin) {
+    ArgChecker.isNotNull(bucketWidths, "bucketWidths");
+    for (int i = 0; i < bucketWidths.length; i++) {
+      ArgChecker.isGT(bucketWidths[i], 0.0, "bucketWidths[" + i + "]");
+      if (i > 0 && MathUtil.mod(bucketWidths[i], bucketWidths[i - 1]) != 0) {
+        throw new IllegalArgumentException("bucketWidths[" + i
+            + "] is not a multiple of bucketWidths[" + (i - 1) + "]");
+      }
+    }
+    ArgChecker.isNormalDouble(bucketOrigin, "bucketOrigin");
+    this.bucketWidths = Util.copyArray(bucketWidths);
+    this.bucketOrigin = bucketOrigin;
+  }
+
+  /**
+   * Folds a value into the accumulated value of a bucket, e.g. by adding it
+   * to a sum.  The value is either a raw range value or the accumulated
+   * value of a bucket of the level below, so the operation must be
+   * associative.  The accumulated value of a raw datapoint is its range
+   * value.
+   */
+  protected abstract double accumulate(double acc, double value);
+
+  /**
+   * Calculates the range value of a bucket from its accumulated value and
+   * the number of raw datapoints within it.  This implementation returns
+   * <tt>acc</tt>.
+   */
+  protected double calcRangeValue(double acc, double count) {
+    return acc;
+  }
+
+  /**
+   * Returns a copy of the bucket widths of mip levels 1, 2, 3, ...,
+   * suitable as {@link ZoomDataset2D.DatasetModel#getUnits()}.
+   */
+  public double[] getBucketWidths() {
+    return Util.copyArray(bucketWidths);
+  }
+
+  /**
+   * Returns the timestamp at which a bucket of every level starts.
+   */
+  public double getBucketOrigin() {
+    return bucketOrigin;
+  }
+
+  /**
+   * Returns the bucket width of the specified mip level, or 0 for level 0
+   * (the raw datapoints).
+   */
+  public double getBucketWidth(int mipLevel) {
+    ArgChecker.isInRange(mipLevel, 0, bucketWidths.length, "mipLevel");
+    return (mipLevel == 0) ? 0 : bucketWidths[mipLevel - 1];
+  }
+
+  /**
+   * Returns the start of the bucket at the specified mip level that
+   * <tt>x</tt> falls within.
+   */
+  public double getBucketStart(int mipLevel, double x) {
+    final double width = getBucketWidth(mipLevel);
+    return (width == 0) ? x : bucketStart(x, width);
+  }
+
+  /**
+   * Returns the index of the datapoint within <tt>mipMap</tt> that
+   * represents the bucket containing <tt>x</tt>, or -1 if there is no
+   * such bucket.  The index is computed arithmetically whenever there are
+   * no empty buckets before it; otherwise a binary search is made.
+   */
+  public int findBucketIndex(MipMap mipMap, double x) {
+    Array1D domain = mipMap.getDomain();
+    if (domain.isEmpty()) {
+      return -1;
+    }
+
+    final double start = getBucketStart(mipMap.getLevel(), x);
+    final double width = getBucketWidth(mipMap.getLevel());
+    if (width != 0) {
+      double offset = Math.floor((start - domain.get(0)) / width);
+      if (offset >= 0 && offset < domain.size()
+          && domain.get((int) offset) == start) {
+        return (int) offset;
+      }
+    }
+
+    int idx = Util.binarySearch(domain, start);
+    return (domain.get(idx) == start) ? idx : -1;
+  }
+
+  public MipMapChain mipmap(double[] domain, double[] range) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
+
+    List<double[]> rangeTuple1d = new ArrayList<double[]>(1);
+    rangeTuple1d.add(range);
+    return mipmap(domain, rangeTuple1d);
+  }
+
+  public MipMapChain mipmap(double[] domain, List<double[]> range) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
+    ArgChecker.isGT(domain.length, 0, "domain.length");
+    ArgChecker.isGT(range.size(), 0, "range.size()");
+
+    final int numElements = range.size();
+    Array2D[] tuples = new Array2D[2 * numElements + 1];
+    JavaArray1D raw0 = null;
+    for (int t = 0; t < numElements; t++) {
+      JavaArray1D raw = new JavaArray1D(Util.copyArray(range.get(t)));
+      if (raw.size() != domain.length) {
+        throw new IllegalArgumentException("range.get(" + t
+            + ").length != domain.length");
+      }
+      tuples[t] = new RawLevelArray2D(raw, false);
+      tuples[numElements + t] = new RawLevelArray2D(raw, false);
+      if (t == 0) {
+        raw0 = raw;
+      }
+    }
+    tuples[2 * numElements] = new RawLevelArray2D(raw0, true);
+
+    JavaArray2D mipMappedDomain = new JavaArray2D(Util.copyArray(domain));
+    for (int level = 1; level <= bucketWidths.length; level++) {
+      final int childLevel = level - 1;
+      final double width = bucketWidths[level - 1];
+      int bucketIdx = -1;
+      double start = 0;
+      for (int i = 0; i < mipMappedDomain.numColumns(childLevel); i++) {
+        final double childStart = bucketStart(
+            mipMappedDomain.get(childLevel, i), width);
+        if (bucketIdx < 0 || childStart != start) {
+          start = childStart;
+          bucketIdx++;
+          mipMappedDomain.set(level, bucketIdx, start);
+          setBucket(tuples, level, bucketIdx, childLevel, i);
+        } else {
+          foldIntoBucket(tuples, level, bucketIdx, childLevel, i);
+        }
+      }
+    }
+
+    List<Array2D> mipMappedRangeTuples = new ArrayList<Array2D>(tuples.length);
+    for (int t = 0; t < tuples.length; t++) {
+      mipMappedRangeTuples.add(tuples[t]);
+    }
+    return new MipMapChain(mipMappedDomain, mipMappedRangeTuples);
+  }
+
+  /**
+   * Appends the datapoint to the chain.  If the chain has a range tuple
+   * of more than one element, <tt>y</tt> is assigned to all of them.
+   */
+  public void appendXY(double x, double y, MipMapChain mipMapChain) {
+    Array2D domain = mipMapChain.getMipMappedDomain();
+    Array2D[] tuples = mipMapChain.getMipMappedRangeTuples();
+
+    final int pointIndex = domain.numColumns(0);
+    domain.set(0, pointIndex, x);
+    for (int t = 0; t < numElements(tuples); t++) {
+      tuples[t].set(0, pointIndex, y);
+    }
+
+    for (int level = 1; level < domain.numRows(); level++) {
+      appendToLastBucket(domain, tuples, level, x, y, mipMapChain);
+    }
+  }
+
+  /**
+   * Appends the datapoints to the chain.  If the chain has a range tuple
+   * of more than one element, <tt>ys[i]</tt> is assigned to all of them.
+   */
+  public void appendBatch(double[] xs, double[] ys, MipMapChain mipMapChain) {
+    BinaryMipMapStrategy.checkBatch(xs, ys);
+    if (xs.length == 0) {
+      return;
+    }
+
+    Array2D domain = mipMapChain.getMipMappedDomain();
+    Array2D[] tuples = mipMapChain.getMipMappedRangeTuples();
+
+    BinaryMipMapStrategy.appendToRow0(xs, domain);
+    for (int t = 0; t < numElements(tuples); t++) {
+      BinaryMipMapStrategy.appendToRow0(ys, tuples[t]);
+    }
+
+    for (int level = 1; level < domain.numRows(); level++) {
+      for (int i = 0; i < xs.length; i++) {
+        appendToLastBucket(domain, tuples, level, xs[i], ys[i], mipMapChain);
+      }
+    }
+  }
+
+  public void setRangeValue(int pointIndex, double y, MipMapChain mipMapChain) {
+    Array2D domain = mipMapChain.getMipMappedDomain();
+    Array2D[] tuples = mipMapChain.getMipMappedRangeTuples();
+    if (!MathUtil.isBounded(pointIndex, 0, domain.numColumns(0) - 1)) {
+      throw new IndexOutOfBoundsException("Invalid datapoint index: "
+          + pointIndex);
+    }
+
+    tuples[0].set(0, pointIndex, y);
+    mipMapChain.rangeValueChanged(0, pointIndex);
+
+    int childIdx = pointIndex;
+    for (int level = 1; level < domain.numRows(); level++) {
+      final double start = bucketStart(domain.get(level - 1, childIdx),
+          bucketWidths[level - 1]);
+      final int bucketIdx = findBucketIndex(mipMapChain.getMipMap(level),
+          start);
+      updateBucket(domain, tuples, level, bucketIdx, start, childIdx,
+          mipMapChain);
+      childIdx = bucketIdx;
+    }
+  }
+
+  /**
+   * Folds the raw datapoint <tt>(x, y)</tt>, which has just been appended
+   * to level 0, into the last bucket of the specified level, or starts a
+   * new bucket with it.
+   */
+  private void appendToLastBucket(Array2D domain, Array2D[] tuples,
+      int level, double x, double y, MipMapChain mipMapChain) {
+    final int numElements = numElements(tuples);
+    final Array2D count = tuples[2 * numElements];
+    final double start = bucketStart(x, bucketWidths[level - 1]);
+    final int lastIdx = domain.numColumns(level) - 1;
+
+    if (domain.get(level, lastIdx) == start) {
+      final double n = count.get(level, lastIdx) + 1;
+      count.set(level, lastIdx, n);
+      for (int t = 0; t < numElements; t++) {
+        Array2D acc = tuples[numElements + t];
+        final double value = accumulate(acc.get(level, lastIdx), y);
+        acc.set(level, lastIdx, value);
+        tuples[t].set(level, lastIdx, calcRangeValue(value, n));
+      }
+      mipMapChain.rangeValueChanged(level, lastIdx);
+    } else {
+      final int bucketIdx = lastIdx + 1;
+      domain.set(level, bucketIdx, start);
+      count.set(level, bucketIdx, 1);
+      for (int t = 0; t < numElements; t++) {
+        tuples[numElements + t].set(level, bucketIdx, y);
+        tuples[t].set(level, bucketIdx, calcRangeValue(y, 1));
+      }
+    }
+  }
+
+  /**
+   * Recalculates the datapoint at <tt>bucketIdx</tt> of the specified
+   * level from the datapoints of the level below it that fall within the
+   * bucket starting at <tt>start</tt>.  <tt>childIdx</tt> is the index of
+   * any datapoint within the bucket.
+   */
+  private void updateBucket(Array2D domain, Array2D[] tuples, int level,
+      int bucketIdx, double start, int childIdx, MipMapChain mipMapChain) {
+    final int childLevel = level - 1;
+    final double width = bucketWidths[level - 1];
+    final int numChildren = domain.numColumns(childLevel);
+
+    int firstChild = childIdx;
+    while (firstChild > 0
+        && bucketStart(domain.get(childLevel, firstChild - 1), width) == start) {
+      firstChild--;
+    }
+
+    domain.set(level, bucketIdx, start);
+    setBucket(tuples, level, bucketIdx, childLevel, firstChild);
+    for (int child = firstChild + 1; child < numChildren
+        && bucketStart(domain.get(childLevel, child), width) == start;
+        child++) {
+      foldIntoBucket(tuples, level, bucketIdx, childLevel, child);
+    }
+    mipMapChain.rangeValueChanged(level, bucketIdx);
+  }
+
+  /**
+   * Assigns the bucket at <tt>bucketIdx</tt> of the specified level from
+   * its first child.
+   */
+  private void setBucket(Array2D[] tuples, int level, int bucketIdx,
+      int childLevel, int child) {
+    final int numElements = numElements(tuples);
+    final Array2D count = tuples[2 * numElements];
+    final double n = count.get(childLevel, child);
+    count.set(level, bucketIdx, n);
+    for (int t = 0; t < numElements; t++) {
+      Array2D acc = tuples[numElements + t];
+      final double value = acc.get(childLevel, child);
+      acc.set(level, bucketIdx, value);
+      tuples[t].set(level, bucketIdx, calcRangeValue(value, n));
+    }
+  }
+
+  /**
+   * Folds a child into the bucket at <tt>bucketIdx</tt> of the specified
+   * level.
+   */
+  private void foldIntoBucket(Array2D[] tuples, int level, int bucketIdx,
+      int childLevel, int child) {
+    final int numElements = numElements(tuples);
+    final Array2D count = tuples[2 * numElements];
+    final double n = count.get(level, bucketIdx)
+        + count.get(childLevel, child);
+    count.set(level, bucketIdx, n);
+    for (int t = 0; t < numElements; t++) {
+      Array2D acc = tuples[numElements + t];
+      final double value = accumulate(acc.get(level, bucketIdx),
+          acc.get(childLevel, child));
+      acc.set(level, bucketIdx, value);
+      tuples[t].set(level, bucketIdx, calcRangeValue(value, n));
+    }
+  }
+
+  /**
+   * Returns the number of range values in each range tuple of the chain,
+   * without the accumulated values and the count.
+   */
+  private static int numElements(Array2D[] tuples) {
+    return (tuples.length - 1) / 2;
+  }
+
+  private double bucketStart(double x, double width) {
+    return bucketOrigin + Math.floor((x - bucketOrigin) / width) * width;
+  }
+
+}
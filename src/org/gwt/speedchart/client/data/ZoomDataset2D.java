@@ -3,16 +3,25 @@ package org.gwt.speedchart.client.data;
 import org.gwt.speedchart.client.Dataset;
 import org.gwt.speedchart.client.MutableDataset;
 import org.gwt.speedchart.client.data.Mutation.AppendMutation;
+import org.gwt.speedchart.client.data.RequestScheduler.Priority;
 import org.gwt.speedchart.client.data.tuple.Tuple2D;
 import org.gwt.speedchart.client.util.ArgChecker;
 import org.gwt.speedchart.client.util.Interval;
 import org.gwt.speedchart.client.util.IntervalSet;
 import org.gwt.speedchart.client.util.Array1D;
+import org.gwt.speedchart.client.util.GwtTaskScheduler;
 import org.gwt.speedchart.client.util.JavaArray1D;
+import org.gwt.speedchart.client.util.PagedSeries;
+import org.gwt.speedchart.client.util.TaskScheduler;
 import org.gwt.speedchart.client.util.Util;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.allen_sauer.gwt.log.client.Log;
 
@@ -29,13 +38,37 @@ public class ZoomDataset2D extends AbstractDataset<Tuple2D> {
    
   public static final class Request {
 
+    /**
+     * The tile index of a request that is not tile-aligned.
+     */
+    public static final long NO_TILE = Long.MIN_VALUE;
+
     private Interval region;
 
     private int unitIdx;
 
+    private String seriesId;
+
+    private long tileIdx;
+
     public Request(Interval region, int unitIdx) {
+      this(region, unitIdx, null);
+    }
+
+    public Request(Interval region, int unitIdx, String seriesId) {
+      this(region, unitIdx, NO_TILE, seriesId);
+    }
+
+    /**
+     * Constructs the request of a tile, whose region is
+     * <tt>[tileIdx * tileWidth, (tileIdx + 1) * tileWidth]</tt>.
+     */
+    public Request(Interval region, int unitIdx, long tileIdx,
+        String seriesId) {
       this.region = region;
       this.unitIdx = unitIdx;
+      this.tileIdx = tileIdx;
+      this.seriesId = seriesId;
     }
 
     public Interval getRegion() {
@@ -46,6 +79,32 @@ public class ZoomDataset2D extends AbstractDataset<Tuple2D> {
       return unitIdx;
     }
 
+    /**
+     * Returns the identifier of the dataset that made this request, which
+     * tells requests of datasets that share a {@link DatasetModel} apart;
+     * may be null.
+     */
+    public String getSeriesId() {
+      return seriesId;
+    }
+
+    /**
+     * Returns true if this is the request of a tile, in which case
+     * (unitIdx, tileIdx) identifies it and is the same every time the tile
+     * is requested.
+     */
+    public boolean isTile() {
+      return tileIdx != NO_TILE;
+    }
+
+    /**
+     * Returns the index of the requested tile within its unit, or
+     * {@link #NO_TILE} if this is not the request of a tile.
+     */
+    public long getTileIdx() {
+      return tileIdx;
+    }
+
   }
 
   /**
@@ -54,31 +113,389 @@ public class ZoomDataset2D extends AbstractDataset<Tuple2D> {
    */
   public interface Callback {
     void provideData(double[] domain, double[] range);
+
+    /**
+     * Reports that the data of a request could not be provided.  The
+     * region is requested again once the visible window moves.
+     */
+    void onFailure(Throwable caught);
+  }
+
+  /**
+   * {@link Callback} to which the data of a request can also be provided
+   * a chunk at a time as it arrives: {@link #begin()}, then
+   * {@link #provideChunk} for each chunk, in ascending domain order, then
+   * {@link #end()}.  Each chunk is drawn as soon as it is provided.  The
+   * callbacks that {@link ZoomDataset2D} passes to
+   * {@link DatasetModel#requestData} are streaming callbacks.
+   */
+  public interface StreamingCallback extends Callback {
+
+    /**
+     * Reports that the data of the request is about to be streamed.
+     */
+    void begin();
+
+    /**
+     * Provides the next chunk of datapoints, whose domain values must
+     * follow those of the previous chunks.
+     */
+    void provideChunk(double[] domain, double[] range);
+
+    /**
+     * Reports that all of the data of the request has been provided.  If
+     * {@link #onFailure} is called instead, the chunks that have been
+     * provided are kept, and only the rest of the region is requested
+     * again.
+     */
+    void end();
+  }
+
+  /**
+   * Handle of an outstanding request, returned by
+   * {@link CancellableDatasetModel#requestCancellableData}.
+   */
+  public interface RequestHandle {
+
+    /**
+     * Cancels the request.  The callback of a cancelled request is
+     * ignored if it is still called.
+     */
+    void cancel();
   }
 
   public interface DatasetModel {
 
     double[] getUnits();
 
+    /**
+     * Requests the data of the specified region and unit, which is passed
+     * to the callback when it is available, or streamed to it if it is a
+     * {@link StreamingCallback}.
+     */
     void requestData(Request request, Callback callback);
 
   }
 
-  private class DelegateCallback implements Callback {
+  /**
+   * {@link DatasetModel} whose requests can be cancelled, e.g. once they
+   * are far from the view.  {@link ZoomDataset2D} sends its requests to
+   * {@link #requestCancellableData} instead of
+   * {@link DatasetModel#requestData}.
+   */
+  public interface CancellableDatasetModel extends DatasetModel {
+
+    /**
+     * Requests the data as {@link DatasetModel#requestData} does.
+     *
+     * @return a handle with which the request can be cancelled, or null if
+     *    this request cannot be cancelled.
+     */
+    RequestHandle requestCancellableData(Request request, Callback callback);
+  }
 
-    int unitIdx;
+  /**
+   * {@link DatasetModel} that can fetch the data of several requests,
+   * possibly of several datasets, in a single round trip.
+   *
+   * @see RequestBatcher
+   */
+  public interface BatchDatasetModel extends DatasetModel {
+
+    /**
+     * Requests the data of all of the specified requests.  The data of
+     * <tt>requests.get(i)</tt> is passed to <tt>callbacks.get(i)</tt>.
+     *
+     * @return the handles of the requests, in the same order, or null if
+     *    they cannot be cancelled.
+     */
+    RequestHandle[] requestData(List<Request> requests,
+        List<Callback> callbacks);
+  }
 
-    public DelegateCallback(int unitIdx) {
-      this.unitIdx = unitIdx;
+  /**
+   * {@link DatasetModel} whose units are not all available across the
+   * whole domain, e.g. because old data has only been kept at a coarse
+   * resolution while recent data is also kept at a fine one.  Each part
+   * of the view is requested at the preferred unit where it is available,
+   * and otherwise at the nearest coarser unit (or failing that, the
+   * nearest finer unit) that is.
+   */
+  public interface AvailabilityDatasetModel extends DatasetModel {
+
+    /**
+     * Returns the regions of the domain for which the specified unit has
+     * data, or null if it has data everywhere.  Called whenever the window
+     * or the loaded data changes, so it should not compute anything.
+     */
+    IntervalSet getAvailability(int unitIdx);
+  }
+
+  private class DelegateCallback implements StreamingCallback {
+
+    final Request request;
+
+    RequestHandle handle;
+
+    /**
+     * The request as queued by the {@link RequestScheduler}, or null if it
+     * was sent straight away.
+     */
+    RequestScheduler.ScheduledRequest scheduled;
+
+    /**
+     * True once the request has completed, failed or been cancelled.
+     */
+    boolean done;
+
+    /**
+     * The end of the part of the region whose chunks have arrived.
+     */
+    double streamedTo;
+
+    /**
+     * The chunks of a streamed tile, which are put in the tile cache once
+     * the tile is complete.
+     */
+    List<double[]> tileDomains, tileRanges;
+
+    public DelegateCallback(Request request) {
+      this.request = request;
+      this.streamedTo = request.getRegion().getStart();
+    }
+
+    public void begin() {
+      if (request.isTile()) {
+        tileDomains = new ArrayList<double[]>();
+        tileRanges = new ArrayList<double[]>();
+      }
+    }
+
+    public void provideChunk(double[] domain, double[] range) {
+      ArgChecker.isNotNull(domain, "domain");
+      ArgChecker.isNotNull(range, "range");
+      if (done || domain.length == 0) {
+        return;
+      }
+      final double end = domain[domain.length - 1];
+      insertData(request.getUnitIdx(), streamedTo, end, domain, range);
+      streamedTo = Math.max(streamedTo, end);
+      if (tileDomains != null) {
+        tileDomains.add(domain);
+        tileRanges.add(range);
+      }
+      notifyListeners(ZoomDataset2D.this, domain[0], end);
+    }
+
+    public void end() {
+      if (done) {
+        return;
+      }
+      finish(this);
+      insertData(request.getUnitIdx(), streamedTo,
+          request.getRegion().getEnd(), EMPTY, EMPTY);
+      if (tileDomains != null && isCacheable(request)) {
+        tileCache.put(request.getUnitIdx(), request.getTileIdx(),
+            concat(tileDomains), concat(tileRanges));
+      }
+      issuePrefetchRequests();
     }
 
     public void provideData(double[] domain, double[] range) {
-      ZoomDataset2D.this.provideData(unitIdx, domain, range);
+      if (done) {
+        return;
+      }
+      finish(this);
+      ZoomDataset2D.this.provideData(request, domain, range);
+      issuePrefetchRequests();
+    }
+
+    public void onFailure(Throwable caught) {
+      if (done) {
+        return;
+      }
+      finish(this);
+      Log.warn("Request " + request.getRegion() + " for unitIdx="
+          + request.getUnitIdx() + " failed", caught);
+      // Chunks that have arrived are kept.
+      units[request.getUnitIdx()].failed.add(streamedTo,
+          request.getRegion().getEnd());
+      issuePrefetchRequests();
+    }
+
+    void cancel() {
+      if (done) {
+        return;
+      }
+      finish(this);
+      if (handle != null) {
+        handle.cancel();
+      }
+      Unit unit = units[request.getUnitIdx()];
+      unit.forget(request.getRegion());
+    }
+  }
+
+  /**
+   * A region of a unit whose data has arrived.
+   */
+  private static final class LoadedRegion {
+    double start;
+    double end;
+
+    LoadedRegion(double start, double end) {
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  /**
+   * A sub-interval of the view that is drawn from the data of a unit.
+   */
+  private static final class Segment {
+    final int unitIdx;
+    final double start;
+    final double end;
+
+    Segment(int unitIdx, double start, double end) {
+      this.unitIdx = unitIdx;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  private static final Comparator<Segment> SEGMENT_ORDER =
+      new Comparator<Segment>() {
+        public int compare(Segment a, Segment b) {
+          return Double.compare(a.start, b.start);
+        }
+      };
+
+  /**
+   * The data that has been requested and loaded for a single unit.
+   */
+  private static final class Unit {
+
+    /**
+     * The regions that have been requested, whether their data has
+     * arrived, is in flight, or failed to arrive.
+     */
+    final IntervalSet requested = new IntervalSet();
+
+    /**
+     * The regions whose data has arrived.
+     */
+    final IntervalSet loaded = new IntervalSet();
+
+    /**
+     * The regions whose request failed; they are not requested again until
+     * the visible window moves.
+     */
+    final IntervalSet failed = new IntervalSet();
+
+    final PagedSeries series = new PagedSeries();
+
+    final MipMap mipMap = new MipMap(series.getDomain(), series.getRange());
+
+    /**
+     * The disjoint regions of {@link #series} that have arrived, in the
+     * order in which they arrived.
+     */
+    final List<LoadedRegion> loadedRegions = new ArrayList<LoadedRegion>();
+
+    /**
+     * The start of the last bucket loaded at the right edge of the domain,
+     * whose value may still change, and the time (in ms) after which it is
+     * requested again; 0 if there is no such bucket.
+     */
+    double tailStart;
+    long tailExpiry;
+
+    /**
+     * The loaded regions that are out of date.  They are drawn until their
+     * data is replaced, and requested again in the meantime.
+     */
+    final IntervalSet stale = new IntervalSet();
+
+    /**
+     * Marks the parts of <tt>region</tt> that have not been loaded, or are
+     * out of date, as not requested, so that they are requested again when
+     * needed.
+     */
+    void forget(Interval region) {
+      IntervalSet notLoaded = loaded.getGaps(region);
+      for (int i = 0; i < notLoaded.size(); i++) {
+        requested.remove(notLoaded.get(i));
+      }
+      for (int i = 0; i < stale.size(); i++) {
+        Interval part = stale.get(i);
+        if (part.getEnd() > region.getStart()
+            && part.getStart() < region.getEnd()) {
+          requested.remove(Math.max(part.getStart(), region.getStart()),
+              Math.min(part.getEnd(), region.getEnd()));
+        }
+      }
     }
   }
 
+  /**
+   * Outstanding requests that are further than this many window lengths
+   * from the visible window are cancelled.
+   */
+  private static final double CANCEL_DISTANCE = 2.0;
+
+  private static final double[] EMPTY = new double[0];
+
+  /**
+   * The default maximum number of datapoints held across all units.
+   */
+  public static final int DEFAULT_MEMORY_BUDGET = 1 << 21;
+
+  /**
+   * The default time (in ms) the window must stay still after an
+   * animation before requests are made.
+   */
+  public static final int DEFAULT_SETTLE_DELAY = 200;
+
+  /**
+   * The default maximum number of datapoints held by the tile cache.
+   */
+  public static final int DEFAULT_TILE_CACHE_CAPACITY = 1 << 20;
+
   private DatasetModel model;
 
+  /**
+   * Batches the requests of this dataset with those of other datasets
+   * sharing the model; null if requests are made one at a time.
+   */
+  private final RequestBatcher batcher;
+
+  /**
+   * Orders the requests of this dataset with those of other datasets
+   * sharing it; null if requests are sent straight away.
+   */
+  private RequestScheduler requestScheduler;
+
+  /**
+   * Sends the requests queued by {@link #requestScheduler}.
+   */
+  private final RequestScheduler.Target requestTarget =
+      new RequestScheduler.Target() {
+        public RequestHandle send(Request request, Callback callback) {
+          if (batcher != null) {
+            return batcher.requestData(request, callback);
+          }
+          if (model instanceof CancellableDatasetModel) {
+            return ((CancellableDatasetModel) model).requestCancellableData(
+                request, callback);
+          }
+          model.requestData(request, callback);
+          return null;
+        }
+      };
+
+  private final String seriesId;
+
   protected double minDomainInterval;
 
   private List<DatasetListener<Tuple2D>> listeners 
@@ -86,30 +503,144 @@ public class ZoomDataset2D extends AbstractDataset<Tuple2D> {
 
   private final Interval domainExtrema;
 
-  private MipMap[] mipMaps;
-
   private final MipMap extremaMipMap;
 
+  /**
+   * The domain of {@link #extremaMipMap}, which grows with the domain.
+   */
+  private final double[] extremaDomain;
+
+  /**
+   * The time (in ms) after which the last bucket at the right edge of the
+   * domain is requested again, or 0 if it never is.
+   */
+  private int tailTimeToLive;
+
   private final double[] unitWidths;
 
   private final int numUnits;
   
-  private final IntervalSet[] intervalSets;
+  private final Unit[] units;
+
+  private int memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+  /**
+   * The loaded regions of all units, and the unit of each, from the least
+   * to the most recently drawn.
+   */
+  private final LinkedHashMap<LoadedRegion, Unit> regionsByUse =
+      new LinkedHashMap<LoadedRegion, Unit>(16, 0.75f, true);
+
+  /**
+   * The domain region most recently asked for.
+   */
+  private final Interval lastView = new Interval(0.0, 0.0);
+
+  private PrefetchPolicy prefetchPolicy;
+
+  /**
+   * True if the window has moved since the prefetch requests were last
+   * worked out.
+   */
+  private boolean prefetchStale;
+
+  /**
+   * Prefetch requests that have not been issued yet, in order.
+   */
+  private final List<Request> prefetchQueue = new ArrayList<Request>();
+
+  /**
+   * The requests whose data has not arrived yet.
+   */
+  private final List<DelegateCallback> inFlight =
+      new ArrayList<DelegateCallback>();
+
+  /**
+   * The width of the tiles, in datapoints of their unit, or 0 if requests
+   * are not tile-aligned.
+   */
+  private int tileSize;
+
+  private final TileCache tileCache =
+      new TileCache(DEFAULT_TILE_CACHE_CAPACITY);
+
+  private TaskScheduler scheduler = GwtTaskScheduler.INSTANCE;
+
+  private int settleDelay = DEFAULT_SETTLE_DELAY;
+
+  /**
+   * True while a zoom animation is running.
+   */
+  private boolean animating;
+
+  /**
+   * True from the end of an animation until the settle delay has elapsed.
+   */
+  private boolean settling;
+
+  /**
+   * Incremented whenever an animation starts or stops, so that a settle
+   * task scheduled for an earlier animation does nothing.
+   */
+  private int settleGeneration;
+
+  /**
+   * Incremented whenever the loaded data or the domain changes, so that the
+   * cached plan and drawn region are rebuilt.
+   */
+  private int loadedVersion;
+
+  // The plan made by planUnits() for the last settled window, which is
+  // reused until the window or loadedVersion changes.
+  private final Interval plannedRegion = new Interval(0.0, 0.0);
+  private int plannedUnitIdx = -1;
+  private int plannedVersion = -1;
+  private List<Segment> plannedSegments;
+  private boolean[] plannedWantedUnits;
+  private boolean plannedFinerWanted;
+
+  // The region returned by getLoadedMipMapRegion() for the last window,
+  // which is reused until the window or loadedVersion changes.
+  private final Interval drawnRegion = new Interval(0.0, 0.0);
+  private int drawnUnitIdx = -1;
+  private boolean drawnAllowFiner;
+  private int drawnVersion = -1;
+  private MipMapRegion drawnMipMapRegion;
 
   public ZoomDataset2D(DatasetModel model, Interval domainExtrema) {
+    this(model, null, domainExtrema, null);
+  }
+
+  /**
+   * Constructs a dataset whose requests are combined with those of the
+   * other datasets using the same batcher, and passed to its
+   * {@link BatchDatasetModel} once per frame.
+   *
+   * @param seriesId - identifies the requests of this dataset to the model.
+   */
+  public ZoomDataset2D(RequestBatcher batcher, Interval domainExtrema,
+      String seriesId) {
+    this(batcher.getModel(), batcher, domainExtrema, seriesId);
+  }
 
+  private ZoomDataset2D(DatasetModel model, RequestBatcher batcher,
+      Interval domainExtrema, String seriesId) {
+    ArgChecker.isNotNull(model, "model");
+    ArgChecker.isNotNull(domainExtrema, "domainExtrema");
     this.model = model;
-    this.domainExtrema = domainExtrema;
+    this.batcher = batcher;
+    this.seriesId = seriesId;
+    this.domainExtrema = domainExtrema.copy();
     unitWidths = model.getUnits();
     numUnits = this.unitWidths.length;
 
-    intervalSets = new IntervalSet[numUnits];
-    mipMaps = new MipMap[numUnits];
-    extremaMipMap = createExtremaMipMap(domainExtrema);
+    units = new Unit[numUnits];
+    extremaDomain = new double[2];
+    extremaMipMap = createExtremaMipMap(this.domainExtrema);
   }
 
   private MipMap createExtremaMipMap(Interval domainExtrema) {
-    double[] domain = new double[2];
+    double[] domain = extremaDomain;
     domain[0] = domainExtrema.getStart();
     domain[1] = domainExtrema.getEnd();
 
@@ -130,16 +661,376 @@ public class ZoomDataset2D extends AbstractDataset<Tuple2D> {
     listeners.remove(listener);
   }
 
+  /**
+   * Returns the maximum number of datapoints that the pages of all units
+   * may hold.
+   */
+  public int getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * Sets the maximum number of datapoints that the pages of all units may
+   * hold.  The datapoints of a unit are held in pages of
+   * {@link PagedSeries#DEFAULT_PAGE_SIZE}, and a page costs its whole
+   * capacity however full it is.  When the budget is exceeded, the least
+   * recently drawn regions are evicted (and requested again when they are
+   * needed).  Regions that overlap the current view are never evicted, so
+   * the budget may be exceeded if the view itself needs more datapoints.
+   */
+  public void setMemoryBudget(int maxDataPoints) {
+    ArgChecker.isGT(maxDataPoints, 0, "maxDataPoints");
+    this.memoryBudget = maxDataPoints;
+    evict();
+  }
+
+  /**
+   * Returns the number of datapoints currently held across all units.
+   */
+  public int getNumDataPoints() {
+    int numDataPoints = 0;
+    for (Unit unit : units) {
+      if (unit != null) {
+        numDataPoints += unit.series.size();
+      }
+    }
+    return numDataPoints;
+  }
+
+  /**
+   * Returns the policy that decides which regions are requested ahead of
+   * time, or null if nothing is prefetched.
+   */
+  public PrefetchPolicy getPrefetchPolicy() {
+    return prefetchPolicy;
+  }
+
+  /**
+   * Sets the policy that decides which regions are requested ahead of
+   * time; null (the default) disables prefetching.
+   */
+  public void setPrefetchPolicy(PrefetchPolicy prefetchPolicy) {
+    this.prefetchPolicy = prefetchPolicy;
+    prefetchQueue.clear();
+  }
+
+  /**
+   * Returns the width of the tiles, in datapoints of their unit, or 0 if
+   * requests are not tile-aligned.
+   */
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  /**
+   * Sets the width of the tiles, in datapoints of their unit; 0 (the
+   * default) disables tiling.
+   * <p>
+   * In tiling mode, the domain of each unit is split into tiles
+   * <tt>unitWidth * tileSize</tt> wide, aligned on multiples of that width,
+   * and whole tiles are requested, so that the same
+   * (unitIdx, tileIdx) is requested for the same data every time, and the
+   * responses can be cached by the server, a proxy or the browser.  The
+   * fetched tiles are also kept in a tile cache, from which they are
+   * inserted again if they are evicted from the dataset and needed later.
+   */
+  public void setTileSize(int tileSize) {
+    ArgChecker.isNonNegative(tileSize, "tileSize");
+    this.tileSize = tileSize;
+    tileCache.clear();
+  }
+
+  /**
+   * Returns the maximum number of datapoints held by the tile cache.
+   */
+  public int getTileCacheCapacity() {
+    return tileCache.getCapacity();
+  }
+
+  /**
+   * Sets the maximum number of datapoints held by the tile cache, beyond
+   * which the least recently used tiles are dropped; 0 disables the cache.
+   */
+  public void setTileCacheCapacity(int maxDataPoints) {
+    tileCache.setCapacity(maxDataPoints);
+  }
+
+  /**
+   * Returns the scheduler that orders the requests of this dataset, or
+   * null if they are sent straight away.
+   */
+  public RequestScheduler getRequestScheduler() {
+    return requestScheduler;
+  }
+
+  /**
+   * Sets the scheduler that orders the requests of this dataset; null (the
+   * default) sends them straight away.
+   * <p>
+   * The requests are queued by priority: the view at the unit it is drawn
+   * at first, then the parts of the view that are drawn at another unit,
+   * and prefetch requests last.  Every time the dataset is drawn, the
+   * priorities of its queued requests are worked out again for the new
+   * view.  Charts sharing a scheduler share its limit on the number of
+   * outstanding requests.
+   */
+  public void setRequestScheduler(RequestScheduler requestScheduler) {
+    this.requestScheduler = requestScheduler;
+  }
+
+  /**
+   * Returns the time (in ms) the window must stay still after an
+   * animation before requests are made.
+   */
+  public int getSettleDelay() {
+    return settleDelay;
+  }
+
+  /**
+   * Sets the time (in ms) the window must stay still after an animation
+   * before requests are made.  An animation starting within that time (e.g.
+   * the next step of a mouse wheel zoom) restarts it, so that a burst of
+   * zooms costs a single round of requests for the window it ends at.
+   */
+  public void setSettleDelay(int settleDelay) {
+    ArgChecker.isNonNegative(settleDelay, "settleDelay");
+    this.settleDelay = settleDelay;
+  }
+
+  /**
+   * Sets the scheduler that runs the settle delay, and whose clock times
+   * the tail buckets and the {@link PrefetchPolicy}.
+   */
+  public void setTaskScheduler(TaskScheduler scheduler) {
+    ArgChecker.isNotNull(scheduler, "scheduler");
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Informs this dataset that an animation of the visible window, such as
+   * a zoom or a drag, has started.  Until it has stopped and the window has settled, the window
+   * is drawn from the data already loaded, and nothing is requested.
+   */
+  public void animationStart() {
+    animating = true;
+    settling = false;
+    settleGeneration++;
+  }
+
+  /**
+   * Informs this dataset that an animation of the visible window has
+   * stopped.  Once the settle delay has elapsed without another animation
+   * starting, the listeners are notified so that the window is drawn (and
+   * its data requested) again.
+   */
+  public void animationStop() {
+    if (!animating) {
+      return;
+    }
+    animating = false;
+    final int generation = ++settleGeneration;
+    if (settleDelay == 0) {
+      settle();
+      return;
+    }
+    settling = true;
+    scheduler.scheduleDelayed(new TaskScheduler.IncrementalTask() {
+      public boolean execute() {
+        if (generation == settleGeneration) {
+          settle();
+        }
+        return false;
+      }
+    }, settleDelay);
+  }
+
+  /**
+   * Returns true if no animation is running or settling, i.e. if drawing
+   * the window requests the data it needs.
+   */
+  public boolean isSettled() {
+    return !animating && !settling;
+  }
+
+  private void settle() {
+    settling = false;
+    prefetchStale = prefetchPolicy != null;
+    Interval view = lastView.copy();
+    view.intersect(domainExtrema);
+    if (view.length() > 0) {
+      notifyListeners(this, view.getStart(), view.getEnd());
+    }
+  }
+
+  /**
+   * Returns the time (in ms) after which the data at the right edge of the
+   * domain is requested again, or 0 if it never is.
+   */
+  public int getTailTimeToLive() {
+    return tailTimeToLive;
+  }
+
+  /**
+   * Sets the time (in ms) after which the last bucket of each unit at the
+   * right edge of the domain is requested again, for a live series whose
+   * most recent values still change (e.g. the current minute of a
+   * per-minute unit); 0 (the default) disables it.  Only the stale bucket
+   * and whatever follows it is requested, not the history before it.  In
+   * tiling mode, the tiles that hold the tail are not put in the tile
+   * cache.
+   */
+  public void setTailTimeToLive(int millis) {
+    ArgChecker.isNonNegative(millis, "millis");
+    this.tailTimeToLive = millis;
+  }
+
+  /**
+   * Grows the domain of this dataset up to <tt>end</tt>, for a live
+   * series.  The new part of the domain is requested when it is drawn, and
+   * the listeners are notified so that a streaming chart follows it.
+   */
+  public void extendDomain(double end) {
+    final double oldEnd = domainExtrema.getEnd();
+    if (!(end > oldEnd)) {
+      return;
+    }
+    domainExtrema.setEndpoints(domainExtrema.getStart(), end);
+    extremaDomain[1] = end;
+    loadedVersion++;
+    notifyListeners(this, oldEnd, end);
+  }
+
+  /**
+   * Appends datapoints pushed to a live series to a unit, growing the
+   * domain as needed.  If the unit's data reaches to within a bucket of
+   * the first datapoint, the gap in between is recorded as loaded, so that
+   * successive pushes are not requested again.
+   */
+  public void appendData(int unitIdx, double[] domain, double[] range) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
+    if (domain.length == 0) {
+      return;
+    }
+    double start = domain[0];
+    final double end = domain[domain.length - 1];
+    Unit unit = units[unitIdx];
+    if (unit != null && unit.loaded.size() != 0) {
+      double loadedEnd = unit.loaded.get(unit.loaded.size() - 1).getEnd();
+      if (loadedEnd < start && loadedEnd >= start - unitWidths[unitIdx]) {
+        start = loadedEnd;
+      }
+    }
+    final double oldEnd = domainExtrema.getEnd();
+    if (end > oldEnd) {
+      domainExtrema.setEndpoints(domainExtrema.getStart(), end);
+      extremaDomain[1] = end;
+    }
+    removeTiles(unitIdx, start, end);
+    insertData(unitIdx, start, end, domain, range);
+    notifyListeners(this, domain[0], end);
+  }
+
+  /**
+   * Marks the data of <tt>[start, end]</tt> as out of date in every unit,
+   * so that it is requested again the next time it is drawn.  The data is
+   * drawn until it is replaced.  Cached tiles that overlap the interval are
+   * dropped, so that they are not inserted again in place of a request.
+   */
+  public void invalidate(double start, double end) {
+    for (int unitIdx = 0; unitIdx < numUnits; unitIdx++) {
+      Unit unit = units[unitIdx];
+      if (unit != null) {
+        unit.requested.remove(start, end);
+        unit.stale.add(start, end);
+        unit.failed.remove(start, end);
+      }
+      removeTiles(unitIdx, start, end);
+    }
+  }
+
+  /**
+   * Marks the tail buckets whose time to live has elapsed as out of date.
+   */
+  private void expireTails() {
+    final long now = scheduler.currentTimeMillis();
+    for (int unitIdx = 0; unitIdx < numUnits; unitIdx++) {
+      Unit unit = units[unitIdx];
+      if (unit != null && unit.tailExpiry != 0 && now >= unit.tailExpiry) {
+        unit.tailExpiry = 0;
+        unit.requested.remove(unit.tailStart, Double.POSITIVE_INFINITY);
+        unit.stale.add(unit.tailStart, Double.POSITIVE_INFINITY);
+        removeTiles(unitIdx, unit.tailStart, Double.POSITIVE_INFINITY);
+      }
+    }
+  }
+
+  /**
+   * Drops the cached tiles of a unit that overlap <tt>[start, end]</tt>,
+   * since their data is out of date.
+   */
+  private void removeTiles(int unitIdx, double start, double end) {
+    if (tileSize == 0) {
+      return;
+    }
+    start = Math.max(start, domainExtrema.getStart());
+    end = Math.min(end, domainExtrema.getEnd());
+    if (start > end) {
+      return;
+    }
+    // The same tiles as requestTiles() would request for the interval
+    final double tileWidth = unitWidths[unitIdx] * tileSize;
+    final long firstTileIdx = (long) Math.floor(start / tileWidth);
+    final long lastTileIdx = Math.max(firstTileIdx,
+        (long) Math.ceil(end / tileWidth) - 1);
+    tileCache.remove(unitIdx, firstTileIdx, lastTileIdx);
+  }
+
+  /**
+   * Returns true if the tile of a request may be put in the tile cache.
+   * A tile that holds the tail of a unit is not, since the tail is
+   * requested again once its time to live elapses.
+   */
+  private boolean isCacheable(Request request) {
+    return !(tailTimeToLive > 0 && request.getRegion().getEnd()
+        >= domainExtrema.getEnd() - unitWidths[request.getUnitIdx()]);
+  }
+
+  /**
+   * Informs this dataset that the visible window has moved, so that the
+   * {@link PrefetchPolicy} can anticipate where it is heading.
+   */
+  public void onWindowBoundsChange(double left, double right) {
+    for (Unit unit : units) {
+      if (unit != null && unit.failed.size() != 0) {
+        for (Interval region : unit.failed) {
+          unit.forget(region);
+        }
+        unit.failed.clear();
+      }
+    }
+    if (prefetchPolicy != null) {
+      prefetchPolicy.onWindowBoundsChange(left, right,
+          scheduler.currentTimeMillis());
+      prefetchStale = true;
+    }
+  }
+
   @Override
   public MipMapRegion getBestMipMapForInterval(Interval region, 
       int maxSamples) {
 
+    if (tailTimeToLive > 0) {
+      expireTails();
+    }
+
     region = region.copy();
 
     final double unitWidth = region.length() / maxSamples;
 
     Interval domainRegion = region.copy();
     region.intersect(domainExtrema);
+    domainRegion.copyTo(lastView);
 
     //Log.info("Graph wants region: " + region);
 
@@ -155,43 +1046,423 @@ public class ZoomDataset2D extends AbstractDataset<Tuple2D> {
       preferredUnitIdx = numUnits - 1;
     }
 
-    if (intervalSets[preferredUnitIdx] == null) {
-      intervalSets[preferredUnitIdx] = new IntervalSet();
+    if (!isSettled()) {
+      // Draw what is loaded; the window is planned and requested once it
+      // settles.
+      return getLoadedMipMapRegion(domainRegion, preferredUnitIdx, true);
+    }
+
+    if (plannedVersion != loadedVersion || plannedUnitIdx != preferredUnitIdx
+        || !region.equals(plannedRegion)) {
+      plannedWantedUnits = new boolean[numUnits];
+      plannedSegments = planUnits(region, preferredUnitIdx,
+          plannedWantedUnits);
+      plannedFinerWanted = false;
+      for (int unitIdx = 0; unitIdx < preferredUnitIdx; unitIdx++) {
+        plannedFinerWanted |= plannedWantedUnits[unitIdx];
+      }
+      region.copyTo(plannedRegion);
+      plannedUnitIdx = preferredUnitIdx;
+      plannedVersion = loadedVersion;
+    }
+    final boolean[] wantedUnits = plannedWantedUnits;
+    for (Segment part : plannedSegments) {
+      requestMissing(part.unitIdx, new Interval(part.start, part.end),
+          part.unitIdx == preferredUnitIdx
+              ? Priority.VISIBLE : Priority.FALLBACK);
+    }
+    cancelStaleRequests(domainRegion, wantedUnits);
+    if (requestScheduler != null) {
+      reprioritizeRequests(domainRegion, preferredUnitIdx, wantedUnits);
+    }
+
+    if (prefetchStale) {
+      prefetchStale = false;
+      updatePrefetchQueue(domainRegion, preferredUnitIdx);
+    }
+    issuePrefetchRequests();
+
+    return getLoadedMipMapRegion(domainRegion, preferredUnitIdx,
+        plannedFinerWanted);
+  }
+
+  /**
+   * Splits <tt>region</tt> into the parts to request at each unit: the
+   * preferred unit where the model has it, otherwise the nearest coarser
+   * unit that it has, otherwise the nearest finer one.  The units used are
+   * flagged in <tt>wantedUnits</tt>, as is the preferred unit.
+   */
+  private List<Segment> planUnits(Interval region, int preferredUnitIdx,
+      boolean[] wantedUnits) {
+    List<Segment> plan = new ArrayList<Segment>();
+    wantedUnits[preferredUnitIdx] = true;
+    if (!(model instanceof AvailabilityDatasetModel)) {
+      plan.add(new Segment(preferredUnitIdx, region.getStart(),
+          region.getEnd()));
+      return plan;
+    }
+
+    IntervalSet remaining = new IntervalSet();
+    remaining.add(region);
+    for (int i = 0; i < numUnits && remaining.size() != 0; i++) {
+      // preferredUnitIdx, ..., numUnits - 1, then preferredUnitIdx - 1, ..., 0
+      final int unitIdx = (i < numUnits - preferredUnitIdx)
+          ? preferredUnitIdx + i : numUnits - 1 - i;
+      IntervalSet available = getAvailability(unitIdx);
+      IntervalSet parts = (available == null)
+          ? new IntervalSet(remaining) : remaining.intersection(available);
+      for (int j = 0; j < parts.size(); j++) {
+        Interval part = parts.get(j);
+        plan.add(new Segment(unitIdx, part.getStart(), part.getEnd()));
+        remaining.remove(part);
+        wantedUnits[unitIdx] = true;
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * Returns the regions of the domain for which the model has data at the
+   * specified unit, or null if it has data everywhere.
+   */
+  private IntervalSet getAvailability(int unitIdx) {
+    return (model instanceof AvailabilityDatasetModel)
+        ? ((AvailabilityDatasetModel) model).getAvailability(unitIdx) : null;
+  }
+
+  /**
+   * Returns the region to draw for <tt>domainRegion</tt>.  Each part of
+   * the view is drawn from the preferred unit if it has been loaded there,
+   * and otherwise from the nearest coarser unit in which it has (or, while
+   * the window is settling or if <tt>allowFiner</tt> is true, the nearest
+   * finer one), so that the view shows
+   * whatever has arrived and sharpens as finer data arrives.  If the view
+   * is made of parts of several units, their datapoints are copied into a
+   * composite {@link MipMap}.  The region is reused until the window or
+   * the loaded data changes.
+   */
+  private MipMapRegion getLoadedMipMapRegion(Interval domainRegion,
+      int preferredUnitIdx, boolean allowFiner) {
+    allowFiner |= !isSettled();
+    if (drawnVersion != loadedVersion || drawnUnitIdx != preferredUnitIdx
+        || drawnAllowFiner != allowFiner || !domainRegion.equals(drawnRegion)) {
+      drawnMipMapRegion = buildLoadedMipMapRegion(domainRegion,
+          preferredUnitIdx, allowFiner);
+      domainRegion.copyTo(drawnRegion);
+      drawnUnitIdx = preferredUnitIdx;
+      drawnAllowFiner = allowFiner;
+      drawnVersion = loadedVersion;
+    }
+    return drawnMipMapRegion;
+  }
+
+  /**
+   * Builds the region returned by {@link #getLoadedMipMapRegion}.
+   */
+  private MipMapRegion buildLoadedMipMapRegion(Interval domainRegion,
+      int preferredUnitIdx, boolean allowFiner) {
+    List<Segment> segments = new ArrayList<Segment>();
+    IntervalSet remaining = new IntervalSet();
+    remaining.add(domainRegion);
+    for (int unitIdx = preferredUnitIdx;
+        unitIdx < numUnits && remaining.size() != 0; unitIdx++) {
+      addSegments(unitIdx, remaining, segments);
+    }
+    if (allowFiner) {
+      for (int unitIdx = preferredUnitIdx - 1;
+          unitIdx >= 0 && remaining.size() != 0; unitIdx--) {
+        addSegments(unitIdx, remaining, segments);
+      }
     }
-    IntervalSet unitIntervalSet = intervalSets[preferredUnitIdx];
-    IntervalSet requestSet = new IntervalSet();
-    requestSet.add(region);
-    requestSet = requestSet.difference(unitIntervalSet);
-    if (requestSet.size() != 0) {
-      for (int i = 0; i < requestSet.size(); i++) {
-	Interval requestRegion = requestSet.get(i);
-	unitIntervalSet.add(requestRegion);
-	Log.info("Request " + requestRegion + " for unitIdx=" 
-            + preferredUnitIdx);
-	model.requestData(new Request(requestRegion, preferredUnitIdx), 
-	    new DelegateCallback(preferredUnitIdx));
+
+    MipMap bestMipMap = null;
+    if (segments.size() == 1) {
+      bestMipMap = units[segments.get(0).unitIdx].mipMap;
+    } else if (segments.size() > 1) {
+      bestMipMap = createCompositeMipMap(segments);
+      if (bestMipMap.isEmpty()) {
+        bestMipMap = units[segments.get(0).unitIdx].mipMap;
+      }
+    } else {
+      // Nothing loaded within the view; draw the edges of whatever has
+      // been loaded around it.
+      for (int unitIdx = preferredUnitIdx; unitIdx < numUnits; unitIdx++) {
+        if (units[unitIdx] != null && !units[unitIdx].series.isEmpty()) {
+          bestMipMap = units[unitIdx].mipMap;
+          break;
+        }
+      }
+      if (bestMipMap == null) {
+        bestMipMap = extremaMipMap;
       }
     }
 
-    int domainStartIdx;
-    int domainEndIdx;
+    Array1D domain = bestMipMap.getDomain();
+    int domainStartIdx = Util.binarySearch(domain, domainRegion.getStart());
+    int domainEndIdx = Util.binarySearch(domain, domainRegion.getEnd());
+    return new MipMapRegion(bestMipMap, domainStartIdx, domainEndIdx);
+  }
+
+  /**
+   * Adds a segment for each part of <tt>remaining</tt> that has been
+   * loaded in the specified unit, and removes those parts from
+   * <tt>remaining</tt>.
+   */
+  private void addSegments(int unitIdx, IntervalSet remaining,
+      List<Segment> segments) {
+    Unit unit = units[unitIdx];
+    if (unit == null || unit.series.isEmpty()) {
+      return;
+    }
+    IntervalSet covered = remaining.intersection(unit.loaded);
+    for (int i = 0; i < covered.size(); i++) {
+      Interval part = covered.get(i);
+      segments.add(new Segment(unitIdx, part.getStart(), part.getEnd()));
+      remaining.remove(part);
+      touch(unit, part);
+    }
+  }
 
-    // FIXME: maybe not just get the first, but get the best matching?
-    // Maybe its better to get a low-res mip-map with many 
-    for (int unitIdx = preferredUnitIdx; unitIdx < numUnits; unitIdx++) {
-      MipMap bestMipMap = mipMaps[unitIdx];
-      if (bestMipMap != null) {
-	Array1D domain = bestMipMap.getDomain();
-	domainStartIdx = Util.binarySearch(domain, domainRegion.getStart());
-	domainEndIdx = Util.binarySearch(domain, domainRegion.getEnd());
-	return new MipMapRegion(bestMipMap, domainStartIdx, domainEndIdx);
+  /**
+   * Returns a mipmap holding the datapoints of each segment, taken from
+   * the segment's unit, plus the datapoints just before the first segment
+   * and just after the last one, so that lines are drawn up to the edges
+   * of the view.
+   */
+  private MipMap createCompositeMipMap(List<Segment> segments) {
+    Collections.sort(segments, SEGMENT_ORDER);
+    final int numSegments = segments.size();
+    int[] from = new int[numSegments];
+    int[] to = new int[numSegments];
+    int size = 0;
+    for (int i = 0; i < numSegments; i++) {
+      Segment segment = segments.get(i);
+      PagedSeries series = units[segment.unitIdx].series;
+      // A datapoint on the boundary of two segments belongs to the second.
+      from[i] = series.countLessThan(segment.start);
+      to[i] = (i == numSegments - 1)
+          ? series.countLessThanOrEqual(segment.end)
+          : series.countLessThan(segment.end);
+      if (i == 0 && from[i] > 0) {
+        from[i]--;
+      }
+      if (i == numSegments - 1 && to[i] < series.size()) {
+        to[i]++;
       }
+      size += Math.max(0, to[i] - from[i]);
     }
 
-    Array1D domain = extremaMipMap.getDomain();
-    domainStartIdx = Util.binarySearch(domain, domainRegion.getStart());
-    domainEndIdx = Util.binarySearch(domain, domainRegion.getEnd());
-    return new MipMapRegion(extremaMipMap, domainStartIdx, domainEndIdx);
+    double[] domain = new double[size];
+    double[] range = new double[size];
+    int pos = 0;
+    for (int i = 0; i < numSegments; i++) {
+      PagedSeries series = units[segments.get(i).unitIdx].series;
+      Array1D seriesDomain = series.getDomain();
+      Array1D seriesRange = series.getRange();
+      for (int j = from[i]; j < to[i]; j++) {
+        domain[pos] = seriesDomain.get(j);
+        range[pos] = seriesRange.get(j);
+        pos++;
+      }
+    }
+    return new MipMap(new JavaArray1D(domain), new JavaArray1D(range));
+  }
+
+  /**
+   * Requests the parts of <tt>region</tt> that have not been requested
+   * yet at the specified unit.  In tiling mode, the tiles overlapping them
+   * are requested instead, and those in the {@link TileCache} are
+   * inserted straight away.
+   */
+  private void requestMissing(int unitIdx, Interval region,
+      Priority priority) {
+    if (units[unitIdx] == null) {
+      units[unitIdx] = new Unit();
+    }
+    IntervalSet requested = units[unitIdx].requested;
+    if (requested.covers(region)) {
+      return;
+    }
+    IntervalSet gaps = requested.getGaps(region);
+    for (int i = 0; i < gaps.size(); i++) {
+      Interval gap = gaps.get(i);
+      if (tileSize == 0) {
+        requested.add(gap);
+        requestData(new Request(gap, unitIdx), priority);
+      } else {
+        requestTiles(unitIdx, gap, priority);
+      }
+    }
+  }
+
+  /**
+   * Requests the tiles of the specified unit that overlap <tt>gap</tt>
+   * and have not been requested yet.
+   */
+  private void requestTiles(int unitIdx, Interval gap, Priority priority) {
+    final double tileWidth = unitWidths[unitIdx] * tileSize;
+    final long firstTileIdx = (long) Math.floor(gap.getStart() / tileWidth);
+    final long lastTileIdx = (long) Math.ceil(gap.getEnd() / tileWidth) - 1;
+    Unit unit = units[unitIdx];
+    for (long tileIdx = firstTileIdx; tileIdx <= lastTileIdx; tileIdx++) {
+      Interval tile = new Interval(tileIdx * tileWidth,
+          (tileIdx + 1) * tileWidth);
+      if (unit.requested.covers(tile)) {
+        continue;
+      }
+      unit.requested.add(tile);
+      Request request = new Request(tile, unitIdx, tileIdx, seriesId);
+      TileCache.Tile cached = tileCache.get(unitIdx, tileIdx);
+      if (cached != null) {
+        insertData(request, cached.domain, cached.range);
+        continue;
+      }
+      requestData(request, priority);
+    }
+  }
+
+  private void requestData(Request request, Priority priority) {
+    request = new Request(request.getRegion(), request.getUnitIdx(),
+        request.getTileIdx(), seriesId);
+    DelegateCallback callback = new DelegateCallback(request);
+    inFlight.add(callback);
+    if (requestScheduler != null) {
+      callback.scheduled = requestScheduler.submit(requestTarget, request,
+          callback, priority);
+      callback.handle = callback.scheduled;
+      return;
+    }
+    RequestHandle handle = requestTarget.send(request, callback);
+    if (!callback.done) {
+      callback.handle = handle;
+    }
+  }
+
+  /**
+   * Removes a request that has completed, failed or been cancelled from
+   * the outstanding requests.
+   */
+  private void finish(DelegateCallback callback) {
+    callback.done = true;
+    inFlight.remove(callback);
+  }
+
+  /**
+   * Cancels the outstanding requests for units other than the wanted ones
+   * and their neighbours, and for regions that are far from the view.
+   */
+  private void cancelStaleRequests(Interval view, boolean[] wantedUnits) {
+    final double margin = CANCEL_DISTANCE * view.length();
+    final double keepStart = view.getStart() - margin;
+    final double keepEnd = view.getEnd() + margin;
+    for (int i = inFlight.size() - 1; i >= 0; i--) {
+      DelegateCallback callback = inFlight.get(i);
+      Request request = callback.request;
+      Interval region = request.getRegion();
+      final int unitIdx = request.getUnitIdx();
+      final boolean nearWanted = wantedUnits[unitIdx]
+          || (unitIdx > 0 && wantedUnits[unitIdx - 1])
+          || (unitIdx < numUnits - 1 && wantedUnits[unitIdx + 1]);
+      if (!nearWanted
+          || region.getEnd() < keepStart || region.getStart() > keepEnd) {
+        callback.cancel();
+      }
+    }
+  }
+
+  /**
+   * Works out the priorities of the requests still queued by the
+   * {@link RequestScheduler} for the current view: those overlapping it are
+   * visible at the preferred unit, or fallbacks at the other wanted units,
+   * and the others are prefetches.
+   */
+  private void reprioritizeRequests(Interval view, int preferredUnitIdx,
+      boolean[] wantedUnits) {
+    for (DelegateCallback callback : inFlight) {
+      if (callback.scheduled == null || !callback.scheduled.isQueued()) {
+        continue;
+      }
+      Request request = callback.request;
+      Interval region = request.getRegion();
+      final int unitIdx = request.getUnitIdx();
+      Priority priority = Priority.PREFETCH;
+      if (region.getEnd() > view.getStart()
+          && region.getStart() < view.getEnd()) {
+        if (unitIdx == preferredUnitIdx) {
+          priority = Priority.VISIBLE;
+        } else if (wantedUnits[unitIdx]) {
+          priority = Priority.FALLBACK;
+        }
+      }
+      callback.scheduled.setPriority(priority);
+    }
+  }
+
+  /**
+   * Replaces the queued prefetch requests with the parts of those of the
+   * {@link PrefetchPolicy} that have not been requested yet.
+   */
+  private void updatePrefetchQueue(Interval view, int unitIdx) {
+    prefetchQueue.clear();
+    if (prefetchPolicy == null) {
+      return;
+    }
+
+    List<Request> candidates = new ArrayList<Request>();
+    prefetchPolicy.getPrefetchRequests(view, unitIdx, candidates);
+    for (Request candidate : candidates) {
+      Interval region = candidate.getRegion();
+      double start = Math.max(region.getStart(), domainExtrema.getStart());
+      double end = Math.min(region.getEnd(), domainExtrema.getEnd());
+      if (!(end > start)) {
+        continue;
+      }
+      final int candidateUnitIdx = candidate.getUnitIdx();
+      IntervalSet parts = new IntervalSet();
+      parts.add(start, end);
+      IntervalSet available = getAvailability(candidateUnitIdx);
+      if (available != null) {
+        parts = parts.intersection(available);
+      }
+
+      Unit unit = units[candidateUnitIdx];
+      if (unit != null) {
+        parts = parts.difference(unit.requested);
+      }
+      for (int i = 0; i < parts.size(); i++) {
+        prefetchQueue.add(new Request(parts.get(i), candidateUnitIdx));
+      }
+    }
+  }
+
+  /**
+   * Issues queued prefetch requests while there is room for them, unless
+   * the window is settling.
+   */
+  private void issuePrefetchRequests() {
+    if (!isSettled()) {
+      return;
+    }
+    while (!prefetchQueue.isEmpty() && prefetchPolicy != null
+        && inFlight.size() < prefetchPolicy.getMaxInFlight()) {
+      Request request = prefetchQueue.remove(0);
+      requestMissing(request.getUnitIdx(), request.getRegion(),
+          Priority.PREFETCH);
+    }
+  }
+
+  private static double[] concat(List<double[]> arrays) {
+    int length = 0;
+    for (double[] a : arrays) {
+      length += a.length;
+    }
+    double[] result = new double[length];
+    int pos = 0;
+    for (double[] a : arrays) {
+      System.arraycopy(a, 0, result, pos, a.length);
+      pos += a.length;
+    }
+    return result;
   }
 
   private void validateDomain(double[] domain) {
@@ -201,84 +1472,208 @@ public class ZoomDataset2D extends AbstractDataset<Tuple2D> {
     }
   }
 
+  /**
+   * Inserts the specified datapoints into a unit, replacing the
+   * datapoints already there within the domain of the new ones.
+   */
   public void provideData(int unitIdx, double[] domain, double[] range) {
     ArgChecker.isNotNull(domain, "domain");
-    ArgChecker.isNotNull(range, "range");
-
     if (domain.length == 0)
       return;
-    validateDomain(domain);
+    provideData(new Request(new Interval(domain[0],
+        domain[domain.length - 1]), unitIdx), domain, range);
+  }
 
-    MipMap mipMap = mipMaps[unitIdx];
-    if (mipMap == null) {
-      mipMaps[unitIdx] = mipMap = createExtremaMipMap(domainExtrema);
+  private void provideData(Request request, double[] domain, double[] range) {
+    ArgChecker.isNotNull(domain, "domain");
+    ArgChecker.isNotNull(range, "range");
 
-      for (int i = unitIdx - 1; i >= 0; i--) {
-	if (mipMaps[i] != null) {
-	  mipMaps[i].nextMipMap = mipMap;
-	  break;
-	}
+    if (request.isTile()) {
+      if (isCacheable(request)) {
+        tileCache.put(request.getUnitIdx(), request.getTileIdx(), domain,
+            range);
       }
-      
-      if (unitIdx == 0)
-	extremaMipMap.nextMipMap = mipMap;
-    } 
-      
-    Array1D domainArray = mipMap.getDomain();
-    Interval providedDomain = new Interval(domain[0],
-        domain[domain.length - 1]);
+    } else {
+      removeTiles(request.getUnitIdx(), request.getRegion().getStart(),
+          request.getRegion().getEnd());
+    }
+    insertData(request, domain, range);
+    if (domain.length != 0) {
+      notifyListeners(this, domain[0], domain[domain.length - 1]);
+    }
+  }
 
-    int startIdx = Util.binarySearch(domainArray, 
-        providedDomain.getStart());
-    int stopIdx = Util.binarySearch(domainArray, 
-        providedDomain.getEnd());
+  /**
+   * Inserts the data of a request into its unit, without notifying the
+   * listeners.
+   */
+  private void insertData(Request request, double[] domain, double[] range) {
+    Interval region = request.getRegion();
+    insertData(request.getUnitIdx(), region.getStart(), region.getEnd(),
+        domain, range);
+  }
 
-    if (domainArray.get(startIdx) >= providedDomain.getStart()) {
-      startIdx = Math.max(0, startIdx - 1);
+  /**
+   * Inserts datapoints into a unit, and records that the data of
+   * <tt>[start, end]</tt> has arrived.
+   */
+  private void insertData(int unitIdx, double start, double end,
+      double[] domain, double[] range) {
+    if (units[unitIdx] == null) {
+      units[unitIdx] = new Unit();
     }
-    if (domainArray.get(stopIdx) <= providedDomain.getEnd()) {
-      stopIdx++;
+    Unit unit = units[unitIdx];
+    unit.requested.add(start, end);
+    unit.loaded.add(start, end);
+    unit.stale.remove(start, end);
+    loadedVersion++;
+
+    final double unitWidth = unitWidths[unitIdx];
+    if (tailTimeToLive > 0 && end >= domainExtrema.getEnd() - unitWidth) {
+      // The last bucket may still change; request it again later.
+      unit.tailStart = Math.max(start, domainExtrema.getEnd() - unitWidth);
+      unit.tailExpiry = scheduler.currentTimeMillis() + tailTimeToLive;
     }
-    
-    double[] newDomainArray = mergeArrays(domainArray.backingArray(),
-        domainArray.size(), domain, startIdx, stopIdx);
 
-    Array1D rangeArray = mipMap.getRange(0);
-    double[] newRangeArray = mergeArrays(rangeArray.backingArray(),
-	rangeArray.size(), range, startIdx, stopIdx);
+    if (domain.length == 0)
+      return;
+    validateDomain(domain);
 
-//     Log.info("create new: "
-// 	     + "; newDomainArray.length=" + newDomainArray.length
-// 	     + "; newRangeArray.length=" + newRangeArray.length);
+    boolean wasEmpty = unit.series.isEmpty();
+    unit.series.insert(domain, range);
+    addLoadedRegion(unit, start, end);
+    if (wasEmpty) {
+      linkMipMaps();
+    }
+    evict();
+  }
 
-    mipMaps[unitIdx] = new MipMap(new JavaArray1D(newDomainArray), 
-        new JavaArray1D(newRangeArray));
+  /**
+   * Records that the data of <tt>[start, end]</tt> has arrived, replacing
+   * any overlapping parts of regions that arrived before.  A region split
+   * in two by the new one counts as drawn.
+   */
+  private void addLoadedRegion(Unit unit, double start, double end) {
+    List<LoadedRegion> loaded = unit.loadedRegions;
+    for (int i = loaded.size() - 1; i >= 0; i--) {
+      LoadedRegion r = loaded.get(i);
+      if (r.end < start || r.start > end) {
+        continue;
+      }
+      if (r.start < start && r.end > end) {
+        LoadedRegion tail = new LoadedRegion(end, r.end);
+        loaded.add(tail);
+        regionsByUse.put(tail, unit);
+        r.end = start;
+      } else if (r.start < start) {
+        r.end = start;
+      } else if (r.end > end) {
+        r.start = end;
+      } else {
+        regionsByUse.remove(loaded.remove(i));
+      }
+    }
+    LoadedRegion region = new LoadedRegion(start, end);
+    loaded.add(region);
+    regionsByUse.put(region, unit);
+  }
 
-    notifyListeners(this, providedDomain.getStart(), 
-        providedDomain.getEnd());
+  /**
+   * Marks the loaded regions of the unit that overlap the specified region
+   * as the most recently drawn.
+   */
+  private void touch(Unit unit, Interval region) {
+    List<LoadedRegion> loaded = unit.loadedRegions;
+    for (int i = 0; i < loaded.size(); i++) {
+      LoadedRegion r = loaded.get(i);
+      if (r.end >= region.getStart() && r.start <= region.getEnd()) {
+        regionsByUse.get(r);
+      }
+    }
   }
 
-  private double[] mergeArrays(double[] original, int origSize,
-      double[] newData, int origStartIdx, int origEndIdx) {
+  /**
+   * Returns the number of datapoints the pages of all units can hold.
+   */
+  private int getCapacity() {
+    int capacity = 0;
+    for (Unit unit : units) {
+      if (unit != null) {
+        capacity += unit.series.getCapacity();
+      }
+    }
+    return capacity;
+  }
 
-    int numSamples = origStartIdx + newData.length 
-      + (origSize - origEndIdx);
-    double[] newArray = new double[numSamples];
+  /**
+   * Evicts the least recently drawn regions that do not overlap the current
+   * view, until the pages of all units are within the memory budget.
+   */
+  private void evict() {
+    int capacity = getCapacity();
+    Iterator<Map.Entry<LoadedRegion, Unit>> it =
+        regionsByUse.entrySet().iterator();
+    while (capacity > memoryBudget && it.hasNext()) {
+      Map.Entry<LoadedRegion, Unit> entry = it.next();
+      LoadedRegion r = entry.getKey();
+      if (r.end >= lastView.getStart() && r.start <= lastView.getEnd()) {
+        continue;
+      }
+      it.remove();
+      Unit unit = entry.getValue();
+      unit.loadedRegions.remove(r);
+
+      // A datapoint at either end of the region is kept if the region
+      // next to it shares it.
+      capacity -= unit.series.getCapacity();
+      unit.series.removeBetween(r.start, r.end);
+      if (!isLoadedRegionAt(unit, r.start)) {
+        unit.series.remove(r.start, r.start);
+      }
+      if (!isLoadedRegionAt(unit, r.end)) {
+        unit.series.remove(r.end, r.end);
+      }
+      capacity += unit.series.getCapacity();
+
+      unit.loaded.remove(r.start, r.end);
+      unit.requested.remove(r.start, r.end);
+      unit.stale.remove(r.start, r.end);
+      loadedVersion++;
+      if (unit.series.isEmpty()) {
+        linkMipMaps();
+      }
+    }
+  }
 
-    if (numSamples == newData.length) {
-      System.arraycopy(newData, 0, newArray, 0, newData.length);
-      return newArray;
+  /**
+   * Returns true if one of the loaded regions of the unit contains the
+   * specified domain value.
+   */
+  private static boolean isLoadedRegionAt(Unit unit, double x) {
+    List<LoadedRegion> loaded = unit.loadedRegions;
+    for (int i = 0; i < loaded.size(); i++) {
+      LoadedRegion r = loaded.get(i);
+      if (r.start <= x && x <= r.end) {
+        return true;
+      }
     }
+    return false;
+  }
 
-    int pos = 0;
-    System.arraycopy(original, 0, newArray, pos, origStartIdx);
-    pos += origStartIdx;
-    System.arraycopy(newData, 0, newArray, pos, newData.length);
-    pos += newData.length;
-    System.arraycopy(original, origEndIdx, newArray, pos, 
-        origSize - origEndIdx);
-
-    return newArray;
+  /**
+   * Chains the mipmaps of the units that hold data, in unit order, after
+   * {@link #extremaMipMap}.
+   */
+  private void linkMipMaps() {
+    MipMap prev = extremaMipMap;
+    for (int unitIdx = 0; unitIdx < numUnits; unitIdx++) {
+      Unit unit = units[unitIdx];
+      if (unit != null && !unit.series.isEmpty()) {
+        prev.nextMipMap = unit.mipMap;
+        prev = unit.mipMap;
+      }
+    }
+    prev.nextMipMap = null;
   }
 
   private void notifyListeners(Dataset<Tuple2D> ds, double domainStart, double domainEnd) {
@@ -5,7 +5,10 @@ import org.gwt.speedchart.client.graph.TimelineModel;
 import org.gwt.speedchart.client.util.Interval;
 import org.gwt.speedchart.client.graph.AbstractGraph;
 
+import com.google.gwt.user.client.DOM;
 import com.google.gwt.user.client.ui.FocusPanel;
+import com.google.gwt.event.dom.client.LoseCaptureEvent;
+import com.google.gwt.event.dom.client.LoseCaptureHandler;
 import com.google.gwt.event.dom.client.MouseDownHandler;
 import com.google.gwt.event.dom.client.MouseDownEvent;
 import com.google.gwt.event.dom.client.MouseUpHandler;
@@ -24,7 +27,7 @@ public class Pan {
   private final TimelineModel model;
 
   private class MouseHandler implements MouseDownHandler,
-      MouseUpHandler, MouseMoveHandler {
+      MouseUpHandler, MouseMoveHandler, LoseCaptureHandler {
     
     boolean isDragging = false;
     int startX;
@@ -32,10 +35,41 @@ public class Pan {
     public void onMouseDown(MouseDownEvent event) {
       isDragging = true;
       startX = event.getX();
+      // Capture the mouse so that the mouse up is seen even if the drag is
+      // released outside of the graph.
+      DOM.setCapture(graph.getElement());
+      if (listeners != null) {
+        for (AnimationListener listener : listeners)
+          listener.animationStart();
+      }
     }
 
     public void onMouseUp(MouseUpEvent event) {
+      if (endDrag()) {
+        DOM.releaseCapture(graph.getElement());
+      }
+    }
+
+    public void onLoseCapture(LoseCaptureEvent event) {
+      // The mouse up will never be seen, e.g. since the window lost focus.
+      endDrag();
+    }
+
+    /**
+     * Ends the current drag, if any.
+     *
+     * @return true if a drag was ended.
+     */
+    private boolean endDrag() {
+      if (!isDragging) {
+        return false;
+      }
       isDragging = false;
+      if (listeners != null) {
+        for (AnimationListener listener : listeners)
+          listener.animationStop();
+      }
+      return true;
     }
 
     public void onMouseMove(MouseMoveEvent event) {
@@ -60,13 +94,27 @@ public class Pan {
   
   private final AbstractGraph graph;
 
+  private List<AnimationListener> listeners;
+
   public Pan(TimelineModel model, AbstractGraph sink) {
     this.model = model;
     sink.addMouseDownHandler(mouseHandler);
     sink.addMouseUpHandler(mouseHandler);
     sink.addMouseMoveHandler(mouseHandler);
+    sink.addLoseCaptureHandler(mouseHandler);
     this.graph = sink;
   }
 
+  /**
+   * Adds a listener that is told when a drag starts, and when it stops
+   * on mouse up or when the mouse capture is lost.
+   */
+  public void addListener(AnimationListener listener) {
+    if (listeners == null) {
+      listeners = new ArrayList<AnimationListener>();
+    }
+    listeners.add(listener);
+  }
+
 }
 
@@ -21,6 +21,10 @@
 
 package org.gwt.speedchart.client.graph;
 
+import com.google.gwt.event.dom.client.HasLoseCaptureHandlers;
+import com.google.gwt.event.dom.client.LoseCaptureEvent;
+import com.google.gwt.event.dom.client.LoseCaptureHandler;
+import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.graphics.client.Canvas;
 import com.google.gwt.graphics.client.Color;
 import com.google.gwt.user.client.ui.FocusPanel;
@@ -38,6 +42,7 @@ import org.gwt.speedchart.client.fx.AnimationListener;
 //import org.gwt.speedchart.client.axis.RangeAxis;
 //import org.gwt.speedchart.client.canvas.Layer;
 //import org.gwt.speedchart.client.canvas.View;
+import org.gwt.speedchart.client.data.EnvelopeMipMapStrategy;
 import org.gwt.speedchart.client.data.MipMap;
 import org.gwt.speedchart.client.data.MipMapRegion;
 import org.gwt.speedchart.client.data.tuple.Tuple2D;
@@ -61,7 +66,13 @@ import com.google.gwt.dom.client.Element;
  * @author Johan Rydberg &lt;johan.rydberg@gmail.com&gt;
  */
 public abstract class AbstractGraph<T extends Tuple2D> extends FocusPanel
-    implements AnimationListener, RequiresResize {
+    implements AnimationListener, RequiresResize, HasLoseCaptureHandlers {
+
+  /**
+   * Number of datapoints per pixel column to fetch from the mipmaps when
+   * the curves are reduced by pixel column.
+   */
+  private static final int REDUCED_SAMPLES_PER_COLUMN = 8;
 
   private int COORD_X_WIDTH;
   private int COORD_Y_HEIGHT;
@@ -109,6 +120,11 @@ public abstract class AbstractGraph<T extends Tuple2D> extends FocusPanel
     return visRange;
   }
 
+  public HandlerRegistration addLoseCaptureHandler(
+      LoseCaptureHandler handler) {
+    return addDomHandler(handler, LoseCaptureEvent.getType());
+  }
+
   public void addDomainOverlay(Overlay domainOverlay) {
     domainOverlays.add(domainOverlay);
   }
@@ -224,6 +240,15 @@ public abstract class AbstractGraph<T extends Tuple2D> extends FocusPanel
 
   private double lx, ly, fx;
 
+  private final PixelColumnReducer reducer = new PixelColumnReducer();
+
+  private final LocalTuple reducedPoint = new LocalTuple();
+
+  /**
+   * The values of a datapoint of an envelope, in the order they are drawn.
+   */
+  private final double[] envelopeValues = new double[4];
+
   protected double rangeToScreenY(double dataY) {
     //Log.info("rangeToScreenY: " + dataY);
     double c = (dataY - visRange.getStart()) / (
@@ -254,6 +279,7 @@ public abstract class AbstractGraph<T extends Tuple2D> extends FocusPanel
 
   protected void beginCurve(DrawableDataset<T> dds) {
     canvas.beginPath();
+    reducer.reset();
     lx = ly = fx = -1;
   }
 
@@ -294,20 +320,11 @@ public abstract class AbstractGraph<T extends Tuple2D> extends FocusPanel
    * Calculates the range-Y extrema values of the specified {@link MipMap}.
    */
   private Interval calcVisibleRange(MipMap mipMap, int domainStartIdx, int domainEndIdx) {
-    double rangeMin = Double.POSITIVE_INFINITY;
-    double rangeMax = Double.NEGATIVE_INFINITY;
-    Iterator<Tuple2D> tupleItr = mipMap.getTupleIterator(domainStartIdx);
-    for (int i = domainStartIdx; i <= domainEndIdx; i++) {
-      double y = tupleItr.next().getRange0();
-      rangeMin = Math.min(rangeMin, y);
-      rangeMax = Math.max(rangeMax, y);
-    }
-
-    return new Interval(rangeMin, rangeMax);
+    return mipMap.getRangeExtrema(domainStartIdx, domainEndIdx);
   }
 
   private void drawDataset(int datasetIndex) {
-    DrawableDataset dds = drawableDatasets.get(datasetIndex);
+    DrawableDataset<T> dds = drawableDatasets.get(datasetIndex);
 
     Dataset<T> dataSet = dds.dataset;
     //DatasetRenderer<T> renderer = dds.getRenderer();
@@ -328,6 +345,8 @@ public abstract class AbstractGraph<T extends Tuple2D> extends FocusPanel
     // Render the curve
     // final double refY = calcReferenceY(dds.graphUiProps, dds);
 
+    final boolean reduce = isPixelColumnReduction();
+    final boolean envelope = currMipMap.isEnvelope();
     int methodCallCount = 0;
     Iterator<Tuple2D> tupleItr = currMipMap.getTupleIterator(domainStartIdx);
     for (int i = domainStartIdx; i <= domainEndIdx; i++) {
@@ -339,12 +358,121 @@ public abstract class AbstractGraph<T extends Tuple2D> extends FocusPanel
 // 		       RangeAxis.calcPrctDiff(refY, dataPt.getRange0()));
 //         dataPt = tmpTuple;
 //       }
-      // FIXME: refactor to remove cast
-      drawCurvePart(dds, (T) dataPt, methodCallCount++);
+      if (envelope) {
+        methodCallCount = drawEnvelopePart(dds, dataPt, methodCallCount);
+      } else if (reduce) {
+        methodCallCount = drawReducedCurvePart(dds, dataPt.getDomain(),
+            dataPt.getRange0(), methodCallCount);
+      } else {
+        drawPoint(dds, dataPt, methodCallCount++);
+      }
+    }
+    if (reduce) {
+      flushReducedCurve(dds, methodCallCount);
     }
     endCurve(dds);
   }
 
+  /**
+   * Draws a datapoint of an envelope mipmap as a vertical stroke through
+   * its first, lowest, highest and last value, so that the dips within it
+   * are drawn as well as the spikes.  Values equal to the one before them
+   * are skipped, so a raw datapoint costs a single vertex.
+   *
+   * @return the updated method call count for {@link #drawCurvePart}.
+   */
+  private int drawEnvelopePart(DrawableDataset<T> dds, Tuple2D dataPt,
+      int methodCallCount) {
+    final double first = dataPt.getRange(EnvelopeMipMapStrategy.RANGE_FIRST);
+    final double last = dataPt.getRange(EnvelopeMipMapStrategy.RANGE_LAST);
+    final double min = dataPt.getRange(EnvelopeMipMapStrategy.RANGE_MIN);
+    final double max = dataPt.getRange(EnvelopeMipMapStrategy.RANGE_MAX);
+
+    // The order of the extremes within the datapoint is not known, so the
+    // one nearer to the last value is drawn last.
+    envelopeValues[0] = first;
+    envelopeValues[1] = (first <= last) ? min : max;
+    envelopeValues[2] = (first <= last) ? max : min;
+    envelopeValues[3] = last;
+
+    final double x = dataPt.getDomain();
+    for (int i = 0; i < envelopeValues.length; i++) {
+      if (i == 0 || envelopeValues[i] != envelopeValues[i - 1]) {
+        methodCallCount = drawVertex(dds, x, envelopeValues[i],
+            methodCallCount);
+      }
+    }
+    return methodCallCount;
+  }
+
+  /**
+   * Draws a vertex of a curve, through the pixel column reduction stage
+   * if it is enabled.
+   *
+   * @return the updated method call count for {@link #drawCurvePart}.
+   */
+  protected int drawVertex(DrawableDataset<T> dds, double dataX,
+      double dataY, int methodCallCount) {
+    if (isPixelColumnReduction()) {
+      return drawReducedCurvePart(dds, dataX, dataY, methodCallCount);
+    }
+    reducedPoint.setXY(dataX, dataY);
+    drawPoint(dds, reducedPoint, methodCallCount);
+    return methodCallCount + 1;
+  }
+
+  /**
+   * Passes a datapoint to {@link #drawCurvePart}, which only reads its
+   * domain and range.
+   */
+  @SuppressWarnings("unchecked")
+  private void drawPoint(DrawableDataset<T> dds, Tuple2D dataPt,
+      int methodCallCount) {
+    // FIXME: refactor to remove cast
+    drawCurvePart(dds, (T) dataPt, methodCallCount);
+  }
+
+  /**
+   * Returns true if curves are passed through the pixel column reduction
+   * stage before they are drawn.
+   */
+  protected boolean isPixelColumnReduction() {
+    return chartUiProps.isPixelColumnReduction();
+  }
+
+  /**
+   * Feeds a datapoint to the pixel column reduction stage, and draws the
+   * vertices of the previous pixel column once it is completed.  The
+   * curve must be terminated with {@link #flushReducedCurve}.
+   *
+   * @return the updated method call count for {@link #drawCurvePart}.
+   */
+  protected int drawReducedCurvePart(DrawableDataset<T> dds, double dataX,
+      double dataY, int methodCallCount) {
+    final int column = (int) Math.floor(domainToScreenX(dataX));
+    final int numVertices = reducer.add(column, dataX, dataY);
+    return drawReducedVertices(dds, numVertices, methodCallCount);
+  }
+
+  /**
+   * Draws the vertices of the last pixel column of a reduced curve.
+   *
+   * @return the updated method call count for {@link #drawCurvePart}.
+   */
+  protected int flushReducedCurve(DrawableDataset<T> dds,
+      int methodCallCount) {
+    return drawReducedVertices(dds, reducer.flush(), methodCallCount);
+  }
+
+  private int drawReducedVertices(DrawableDataset<T> dds, int numVertices,
+      int methodCallCount) {
+    for (int i = 0; i < numVertices; i++) {
+      reducedPoint.setXY(reducer.getX(i), reducer.getY(i));
+      drawPoint(dds, reducedPoint, methodCallCount++);
+    }
+    return methodCallCount;
+  }
+
   public Interval calcWidestDomain() {
     if (drawableDatasets.isEmpty()) {
       return null;
@@ -466,7 +594,16 @@ public abstract class AbstractGraph<T extends Tuple2D> extends FocusPanel
    */
   protected int getMaxDrawableDataPoints(DrawableDataset dds) {
     int maxDrawablePoints = getCurrentMaxDrawableDatapoints();
-    return Math.min(dds.maxDrawablePoints, maxDrawablePoints);
+    maxDrawablePoints = Math.min(dds.maxDrawablePoints, maxDrawablePoints);
+    if (isPixelColumnReduction() && !isAnimating) {
+      // The reduction stage bounds the number of path operations by the
+      // width of the graph, so a denser mip level can be afforded.  It is
+      // still a mip level: the raw data can be far too large to scan on
+      // every draw, so spikes are only kept by envelope mipmaps.
+      maxDrawablePoints = Math.max(maxDrawablePoints,
+          COORD_X_WIDTH * REDUCED_SAMPLES_PER_COLUMN);
+    }
+    return maxDrawablePoints;
   }
 
   /**
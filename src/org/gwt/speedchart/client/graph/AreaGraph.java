@@ -16,6 +16,7 @@ import org.gwt.speedchart.client.fx.AnimationListener;
 //import org.gwt.speedchart.client.axis.RangeAxis;
 //import org.gwt.speedchart.client.canvas.Layer;
 //import org.gwt.speedchart.client.canvas.View;
+import org.gwt.speedchart.client.data.EnvelopeMipMapStrategy;
 import org.gwt.speedchart.client.data.MipMap;
 import org.gwt.speedchart.client.data.MipMapRegion;
 import org.gwt.speedchart.client.data.tuple.Tuple2D;
@@ -41,38 +42,6 @@ import com.google.gwt.dom.client.Element;
 public class AreaGraph<T extends Tuple2D> 
     extends AbstractGraph<T> {
 
-  private static final class LocalTuple implements Tuple2D {
-    private double x, y;
-    
-    public void setXY(double x, double y) {
-      this.x = x;
-      this.y = y;
-    }
-    
-    public double getDomain() {
-      return x;
-    }
-
-    public double getRange(int index) {
-      if (index == 0) {
-        return y;
-      }
-      throw new UnsupportedOperationException("unsupported tuple index: " + index);
-    }
-
-    public double getRange0() {
-      return y;
-    }
-
-    public int size() {
-      return 2;
-    }
-    
-    public String toString() {
-      return "x=" + (long)x + "; y=" + y;
-    }
-  }
-
   /**
    * Information that is held for a {@link Dataset} while the drawing
    * is planned.
@@ -88,11 +57,28 @@ public class AreaGraph<T extends Tuple2D>
     public Iterator<Tuple2D> iterator;
 
     public int numSamples;
+
+    /**
+     * True if the datapoints are envelopes (see {@link MipMap#isEnvelope()}).
+     */
+    public boolean envelope;
       
     public double getRange() {
       return last.getRange0();
     }
 
+    /**
+     * Returns how far the envelope of the datapoint at the specified domain
+     * reaches below its maximum, or 0 for interpolated values.
+     */
+    public double spreadForDomain(double domain) {
+      if (!envelope || domain != getDomain()) {
+        return 0;
+      }
+      return last.getRange0()
+          - last.getRange(EnvelopeMipMapStrategy.RANGE_MIN);
+    }
+
     public double rangeForDomain(double domain) {
       if (domain == getDomain()) 
 	return getRange();
@@ -128,6 +114,12 @@ public class AreaGraph<T extends Tuple2D>
     public MutableArray1D domainArray = new JavaArray1D();
 
     public Array2D rangeArray = new JavaArray2D();
+
+    /**
+     * The bottom of the envelope of each datapoint, which equals the value
+     * in {@link #rangeArray} unless the datapoint is an envelope.
+     */
+    public Array2D lowArray = new JavaArray2D();
   }
 
   public AreaGraph(ChartUiProps chartUiProps) {
@@ -159,6 +151,7 @@ public class AreaGraph<T extends Tuple2D>
       Iterator<Tuple2D> iterator = bestMipMap.getTupleIterator(
           bestMipMapRegion.getStartIndex());
       plannedDataset.iterator = iterator;
+      plannedDataset.envelope = bestMipMap.isEnvelope();
       plannedDataset.last = plannedDataset.next = iterator.next();
       plannedDataset.numSamples = (bestMipMapRegion.getEndIndex()
           - bestMipMapRegion.getStartIndex());
@@ -186,13 +179,19 @@ public class AreaGraph<T extends Tuple2D>
 	break;
 
       double range = 0.0;
+      double lowest = Double.POSITIVE_INFINITY;
       for (int idx = 0; idx < numDatasets; idx++) {
 	PlannedDataset plannedDataset = plannedDatasets[idx];
 	range += plannedDataset.rangeForDomain(currDomain);
+	final double spread = plannedDataset.spreadForDomain(currDomain);
 	if (plannedDataset.getDomain() == currDomain) {
 	  plannedDataset.calcLineTrend();
 	}
 	planning.rangeArray.set(idx, sampleIdx, range);
+	planning.lowArray.set(idx, sampleIdx, range - spread);
+	if (spread > 0) {
+	  lowest = Math.min(lowest, range - spread);
+	}
       }
 
       if (visRange == null) {
@@ -200,6 +199,9 @@ public class AreaGraph<T extends Tuple2D>
       } else {
 	visRange.expand(range);
       }
+      if (lowest < Double.POSITIVE_INFINITY) {
+	visRange.expand(lowest);
+      }
 
       planning.domainArray.set(sampleIdx, currDomain);
 
@@ -223,7 +225,7 @@ public class AreaGraph<T extends Tuple2D>
 
   private void drawDataset(Planning planning, 
       int datasetIndex) {
-    DrawableDataset dds = drawableDatasets.get(datasetIndex);
+    DrawableDataset<T> dds = drawableDatasets.get(datasetIndex);
     Dataset<T> dataSet = dds.dataset;
     
     if (planning.domainArray.size() < 2) {
@@ -235,12 +237,20 @@ public class AreaGraph<T extends Tuple2D>
     final int numSamples = planning.domainArray.size();
     int methodCallCount = 0;
 
-    LocalTuple curvePt = new LocalTuple();
-
     for (int sampleIdx = 0; sampleIdx < numSamples; sampleIdx++) {
-      curvePt.setXY(planning.domainArray.get(sampleIdx),
-          planning.rangeArray.get(datasetIndex, sampleIdx));
-      drawCurvePart(dds, (T) curvePt, methodCallCount++);
+      final double x = planning.domainArray.get(sampleIdx);
+      final double y = planning.rangeArray.get(datasetIndex, sampleIdx);
+      final double low = planning.lowArray.get(datasetIndex, sampleIdx);
+      methodCallCount = drawVertex(dds, x, y, methodCallCount);
+      if (low < y) {
+        // Stroke down to the bottom of the envelope and back up, so the
+        // area below the curve is still bounded by the maximum.
+        methodCallCount = drawVertex(dds, x, low, methodCallCount);
+        methodCallCount = drawVertex(dds, x, y, methodCallCount);
+      }
+    }
+    if (isPixelColumnReduction()) {
+      flushReducedCurve(dds, methodCallCount);
     }
 
     endCurve(dds);
@@ -0,0 +1,138 @@
+package org.gwt.speedchart.client.graph;
+
+/**
+ * Reduces a curve to at most four vertices per pixel column (the
+ * so-called M4 aggregation): the first, minimum, maximum and last
+ * datapoint of each column, in domain order.  Drawing the reduced curve
+ * gives the same pixels as drawing every datapoint that is fed to it,
+ * since all line segments within a column are covered by the vertical
+ * span between the minimum and the maximum.
+ * <p>
+ * Note that the graphs feed it a mip level of at most a few datapoints
+ * per column rather than the raw data, so the result is only as faithful
+ * as that level: a mean mip level has already averaged away short spikes,
+ * whereas an envelope mip level (see
+ * {@link org.gwt.speedchart.client.data.EnvelopeMipMapStrategy}) keeps
+ * the extremes of the raw data.
+ * <p>
+ * Datapoints are fed one by one with {@link #add}; whenever a column is
+ * completed its vertices become available through {@link #getX(int)} and
+ * {@link #getY(int)}.
+ */
+final class PixelColumnReducer {
+
+  private static final int MAX_VERTICES = 4;
+
+  private final double[] vertexX = new double[MAX_VERTICES];
+
+  private final double[] vertexY = new double[MAX_VERTICES];
+
+  private int column;
+
+  private int count;
+
+  private double firstX, firstY, lastX, lastY;
+
+  private double minX, minY, maxX, maxY;
+
+  private int minSeq, maxSeq;
+
+  /**
+   * Discards any state from a previous curve.
+   */
+  public void reset() {
+    count = 0;
+  }
+
+  /**
+   * Adds a datapoint that falls within the specified pixel column.
+   * Datapoints must be added in domain order.
+   *
+   * @return the number of vertices emitted for the previous column, which
+   *     is non-zero only if <tt>column</tt> starts a new column.
+   */
+  public int add(int column, double x, double y) {
+    int numVertices = 0;
+    if (count > 0 && column != this.column) {
+      numVertices = emit();
+    }
+
+    if (count == 0) {
+      this.column = column;
+      firstX = minX = maxX = x;
+      firstY = minY = maxY = y;
+      minSeq = maxSeq = 0;
+    } else {
+      if (y < minY) {
+        minX = x;
+        minY = y;
+        minSeq = count;
+      }
+      if (y > maxY) {
+        maxX = x;
+        maxY = y;
+        maxSeq = count;
+      }
+    }
+    lastX = x;
+    lastY = y;
+    count++;
+
+    return numVertices;
+  }
+
+  /**
+   * Emits the vertices of the last column.
+   *
+   * @return the number of emitted vertices.
+   */
+  public int flush() {
+    return (count > 0) ? emit() : 0;
+  }
+
+  public double getX(int vertexIndex) {
+    return vertexX[vertexIndex];
+  }
+
+  public double getY(int vertexIndex) {
+    return vertexY[vertexIndex];
+  }
+
+  private int emit() {
+    final int lastSeq = count - 1;
+    int n = 0;
+
+    vertexX[n] = firstX;
+    vertexY[n++] = firstY;
+
+    // Emit the extremes in the order they occurred, skipping the ones that
+    // coincide with the first or last datapoint.
+    int seq1 = Math.min(minSeq, maxSeq);
+    int seq2 = Math.max(minSeq, maxSeq);
+    if (seq1 != 0 && seq1 != lastSeq) {
+      n = emitExtreme(n, seq1);
+    }
+    if (seq2 != seq1 && seq2 != 0 && seq2 != lastSeq) {
+      n = emitExtreme(n, seq2);
+    }
+
+    if (lastSeq != 0) {
+      vertexX[n] = lastX;
+      vertexY[n++] = lastY;
+    }
+
+    count = 0;
+    return n;
+  }
+
+  private int emitExtreme(int n, int seq) {
+    if (seq == minSeq) {
+      vertexX[n] = minX;
+      vertexY[n] = minY;
+    } else {
+      vertexX[n] = maxX;
+      vertexY[n] = maxY;
+    }
+    return n + 1;
+  }
+}
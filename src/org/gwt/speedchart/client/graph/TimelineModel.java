@@ -19,6 +19,7 @@ import com.google.gwt.user.client.Timer;
 import org.gwt.speedchart.client.util.Interval;
 import org.gwt.speedchart.client.Dataset;
 import org.gwt.speedchart.client.data.DatasetListener;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,7 +30,8 @@ import com.allen_sauer.gwt.log.client.Log;
  * Update, zoom and tick logic for TimeLines. This class is responsible for
  * updating the bounds of {@link AbstractGraph}s.
  */
-public class TimelineModel implements Boundable, DatasetListener  {
+public class TimelineModel implements Boundable,
+    DatasetListener<Tuple2D> {
   /**
    * Interface for receiving notification of timeline bounds changes for the
    * currently viewed window.
@@ -151,7 +153,7 @@ public class TimelineModel implements Boundable, DatasetListener  {
   /**
    * Update timeline model based on the new dataset.
    */
-  public void onDatasetAdded(Dataset dataset) {
+  public void onDatasetAdded(Dataset<Tuple2D> dataset) {
     Interval extrema = dataset.getDomainExtrema();
     updateBounds(Math.min(leftBound, extrema.getStart()),
         Math.max(rightBound, extrema.getEnd()));
@@ -159,7 +161,7 @@ public class TimelineModel implements Boundable, DatasetListener  {
         extrema.getEnd());
   }
 
-  public void onDatasetRemoved(Dataset dataset) {
+  public void onDatasetRemoved(Dataset<Tuple2D> dataset) {
   }
 
   /**
@@ -168,7 +170,7 @@ public class TimelineModel implements Boundable, DatasetListener  {
    * tick, so we determine here if we should restart the timer and
    * mark the graph as dirty.
    */
-  public void onDatasetChanged(Dataset dataset, double domainStart, 
+  public void onDatasetChanged(Dataset<Tuple2D> dataset, double domainStart, 
       double domainEnd) {
     mostRecentDomainValue = Math.max(mostRecentDomainValue, domainEnd);
     if (mostRecentDomainValue <= getRightBound() || showStreaming) {
@@ -39,7 +39,9 @@ public interface Array1D {
    * a growable array.
    * <p>
    * This method should only be used when maximum performance 
-   * is needed.
+   * is needed.  It is an optional operation; arrays whose values
+   * are not stored contiguously throw an 
+   * {@link UnsupportedOperationException}.
    */
   double[] backingArray();
   
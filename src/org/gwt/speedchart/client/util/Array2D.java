@@ -40,6 +40,13 @@ public interface Array2D {
    */
   public void addRowByValue(double[] row);
 
+  /**
+   * Ensures that the specified (existing) row can hold at least
+   * <tt>numColumns</tt> columns without having to grow again.  Useful
+   * before appending many values to a row.
+   */
+  void ensureCapacity(int rowIdx, int numColumns);
+
   /**
    * Returns the value at the specified row and column
    */
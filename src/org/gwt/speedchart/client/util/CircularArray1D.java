@@ -0,0 +1,101 @@
+package org.gwt.speedchart.client.util;
+
+/**
+ * Growable {@link MutableArray1D} backed by a circular buffer, so that
+ * values can be appended at the end and removed from the start in O(1).
+ * <p>
+ * The values are not contiguous in the backing buffer, so
+ * {@link #backingArray()} is not supported.
+ */
+public final class CircularArray1D implements MutableArray1D {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * Backing buffer; its length is always a power of two.
+   */
+  private double[] buffer = new double[INITIAL_CAPACITY];
+
+  /**
+   * Index within {@link #buffer} of element 0.
+   */
+  private int head;
+
+  private int size;
+
+  /**
+   * Appends the specified value to the end of this array.
+   */
+  public void add(double value) {
+    if (size == buffer.length) {
+      grow();
+    }
+    buffer[(head + size) & (buffer.length - 1)] = value;
+    size++;
+  }
+
+  /**
+   * Removes the first <tt>count</tt> values from this array.
+   */
+  public void removeFirst(int count) {
+    ArgChecker.isInRange(count, 0, size, "count");
+    head = (head + count) & (buffer.length - 1);
+    size -= count;
+  }
+
+  /**
+   * Not supported, since the values are not contiguous.
+   *
+   * @throws UnsupportedOperationException
+   */
+  public double[] backingArray() {
+    throw new UnsupportedOperationException("backingArray()");
+  }
+
+  public double get(int index) {
+    assert MathUtil.isBounded(index, 0, size - 1)
+      : "index out of bounds: " + index;
+    return buffer[(head + index) & (buffer.length - 1)];
+  }
+
+  public double getLast() {
+    if (size == 0) {
+      throw new IllegalStateException("array is empty");
+    }
+    return get(size - 1);
+  }
+
+  public void set(int index, double value) {
+    if (!MathUtil.isBounded(index, 0, size - 1)) {
+      throw new IndexOutOfBoundsException("index out of bounds: " + index);
+    }
+    buffer[(head + index) & (buffer.length - 1)] = value;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void execFunction(ArrayFunction f) {
+    f.exec(toArray(), size);
+  }
+
+  public double[] toArray() {
+    double[] array = new double[size];
+    final int firstPart = Math.min(size, buffer.length - head);
+    System.arraycopy(buffer, head, array, 0, firstPart);
+    System.arraycopy(buffer, 0, array, firstPart, size - firstPart);
+    return array;
+  }
+
+  private void grow() {
+    double[] newBuffer = toArray();
+    buffer = new double[buffer.length * 2];
+    System.arraycopy(newBuffer, 0, buffer, 0, size);
+    head = 0;
+  }
+}
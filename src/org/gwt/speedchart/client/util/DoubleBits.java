@@ -0,0 +1,101 @@
+package org.gwt.speedchart.client.util;
+
+/**
+ * Conversions between a double and its IEEE 754 bit pattern, computed
+ * with arithmetic only, since the GWT JRE emulation provides neither
+ * {@link Double#doubleToLongBits(double)} nor
+ * {@link Double#longBitsToDouble(long)}.
+ * <p>
+ * The conversions are exact for every value, including subnormals,
+ * infinities and negative zero; all NaNs map to the canonical NaN.
+ */
+public final class DoubleBits {
+
+  private static final int MIN_EXPONENT = -1074;
+
+  private static final int MAX_EXPONENT = 1023;
+
+  /**
+   * 2^(i + MIN_EXPONENT) for every exponent of a double.
+   */
+  private static final double[] POW2 =
+      new double[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+  static {
+    POW2[-MIN_EXPONENT] = 1.0;
+    for (int i = -MIN_EXPONENT + 1; i < POW2.length; i++) {
+      POW2[i] = POW2[i - 1] * 2;
+    }
+    for (int i = -MIN_EXPONENT - 1; i >= 0; i--) {
+      POW2[i] = POW2[i + 1] / 2;
+    }
+  }
+
+  private static final double TWO_52 = pow2(52);
+
+  private static final long EXPONENT_MASK = 0x7ff0000000000000L;
+
+  private static final long MANTISSA_MASK = 0x000fffffffffffffL;
+
+  private static final long CANONICAL_NAN = 0x7ff8000000000000L;
+
+  private DoubleBits() {
+  }
+
+  /**
+   * Returns the bit pattern of the specified value, as
+   * {@link Double#doubleToLongBits(double)} does.
+   */
+  public static long doubleToLongBits(double value) {
+    if (value != value) {
+      return CANONICAL_NAN;
+    }
+    final long sign = (value < 0 || (value == 0 && 1 / value < 0))
+        ? Long.MIN_VALUE : 0L;
+    final double abs = Math.abs(value);
+    if (abs == 0) {
+      return sign;
+    }
+    if (abs == Double.POSITIVE_INFINITY) {
+      return sign | EXPONENT_MASK;
+    }
+    if (abs < pow2(-1022)) {
+      // Subnormal: the mantissa is abs / 2^-1074.
+      return sign | (long) (abs * pow2(1022) * TWO_52);
+    }
+
+    int exponent = (int) Math.floor(Math.log(abs) / Math.log(2));
+    exponent = MathUtil.bound(exponent, -1022, MAX_EXPONENT);
+    // Math.log is not exact, so correct the estimate.
+    while (exponent < MAX_EXPONENT && pow2(exponent + 1) <= abs) {
+      exponent++;
+    }
+    while (exponent > -1022 && pow2(exponent) > abs) {
+      exponent--;
+    }
+    final long mantissa = (long) ((abs / pow2(exponent) - 1) * TWO_52);
+    return sign | ((long) (exponent + MAX_EXPONENT) << 52) | mantissa;
+  }
+
+  /**
+   * Returns the double with the specified bit pattern, as
+   * {@link Double#longBitsToDouble(long)} does.
+   */
+  public static double longBitsToDouble(long bits) {
+    final int exponent = (int) ((bits & EXPONENT_MASK) >>> 52);
+    final long mantissa = bits & MANTISSA_MASK;
+    double abs;
+    if (exponent == 0x7ff) {
+      abs = (mantissa == 0) ? Double.POSITIVE_INFINITY : Double.NaN;
+    } else if (exponent == 0) {
+      abs = mantissa * pow2(MIN_EXPONENT);
+    } else {
+      abs = (TWO_52 + mantissa) * pow2(exponent - MAX_EXPONENT - 52);
+    }
+    return (bits < 0) ? -abs : abs;
+  }
+
+  private static double pow2(int exponent) {
+    return POW2[exponent - MIN_EXPONENT];
+  }
+}
@@ -0,0 +1,42 @@
+package org.gwt.speedchart.client.util;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+/**
+ * {@link TaskScheduler} that runs tasks through
+ * {@link Scheduler#scheduleIncremental(RepeatingCommand)}, which executes
+ * slices until its time budget is spent and then yields to the browser,
+ * and delayed tasks through
+ * {@link Scheduler#scheduleFixedDelay(RepeatingCommand, int)}.
+ */
+public final class GwtTaskScheduler implements TaskScheduler {
+
+  public static final TaskScheduler INSTANCE = new GwtTaskScheduler();
+
+  private GwtTaskScheduler() {
+  }
+
+  public void scheduleIncremental(final IncrementalTask task) {
+    ArgChecker.isNotNull(task, "task");
+    Scheduler.get().scheduleIncremental(new RepeatingCommand() {
+      public boolean execute() {
+        return task.execute();
+      }
+    });
+  }
+
+  public void scheduleDelayed(final IncrementalTask task, int delayMillis) {
+    ArgChecker.isNotNull(task, "task");
+    ArgChecker.isNonNegative(delayMillis, "delayMillis");
+    Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+      public boolean execute() {
+        return task.execute();
+      }
+    }, delayMillis);
+  }
+
+  public long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+}
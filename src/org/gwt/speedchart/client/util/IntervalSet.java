@@ -1,93 +1,341 @@
 package org.gwt.speedchart.client.util;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Iterator;
-import java.util.Collections;
+import java.util.NoSuchElementException;
 
+/**
+ * Set of disjoint intervals, kept as sorted arrays of start and end values.
+ * Overlapping or adjacent intervals are joined as they are added, so that
+ * the intervals in the set never touch each other.
+ * <p>
+ * Lookups ({@link #covers(Interval)}) are a binary search and do not
+ * allocate anything; {@link #add(Interval)} and {@link #remove(Interval)}
+ * are a binary search followed by a single array copy.
+ */
+public class IntervalSet implements Iterable<Interval> {
 
-public class IntervalSet implements Iterable<Interval>{
+  private double[] starts;
 
-  private List<Interval> intervals = new ArrayList<Interval>();;
+  private double[] ends;
+
+  private int size;
 
   public IntervalSet() {
+    starts = new double[4];
+    ends = new double[4];
   }
 
   public IntervalSet(IntervalSet other) {
-    for (Interval i : other)
-      add(i);
+    ArgChecker.isNotNull(other, "other");
+    starts = copyOf(other.starts, Math.max(4, other.size));
+    ends = copyOf(other.ends, Math.max(4, other.size));
+    size = other.size;
   }
 
   public Iterator<Interval> iterator() {
-    return intervals.iterator();
+    return new Iterator<Interval>() {
+      int idx = 0;
+
+      public boolean hasNext() {
+        return idx < size;
+      }
+
+      public Interval next() {
+        if (idx >= size) {
+          throw new NoSuchElementException();
+        }
+        return get(idx++);
+      }
+
+      public void remove() {
+        throw new UnsupportedOperationException("remove()");
+      }
+    };
   }
-  
+
+  /**
+   * Adds the specified interval to this set, joining it with any intervals
+   * that it overlaps or is adjacent to.  Empty intervals are ignored.
+   */
   public void add(Interval r) {
-    if (r.length() != 0) {
-      List<Interval> newIntervals = new ArrayList<Interval>();
-
-      for (Interval i : intervals) {
-	if (i.overlaps(r) || i.adjacentTo(r))
-	  r = r.join(i);
-	else
-	  newIntervals.add(i);
-      }
-      newIntervals.add(r);
-      Collections.sort(newIntervals);
-      this.intervals = newIntervals;
+    add(r.getStart(), r.getEnd());
+  }
+
+  public void add(double start, double end) {
+    if (!(end > start)) {
+      return;
+    }
+
+    final int lo = findFirstEndingAtOrAfter(start);
+    final int hi = findFirstStartingAfter(end, lo);
+    if (lo < hi) {
+      start = Math.min(start, starts[lo]);
+      end = Math.max(end, ends[hi - 1]);
+    }
+    splice(lo, hi, 1);
+    starts[lo] = start;
+    ends[lo] = end;
+  }
+
+  /**
+   * Removes the specified interval from this set, shortening or splitting
+   * the intervals that it overlaps.
+   */
+  public void remove(Interval r) {
+    remove(r.getStart(), r.getEnd());
+  }
+
+  public void remove(double start, double end) {
+    if (!(end > start)) {
+      return;
+    }
+
+    // Intervals that overlap (start, end) by more than an endpoint
+    final int lo = findFirstEndingAfter(start);
+    final int hi = findFirstStartingAtOrAfter(end, lo);
+    if (lo == hi) {
+      return;
     }
+
+    final double leftStart = starts[lo];
+    final double rightEnd = ends[hi - 1];
+    final boolean hasLeft = leftStart < start;
+    final boolean hasRight = rightEnd > end;
+
+    int idx = lo;
+    splice(lo, hi, (hasLeft ? 1 : 0) + (hasRight ? 1 : 0));
+    if (hasLeft) {
+      starts[idx] = leftStart;
+      ends[idx] = start;
+      idx++;
+    }
+    if (hasRight) {
+      starts[idx] = end;
+      ends[idx] = rightEnd;
+    }
+  }
+
+  /**
+   * Removes all intervals from this set.
+   */
+  public void clear() {
+    size = 0;
+  }
+
+  /**
+   * Returns true if the specified interval lies entirely within a single
+   * interval of this set.  Empty intervals are always covered.
+   */
+  public boolean covers(Interval r) {
+    return covers(r.getStart(), r.getEnd());
+  }
+
+  public boolean covers(double start, double end) {
+    if (!(end > start)) {
+      return true;
+    }
+    // Intervals are disjoint, so only the first one reaching end can cover
+    // the whole of [start, end].
+    final int i = findFirstEndingAtOrAfter(end);
+    return i < size && starts[i] <= start;
+  }
+
+  /**
+   * Returns a new {@link IntervalSet} holding the parts of <tt>region</tt>
+   * that are not covered by this set.
+   */
+  public IntervalSet getGaps(Interval region) {
+    IntervalSet result = new IntervalSet();
+    appendGaps(region.getStart(), region.getEnd(), result);
+    return result;
   }
 
   /**
-   * Return a new {@link IntervalSet} that holds the intervals that is
-   * present in the other set but that is not in this set.
+   * Returns a new {@link IntervalSet} holding the parts of the intervals of
+   * this set that are not in the other set.
    */
   public IntervalSet difference(IntervalSet other) {
+    ArgChecker.isNotNull(other, "other");
+    IntervalSet result = new IntervalSet();
+    for (int i = 0; i < size; i++) {
+      other.appendGaps(starts[i], ends[i], result);
+    }
+    return result;
+  }
 
-    IntervalSet result = new IntervalSet(this);
-
-    for (Interval j : other) {
-      IntervalSet temp = new IntervalSet();
-      for (Interval i : result) {
-	if (i.overlaps(j)) {
-	  if (i.contains(j))
-	    continue;
-	  else if (j.contains(i)) {
-	    if (i.getStart() < j.getStart()) {
-	      System.out.println("add11: " + new Interval(i.getStart(), j.getStart()));
-	      temp.add(new Interval(i.getStart(), j.getStart()));
-	    }
-	    if (j.getEnd() < i.getEnd()) {
-	      System.out.println("add12: " + new Interval(j.getEnd(), i.getEnd()));
-	      temp.add(new Interval(j.getEnd(), i.getEnd()));
-	    }
-	  } else if (j.comesBefore(i)) {
-	      System.out.println("add2: " + new Interval(j.getEnd(), i.getEnd()));
-	    temp.add(new Interval(j.getEnd(), i.getEnd()));
-	  } else {
-	      System.out.println("add3: " + new Interval(i.getStart(), j.getStart()));
-	    temp.add(new Interval(i.getStart(), j.getStart()));
-	  }
-	} else {
-	  temp.add(i.copy());
-	}
+  /**
+   * Returns a new {@link IntervalSet} holding the parts of the intervals of
+   * this set that are also in the other set.
+   */
+  public IntervalSet intersection(IntervalSet other) {
+    ArgChecker.isNotNull(other, "other");
+    IntervalSet result = new IntervalSet();
+    // Single merge pass; the interval that ends first cannot overlap any
+    // later interval of the other set.
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      final double start = Math.max(starts[i], other.starts[j]);
+      final double end = Math.min(ends[i], other.ends[j]);
+      if (end > start) {
+        result.append(start, end);
+      }
+      if (ends[i] < other.ends[j]) {
+        i++;
+      } else {
+        j++;
       }
-      result = temp;
     }
-    
     return result;
   }
 
   public String toString() {
-    return intervals.toString();
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append("[").append(starts[i]).append(", ").append(ends[i]).append("]");
+    }
+    return sb.append("]").toString();
   }
 
   public int size() {
-    return intervals.size();
+    return size;
   }
 
   public Interval get(int idx) {
-    return intervals.get(idx);
+    if (!MathUtil.isBounded(idx, 0, size - 1)) {
+      throw new IndexOutOfBoundsException("idx=" + idx + ", size=" + size);
+    }
+    return new Interval(starts[idx], ends[idx]);
+  }
+
+  /**
+   * Appends the parts of [start, end] that are not covered by this set to
+   * <tt>result</tt>, whose intervals must all lie before <tt>start</tt>.
+   */
+  private void appendGaps(double start, double end, IntervalSet result) {
+    if (!(end > start)) {
+      return;
+    }
+    double gapStart = start;
+    for (int i = findFirstEndingAfter(start); i < size && starts[i] < end;
+        i++) {
+      if (starts[i] > gapStart) {
+        result.add(gapStart, starts[i]);
+      }
+      gapStart = ends[i];
+    }
+    if (end > gapStart) {
+      result.add(gapStart, end);
+    }
+  }
+
+  /**
+   * Appends an interval that lies after all intervals of this set, and
+   * does not touch the last of them.
+   */
+  private void append(double start, double end) {
+    splice(size, size, 1);
+    starts[size - 1] = start;
+    ends[size - 1] = end;
+  }
+
+  /**
+   * Returns the index of the first interval whose end is >= value, or
+   * {@link #size()} if there is no such interval.
+   */
+  private int findFirstEndingAtOrAfter(double value) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ends[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first interval whose end is > value, or
+   * {@link #size()} if there is no such interval.
+   */
+  private int findFirstEndingAfter(double value) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ends[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first interval at or after <tt>from</tt> whose
+   * start is > value, or {@link #size()} if there is no such interval.
+   */
+  private int findFirstStartingAfter(double value, int from) {
+    int low = from;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (starts[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the index of the first interval at or after <tt>from</tt> whose
+   * start is >= value, or {@link #size()} if there is no such interval.
+   */
+  private int findFirstStartingAtOrAfter(double value, int from) {
+    int low = from;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (starts[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Replaces the intervals at [lo, hi) with <tt>count</tt> unassigned
+   * slots.
+   */
+  private void splice(int lo, int hi, int count) {
+    final int newSize = size - (hi - lo) + count;
+    if (newSize > starts.length) {
+      int capacity = Math.max(newSize, starts.length * 2);
+      starts = copyOf(starts, capacity);
+      ends = copyOf(ends, capacity);
+    }
+    final int tail = size - hi;
+    if (tail > 0 && hi != lo + count) {
+      System.arraycopy(starts, hi, starts, lo + count, tail);
+      System.arraycopy(ends, hi, ends, lo + count, tail);
+    }
+    size = newSize;
   }
 
-}
\ No newline at end of file
+  private static double[] copyOf(double[] a, int newLength) {
+    double[] copy = new double[newLength];
+    System.arraycopy(a, 0, copy, 0, Math.min(a.length, newLength));
+    return copy;
+  }
+}
@@ -51,7 +51,11 @@ public final class JavaArray1D implements MutableArray1D {
     return size == 0;
   }
 
-  private void ensureCapacity(int idx) {
+  /**
+   * Ensures that the value at index <tt>idx</tt> can be assigned without
+   * growing the backing array.
+   */
+  public void ensureCapacity(int idx) {
     int capacity = backingArray.length;
     boolean needMoreRowCapacity = (idx >= capacity);
 
@@ -61,6 +65,7 @@ public final class JavaArray1D implements MutableArray1D {
       
       System.arraycopy(backingArray, 0, newBackingArray, 0,
          capacity);
+      backingArray = newBackingArray;
     }
   }
 
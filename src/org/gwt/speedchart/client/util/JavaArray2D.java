@@ -113,6 +113,12 @@ public final class JavaArray2D implements Array2D {
     addRowByRef(Util.copyArray(row));
   }
   
+  public void ensureCapacity(int rowIdx, int numColumns) {
+    assert MathUtil.isBounded(rowIdx, 0, rowCount - 1) 
+      : "row out of bounds: " + rowIdx;
+    ensureColumnCapacity(rowIdx, numColumns - 1);
+  }
+  
   /**
    * Returns the value at the specified row and column
    */
@@ -192,7 +198,14 @@ public final class JavaArray2D implements Array2D {
    */
   public void set(int rowIdx, int colIdx, double value) {
     ensureRowCapacity(rowIdx);
-    
+    ensureColumnCapacity(rowIdx, colIdx);
+
+    columnCounts[rowIdx] = Math.max(columnCounts[rowIdx], colIdx + 1);
+
+    a[rowIdx][colIdx] = value;
+  }
+  
+  private void ensureColumnCapacity(int rowIdx, int colIdx) {
     int colCapacity = a[rowIdx].length;
     boolean needMoreColumnCapacity = (colIdx >= colCapacity);
     if (needMoreColumnCapacity) {
@@ -202,10 +215,6 @@ public final class JavaArray2D implements Array2D {
       System.arraycopy(row, 0, newRow, 0, row.length);
       a[rowIdx] = newRow;
     }
-
-    columnCounts[rowIdx] = Math.max(columnCounts[rowIdx], colIdx + 1);
-
-    a[rowIdx][colIdx] = value;
   }
   
   private void ensureRowCapacity(int rowIdx) {
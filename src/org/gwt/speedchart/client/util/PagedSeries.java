@@ -0,0 +1,461 @@
+package org.gwt.speedchart.client.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Series of (x, y) datapoints in ascending x order, stored in fixed-size
+ * pages rather than in a single pair of arrays, so that a chunk of
+ * datapoints can be inserted in the middle without copying the whole
+ * series.
+ * <p>
+ * The pages are indexed by the global index of their first datapoint, so
+ * that a datapoint is located by a binary search over the pages followed by
+ * one within a page.  Inserting a chunk of k datapoints costs O(k + p),
+ * where p is the number of pages (and is only touched to update the
+ * index).
+ * <p>
+ * Neighbouring pages that fit into a single page are merged after each
+ * insertion or removal, so that removals and splits do not leave the series
+ * fragmented into many small pages; any two neighbouring pages hold more
+ * than a page's worth of datapoints between them.
+ * <p>
+ * {@link #getDomain()} and {@link #getRange()} are live views of the
+ * series, and reflect later insertions and removals.
+ */
+public final class PagedSeries {
+
+  /**
+   * The maximum number of datapoints per page.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 4096;
+
+  private static final class Page {
+    final double[] x;
+    final double[] y;
+    int size;
+
+    Page(int capacity) {
+      x = new double[capacity];
+      y = new double[capacity];
+    }
+
+    double getLastX() {
+      return x[size - 1];
+    }
+  }
+
+  private final class DomainView extends View implements SortedArray1D {
+    public double get(int index) {
+      Page page = findPage(index);
+      return page.x[index - cachedPageStart];
+    }
+
+    public int search(double value) {
+      return MathUtil.bound(countLessThan(value), 0, size - 1);
+    }
+  }
+
+  private final class RangeView extends View {
+    public double get(int index) {
+      Page page = findPage(index);
+      return page.y[index - cachedPageStart];
+    }
+  }
+
+  private abstract class View implements Array1D {
+    /**
+     * Not supported, since the values are not contiguous.
+     *
+     * @throws UnsupportedOperationException
+     */
+    public double[] backingArray() {
+      throw new UnsupportedOperationException("backingArray()");
+    }
+
+    public double getLast() {
+      if (size == 0) {
+        throw new IllegalStateException("array is empty");
+      }
+      return get(size - 1);
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    public void execFunction(ArrayFunction f) {
+      f.exec(toArray(), size);
+    }
+
+    public double[] toArray() {
+      double[] a = new double[size];
+      for (int i = 0; i < size; i++) {
+        a[i] = get(i);
+      }
+      return a;
+    }
+  }
+
+  private final int pageSize;
+
+  private final List<Page> pages = new ArrayList<Page>();
+
+  /**
+   * Global index of the first datapoint of each page; only valid if
+   * {@link #pageStartValid} is true.
+   */
+  private int[] pageStart = new int[4];
+
+  private boolean pageStartValid = true;
+
+  private int size;
+
+  // The page most recently located by findPage(), so that sequential
+  // access does not need a binary search per datapoint.
+  private int cachedPageIdx = -1;
+  private int cachedPageStart;
+
+  private final DomainView domainView = new DomainView();
+
+  private final RangeView rangeView = new RangeView();
+
+  public PagedSeries() {
+    this(DEFAULT_PAGE_SIZE);
+  }
+
+  public PagedSeries(int pageSize) {
+    ArgChecker.isGT(pageSize, 0, "pageSize");
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * Returns a live view of the x values of this series.
+   */
+  public SortedArray1D getDomain() {
+    return domainView;
+  }
+
+  /**
+   * Returns a live view of the y values of this series.
+   */
+  public Array1D getRange() {
+    return rangeView;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int getNumPages() {
+    return pages.size();
+  }
+
+  /**
+   * Returns the number of datapoints the allocated pages can hold, which
+   * is what the series costs in memory.
+   */
+  public int getCapacity() {
+    return pages.size() * pageSize;
+  }
+
+  /**
+   * Inserts the specified datapoints, whose x values must be in ascending
+   * order, replacing any existing datapoints whose x value lies
+   * within <tt>[xs[0], xs[xs.length - 1]]</tt>.
+   */
+  public void insert(double[] xs, double[] ys) {
+    ArgChecker.isNotNull(xs, "xs");
+    ArgChecker.isNotNull(ys, "ys");
+    if (xs.length != ys.length) {
+      throw new IllegalArgumentException("xs.length != ys.length: "
+          + xs.length + ", " + ys.length);
+    }
+    if (xs.length == 0) {
+      return;
+    }
+    for (int i = 1; i < xs.length; i++) {
+      if (xs[i] < xs[i - 1]) {
+        throw new IllegalArgumentException("xs not in ascending order at "
+            + i + ": " + xs[i - 1] + ", " + xs[i]);
+      }
+    }
+
+    remove(xs[0], xs[xs.length - 1]);
+    insertAt(countLessThan(xs[0]), xs, ys);
+  }
+
+  /**
+   * Removes the datapoints whose x value lies within <tt>[start, end]</tt>.
+   */
+  public void remove(double start, double end) {
+    if (end < start || size == 0) {
+      return;
+    }
+    removeRange(countLessThan(start), countLessThanOrEqual(end));
+  }
+
+  /**
+   * Removes the datapoints whose x value lies within <tt>(start, end)</tt>,
+   * keeping those at <tt>start</tt> and <tt>end</tt>.
+   */
+  public void removeBetween(double start, double end) {
+    if (end <= start || size == 0) {
+      return;
+    }
+    removeRange(countLessThanOrEqual(start), countLessThan(end));
+  }
+
+  /**
+   * Returns the number of datapoints whose x value lies within
+   * <tt>[start, end]</tt>.
+   */
+  public int count(double start, double end) {
+    if (end < start) {
+      return 0;
+    }
+    return countLessThanOrEqual(end) - countLessThan(start);
+  }
+
+  /**
+   * Returns the number of datapoints whose x value is < value, i.e. the
+   * index of the first datapoint whose x value is >= value.
+   */
+  public int countLessThan(double value) {
+    int low = 0;
+    int high = pages.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (pages.get(mid).getLastX() < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    if (low == pages.size()) {
+      return size;
+    }
+
+    Page page = pages.get(low);
+    int lo = 0;
+    int hi = page.size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (page.x[mid] < value) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return getPageStart(low) + lo;
+  }
+
+  /**
+   * Returns the number of datapoints whose x value is <= value, i.e. the
+   * index of the first datapoint whose x value is > value.
+   */
+  public int countLessThanOrEqual(double value) {
+    int idx = countLessThan(value);
+    if (idx < size && domainView.get(idx) == value) {
+      idx++;
+    }
+    return idx;
+  }
+
+  /**
+   * Returns the page holding the datapoint at the specified index, and
+   * caches its position in {@link #cachedPageIdx} and
+   * {@link #cachedPageStart}.
+   */
+  private Page findPage(int index) {
+    assert MathUtil.isBounded(index, 0, size - 1)
+      : "index out of bounds: " + index;
+    if (cachedPageIdx >= 0) {
+      Page cached = pages.get(cachedPageIdx);
+      if (index >= cachedPageStart && index < cachedPageStart + cached.size) {
+        return cached;
+      }
+    }
+
+    validatePageStart();
+    cachedPageIdx = findPageIndex(index);
+    cachedPageStart = pageStart[cachedPageIdx];
+    return pages.get(cachedPageIdx);
+  }
+
+  private int getPageStart(int pageIdx) {
+    validatePageStart();
+    return pageStart[pageIdx];
+  }
+
+  private void validatePageStart() {
+    if (pageStartValid) {
+      return;
+    }
+    if (pageStart.length < pages.size()) {
+      pageStart = new int[Math.max(pages.size(), pageStart.length * 2)];
+    }
+    int start = 0;
+    for (int i = 0; i < pages.size(); i++) {
+      pageStart[i] = start;
+      start += pages.get(i).size;
+    }
+    pageStartValid = true;
+  }
+
+  private void invalidatePageStart() {
+    pageStartValid = false;
+    cachedPageIdx = -1;
+  }
+
+  /**
+   * Removes the datapoints at the global indexes <tt>[from, to)</tt>.
+   */
+  private void removeRange(int from, int to) {
+    if (from >= to) {
+      return;
+    }
+    validatePageStart();
+
+    final int firstPageIdx = findPageIndex(from);
+    int pageIdx = firstPageIdx;
+    int offset = from - pageStart[pageIdx];
+    int remaining = to - from;
+    while (remaining > 0) {
+      Page page = pages.get(pageIdx);
+      int n = Math.min(remaining, page.size - offset);
+      int tail = page.size - offset - n;
+      System.arraycopy(page.x, offset + n, page.x, offset, tail);
+      System.arraycopy(page.y, offset + n, page.y, offset, tail);
+      page.size -= n;
+      remaining -= n;
+      if (page.size == 0) {
+        pages.remove(pageIdx);
+      } else {
+        pageIdx++;
+      }
+      offset = 0;
+    }
+    size -= to - from;
+    // The first and last page of the removed datapoints may have shrunk,
+    // and the last one now follows the first.
+    mergePages(firstPageIdx - 1, firstPageIdx + 2);
+    invalidatePageStart();
+  }
+
+  /**
+   * Inserts the specified datapoints at the specified global index.  The
+   * page holding that index is split, and the datapoints after the split
+   * are appended after the inserted ones.
+   */
+  private void insertAt(int index, double[] xs, double[] ys) {
+    int pageIdx;
+    double[] tailX = null;
+    double[] tailY = null;
+    if (pages.isEmpty()) {
+      pages.add(new Page(pageSize));
+      pageIdx = 0;
+    } else if (index == size) {
+      pageIdx = pages.size() - 1;
+    } else {
+      validatePageStart();
+      pageIdx = findPageIndex(index);
+      Page page = pages.get(pageIdx);
+      int offset = index - pageStart[pageIdx];
+      if (offset == 0 && pageIdx > 0) {
+        // Append to the end of the previous page instead of splitting.
+        pageIdx--;
+        page = pages.get(pageIdx);
+        offset = page.size;
+      }
+      int tailSize = page.size - offset;
+      tailX = new double[tailSize];
+      tailY = new double[tailSize];
+      System.arraycopy(page.x, offset, tailX, 0, tailSize);
+      System.arraycopy(page.y, offset, tailY, 0, tailSize);
+      page.size = offset;
+    }
+
+    final int firstPageIdx = pageIdx;
+    pageIdx = append(pageIdx, xs, ys);
+    if (tailX != null) {
+      pageIdx = append(pageIdx, tailX, tailY);
+    }
+    size += xs.length;
+    // The split page, and the last page of the inserted datapoints, may be
+    // underfull.
+    mergePages(firstPageIdx - 1, pageIdx + 1);
+    invalidatePageStart();
+  }
+
+  /**
+   * Merges each page within <tt>[fromPageIdx, toPageIdx]</tt> with the
+   * page after it, for as long as the two fit into a single page.
+   */
+  private void mergePages(int fromPageIdx, int toPageIdx) {
+    int pageIdx = Math.max(0, fromPageIdx);
+    int last = Math.min(toPageIdx, pages.size() - 1);
+    while (pageIdx < last) {
+      Page page = pages.get(pageIdx);
+      Page next = pages.get(pageIdx + 1);
+      if (page.size + next.size <= pageSize) {
+        System.arraycopy(next.x, 0, page.x, page.size, next.size);
+        System.arraycopy(next.y, 0, page.y, page.size, next.size);
+        page.size += next.size;
+        pages.remove(pageIdx + 1);
+        last--;
+      } else {
+        pageIdx++;
+      }
+    }
+  }
+
+  /**
+   * Appends the specified datapoints to the page at <tt>pageIdx</tt>,
+   * inserting new pages after it as the page fills up.
+   *
+   * @return the index of the page holding the last appended datapoint.
+   */
+  private int append(int pageIdx, double[] xs, double[] ys) {
+    Page page = pages.get(pageIdx);
+    int pos = 0;
+    while (pos < xs.length) {
+      if (page.size == pageSize) {
+        page = new Page(pageSize);
+        pages.add(++pageIdx, page);
+      }
+      int n = Math.min(xs.length - pos, pageSize - page.size);
+      System.arraycopy(xs, pos, page.x, page.size, n);
+      System.arraycopy(ys, pos, page.y, page.size, n);
+      page.size += n;
+      pos += n;
+    }
+    return pageIdx;
+  }
+
+  /**
+   * Returns the index of the page holding the datapoint at the specified
+   * global index.  {@link #pageStart} must be valid.
+   */
+  private int findPageIndex(int index) {
+    int low = 0;
+    int high = pages.size() - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >>> 1;
+      if (pageStart[mid] <= index) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,134 @@
+package org.gwt.speedchart.client.util;
+
+/**
+ * Segment tree over the values of an {@link Array1D} that answers minimum
+ * and maximum queries over any index interval in O(log n).
+ * <p>
+ * Values appended to the array after the index was created are picked up
+ * automatically by the next query.  Values that are changed in place must
+ * be reported through {@link #valueChanged(int)}.
+ */
+public final class RangeExtremaIndex {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Array1D values;
+
+  /**
+   * Number of leaves; always a power of two.  Node n has children 2n and
+   * 2n+1, and leaf i is stored at node <tt>capacity + i</tt>.
+   */
+  private int capacity;
+
+  private int size;
+
+  private double[] min;
+
+  private double[] max;
+
+  public RangeExtremaIndex(Array1D values) {
+    ArgChecker.isNotNull(values, "values");
+    this.values = values;
+    build(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Updates the index after the value at the specified index has been
+   * changed.
+   */
+  public void valueChanged(int index) {
+    if (index >= size) {
+      // Not indexed yet; will be picked up by sync().
+      return;
+    }
+    setLeaf(index, values.get(index));
+  }
+
+  /**
+   * Returns the minimum and maximum of the values at indexes
+   * <tt>[startIdx, endIdx]</tt>.
+   */
+  public Interval getExtrema(int startIdx, int endIdx) {
+    sync();
+    ArgChecker.isInRange(startIdx, 0, endIdx, "startIdx");
+    ArgChecker.isInRange(endIdx, startIdx, size - 1, "endIdx");
+
+    double rangeMin = Double.POSITIVE_INFINITY;
+    double rangeMax = Double.NEGATIVE_INFINITY;
+    int lo = startIdx + capacity;
+    int hi = endIdx + capacity + 1;
+    while (lo < hi) {
+      if ((lo & 1) == 1) {
+        rangeMin = Math.min(rangeMin, min[lo]);
+        rangeMax = Math.max(rangeMax, max[lo]);
+        lo++;
+      }
+      if ((hi & 1) == 1) {
+        hi--;
+        rangeMin = Math.min(rangeMin, min[hi]);
+        rangeMax = Math.max(rangeMax, max[hi]);
+      }
+      lo >>= 1;
+      hi >>= 1;
+    }
+    return new Interval(rangeMin, rangeMax);
+  }
+
+  /**
+   * Indexes any values that were appended to the array since the last
+   * query, growing the tree if necessary.
+   */
+  private void sync() {
+    final int newSize = values.size();
+    if (newSize < size) {
+      // The array was truncated or replaced; start over.
+      build(INITIAL_CAPACITY);
+      return;
+    }
+    if (newSize > capacity) {
+      int newCapacity = capacity;
+      while (newCapacity < newSize) {
+        newCapacity *= 2;
+      }
+      build(newCapacity);
+      return;
+    }
+    for (int i = size; i < newSize; i++) {
+      setLeaf(i, values.get(i));
+    }
+    size = newSize;
+  }
+
+  private void build(int minCapacity) {
+    size = values.size();
+    capacity = minCapacity;
+    while (capacity < size) {
+      capacity *= 2;
+    }
+
+    min = new double[capacity * 2];
+    max = new double[capacity * 2];
+    for (int i = 0; i < capacity; i++) {
+      if (i < size) {
+        min[capacity + i] = max[capacity + i] = values.get(i);
+      } else {
+        min[capacity + i] = Double.POSITIVE_INFINITY;
+        max[capacity + i] = Double.NEGATIVE_INFINITY;
+      }
+    }
+    for (int n = capacity - 1; n > 0; n--) {
+      min[n] = Math.min(min[2 * n], min[2 * n + 1]);
+      max[n] = Math.max(max[2 * n], max[2 * n + 1]);
+    }
+  }
+
+  private void setLeaf(int index, double value) {
+    int n = capacity + index;
+    min[n] = value;
+    max[n] = value;
+    for (n >>= 1; n > 0; n >>= 1) {
+      min[n] = Math.min(min[2 * n], min[2 * n + 1]);
+      max[n] = Math.max(max[2 * n], max[2 * n + 1]);
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package org.gwt.speedchart.client.util;
+
+/**
+ * Ascending array of values sampled at a fixed interval, represented
+ * implicitly as <tt>start + step * i</tt> rather than stored one by one.
+ * Gaps (and any value that does not fall on the grid) start a new run
+ * with its own start value, so any ascending sequence can be represented;
+ * memory use is proportional to the number of runs.
+ * <p>
+ * Both {@link #get(int)} and {@link #search(double)} locate the run with a
+ * binary search over the runs, and then compute the result arithmetically.
+ */
+public final class RegularArray1D implements SortedArray1D, MutableArray1D {
+
+  private final double step;
+
+  /**
+   * Index of the first value of each run.
+   */
+  private int[] runFirstIndex = new int[4];
+
+  /**
+   * First value of each run.
+   */
+  private double[] runStart = new double[4];
+
+  private int numRuns;
+
+  private int size;
+
+  /**
+   * @param step - the interval between consecutive values within a run.
+   */
+  public RegularArray1D(double step) {
+    ArgChecker.isGT(step, 0.0, "step");
+    this.step = step;
+  }
+
+  /**
+   * Returns a {@link RegularArray1D} holding the values of <tt>a</tt>,
+   * using the smallest interval in <tt>a</tt> as the step, or null if
+   * <tt>a</tt> is not strictly ascending, or if the average run would be
+   * shorter than <tt>minRunLength</tt> (in which case an explicit array is
+   * more compact).
+   */
+  public static RegularArray1D create(double[] a, int minRunLength) {
+    ArgChecker.isNotNull(a, "a");
+    if (a.length < 2) {
+      return null;
+    }
+    double step = MathUtil.findSmallestInterval(a);
+    if (!(step > 0)) {
+      return null;
+    }
+
+    final int maxRuns = a.length / minRunLength;
+    RegularArray1D regular = new RegularArray1D(step);
+    for (int i = 0; i < a.length; i++) {
+      if (i > 0 && !(a[i] > a[i - 1])) {
+        return null;
+      }
+      regular.add(a[i]);
+      if (regular.numRuns > maxRuns) {
+        return null;
+      }
+    }
+    return regular;
+  }
+
+  /**
+   * Appends the specified value, which must be greater than the last
+   * value in this array.  A new run is started unless the value is exactly
+   * one step after the last value.
+   */
+  public void add(double value) {
+    if (size > 0) {
+      double last = getLast();
+      if (!(value > last)) {
+        throw new IllegalArgumentException("value must be > " + last + ": "
+            + value);
+      }
+      int lastRun = numRuns - 1;
+      if (value == runStart[lastRun] + step * (size - runFirstIndex[lastRun])) {
+        size++;
+        return;
+      }
+    }
+
+    if (numRuns == runStart.length) {
+      runFirstIndex = copyOf(runFirstIndex, numRuns * 2);
+      runStart = copyOf(runStart, numRuns * 2);
+    }
+    runFirstIndex[numRuns] = size;
+    runStart[numRuns] = value;
+    numRuns++;
+    size++;
+  }
+
+  /**
+   * Appends <tt>value</tt> if <tt>index</tt> equals {@link #size()}.
+   *
+   * @throws UnsupportedOperationException if <tt>index</tt> refers to an
+   *     existing value that differs from <tt>value</tt>, since values can
+   *     only be appended.
+   */
+  public void set(int index, double value) {
+    if (index == size) {
+      add(value);
+    } else if (index > size || get(index) != value) {
+      throw new UnsupportedOperationException(
+          "values can only be appended: index=" + index);
+    }
+  }
+
+  /**
+   * Returns the interval between consecutive values within a run.
+   */
+  public double getStep() {
+    return step;
+  }
+
+  /**
+   * Returns the number of runs of regularly spaced values.
+   */
+  public int getNumRuns() {
+    return numRuns;
+  }
+
+  /**
+   * Not supported, since the values are not stored.
+   *
+   * @throws UnsupportedOperationException
+   */
+  public double[] backingArray() {
+    throw new UnsupportedOperationException("backingArray()");
+  }
+
+  public double get(int index) {
+    assert MathUtil.isBounded(index, 0, size - 1)
+      : "index out of bounds: " + index;
+    int run = findRunByIndex(index);
+    return runStart[run] + step * (index - runFirstIndex[run]);
+  }
+
+  public double getLast() {
+    if (size == 0) {
+      throw new IllegalStateException("array is empty");
+    }
+    return get(size - 1);
+  }
+
+  public int search(double value) {
+    if (size == 0) {
+      return MathUtil.bound(0, 0, size - 1);
+    }
+
+    // Last run whose first value is <= value
+    int low = 0;
+    int high = numRuns - 1;
+    while (low <= high) {
+      int mid = (low + high) >> 1;
+      if (runStart[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    if (high < 0) {
+      return 0;
+    }
+
+    final int first = runFirstIndex[high];
+    final int end = (high + 1 < numRuns) ? runFirstIndex[high + 1] : size;
+    double offset = Math.ceil((value - runStart[high]) / step);
+    int idx = first + (int) MathUtil.bound(offset, 0, end - first);
+
+    // Correct for rounding in the division above.
+    while (idx > first && get(idx - 1) >= value) {
+      idx--;
+    }
+    while (idx < end && get(idx) < value) {
+      idx++;
+    }
+    return MathUtil.bound(idx, 0, size - 1);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void execFunction(ArrayFunction f) {
+    f.exec(toArray(), size);
+  }
+
+  public double[] toArray() {
+    double[] a = new double[size];
+    for (int run = 0; run < numRuns; run++) {
+      final int first = runFirstIndex[run];
+      final int end = (run + 1 < numRuns) ? runFirstIndex[run + 1] : size;
+      for (int i = first; i < end; i++) {
+        a[i] = runStart[run] + step * (i - first);
+      }
+    }
+    return a;
+  }
+
+  /**
+   * Returns the run containing the value at the specified index.
+   */
+  private int findRunByIndex(int index) {
+    // Most lookups are in the last run
+    if (index >= runFirstIndex[numRuns - 1]) {
+      return numRuns - 1;
+    }
+    int low = 0;
+    int high = numRuns - 1;
+    while (low < high) {
+      int mid = (low + high + 1) >> 1;
+      if (runFirstIndex[mid] <= index) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  private static double[] copyOf(double[] a, int newLength) {
+    double[] copy = new double[newLength];
+    System.arraycopy(a, 0, copy, 0, Math.min(a.length, newLength));
+    return copy;
+  }
+
+  private static int[] copyOf(int[] a, int newLength) {
+    int[] copy = new int[newLength];
+    System.arraycopy(a, 0, copy, 0, Math.min(a.length, newLength));
+    return copy;
+  }
+}
@@ -0,0 +1,18 @@
+package org.gwt.speedchart.client.util;
+
+/**
+ * An {@link Array1D} whose values are in strictly ascending order, and that
+ * can locate a value more efficiently than a binary search over
+ * {@link #get(int)}.
+ * 
+ * @see Util#binarySearch(Array1D, double)
+ */
+public interface SortedArray1D extends Array1D {
+
+  /**
+   * Returns the index of <tt>value</tt>, following the same contract as
+   * {@link Util#binarySearch(Array1D, double)}.
+   */
+  int search(double value);
+
+}
@@ -0,0 +1,96 @@
+package org.gwt.speedchart.client.util;
+
+/**
+ * Read-only view of every 2^n-th value of another {@link Array1D}, where n
+ * is the level of the view.  The view reflects values that are later
+ * appended to the underlying array.
+ */
+public final class StridedArray1D implements SortedArray1D {
+
+  private final Array1D base;
+
+  private final int level;
+
+  private final int stride;
+
+  /**
+   * @param base - the underlying array, in ascending order.
+   * @param level - the view holds the values at indexes <tt>i * 2^level</tt>.
+   */
+  public StridedArray1D(Array1D base, int level) {
+    ArgChecker.isNotNull(base, "base");
+    ArgChecker.isInRange(level, 0, 30, "level");
+    this.base = base;
+    this.level = level;
+    this.stride = 1 << level;
+  }
+
+  /**
+   * Not supported, since the values are not contiguous.
+   *
+   * @throws UnsupportedOperationException
+   */
+  public double[] backingArray() {
+    throw new UnsupportedOperationException("backingArray()");
+  }
+
+  public double get(int index) {
+    return base.get(index << level);
+  }
+
+  public double getLast() {
+    final int size = size();
+    if (size == 0) {
+      throw new IllegalStateException("array is empty");
+    }
+    return get(size - 1);
+  }
+
+  public int search(double value) {
+    final int size = size();
+    if (!(base instanceof SortedArray1D) || size == 0) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+        int mid = (low + high) >> 1;
+        double midVal = get(mid);
+        if (midVal < value) {
+          low = mid + 1;
+        } else if (midVal > value) {
+          high = mid - 1;
+        } else {
+          return mid;
+        }
+      }
+      return MathUtil.bound(low, 0, size - 1);
+    }
+
+    // Number of values in the underlying array that are < value
+    int baseIdx = ((SortedArray1D) base).search(value);
+    int numLess = (base.get(baseIdx) < value) ? baseIdx + 1 : baseIdx;
+
+    // The view values below index i come from base indexes < i * stride.
+    int idx = (numLess + stride - 1) >> level;
+    return MathUtil.bound(idx, 0, size - 1);
+  }
+
+  public int size() {
+    return base.size() >> level;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public void execFunction(ArrayFunction f) {
+    f.exec(toArray(), size());
+  }
+
+  public double[] toArray() {
+    double[] a = new double[size()];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = get(i);
+    }
+    return a;
+  }
+}
@@ -0,0 +1,117 @@
+package org.gwt.speedchart.client.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link Array2D} of mipmapped domain values, where row 0 holds the values
+ * and row n is a {@link StridedArray1D} view of every 2^n-th value of row 0.
+ * Only row 0 takes up memory.
+ * <p>
+ * The number of rows follows from the size of row 0, so rows appear as
+ * values are appended to row 0.  Assigning a value to a row above 0 is
+ * only permitted if it equals the value already implied by row 0.
+ */
+public final class StridedArray2D implements Array2D {
+
+  private final MutableArray1D row0;
+
+  private final List<StridedArray1D> views = new ArrayList<StridedArray1D>();
+
+  /**
+   * @param row0 - the values of row 0, in ascending order; adopted, not
+   *    copied.
+   */
+  public StridedArray2D(MutableArray1D row0) {
+    ArgChecker.isNotNull(row0, "row0");
+    this.row0 = row0;
+  }
+
+  /**
+   * Not supported, since rows are derived from row 0.
+   *
+   * @throws UnsupportedOperationException
+   */
+  public void addRowByRef(double[] row) {
+    throw new UnsupportedOperationException("addRowByRef()");
+  }
+
+  /**
+   * Not supported, since rows are derived from row 0.
+   *
+   * @throws UnsupportedOperationException
+   */
+  public void addRowByValue(double[] row) {
+    throw new UnsupportedOperationException("addRowByValue()");
+  }
+
+  public void ensureCapacity(int rowIdx, int numColumns) {
+    if (rowIdx == 0 && row0 instanceof JavaArray1D) {
+      ((JavaArray1D) row0).ensureCapacity(numColumns - 1);
+    }
+  }
+
+  public double get(int row, int column) {
+    return row0.get(column << row);
+  }
+
+  public Array1D getRow(int rowIndex) {
+    assert MathUtil.isBounded(rowIndex, 0, numRows() - 1)
+      : "row out of bounds: " + rowIndex;
+    if (rowIndex == 0) {
+      return row0;
+    }
+    while (views.size() < rowIndex) {
+      views.add(new StridedArray1D(row0, views.size() + 1));
+    }
+    return views.get(rowIndex - 1);
+  }
+
+  public boolean isSameSize(Array2D other) {
+    ArgChecker.isNotNull(other, "other");
+    if (numRows() != other.numRows()) {
+      return false;
+    }
+    for (int i = 0; i < numRows(); i++) {
+      if (numColumns(i) != other.numColumns(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public int numColumns(int rowIndex) {
+    return row0.size() >> rowIndex;
+  }
+
+  /**
+   * Returns the number of rows having at least 1 column.
+   */
+  public int numRows() {
+    int numRows = 0;
+    for (int size = row0.size(); size > 0; size >>= 1) {
+      numRows++;
+    }
+    return numRows;
+  }
+
+  /**
+   * Assigns a value in row 0.  For other rows, the value must equal the
+   * one that is implied by row 0.
+   *
+   * @throws UnsupportedOperationException if a value in a row above 0
+   *     differs from the one implied by row 0.
+   */
+  public void set(int rowIdx, int colIdx, double value) {
+    if (rowIdx == 0) {
+      row0.set(colIdx, value);
+      return;
+    }
+
+    int row0Idx = colIdx << rowIdx;
+    if (row0Idx >= row0.size() || row0.get(row0Idx) != value) {
+      throw new UnsupportedOperationException(
+          "rows above 0 are views of row 0: row=" + rowIdx + ", col=" + colIdx);
+    }
+  }
+}
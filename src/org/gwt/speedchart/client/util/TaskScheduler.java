@@ -0,0 +1,45 @@
+package org.gwt.speedchart.client.util;
+
+/**
+ * Runs long-running work as a series of bounded slices, so that it does
+ * not block the browser's event loop.  Decouples such work from GWT's
+ * {@link com.google.gwt.core.client.Scheduler}, so that it can also be run
+ * (and its slicing verified) on the JVM.
+ *
+ * @see GwtTaskScheduler
+ */
+public interface TaskScheduler {
+
+  /**
+   * A unit of work that is performed a slice at a time.
+   */
+  interface IncrementalTask {
+
+    /**
+     * Performs the next slice of work.
+     *
+     * @return true if there is more work to do, in which case this method
+     *    will be called again later.
+     */
+    boolean execute();
+  }
+
+  /**
+   * Schedules the specified task, which is executed repeatedly until it
+   * returns false.
+   */
+  void scheduleIncremental(IncrementalTask task);
+
+  /**
+   * Schedules the specified task to be executed after
+   * <tt>delayMillis</tt> ms, and again every <tt>delayMillis</tt> ms after
+   * each execution until it returns false.
+   */
+  void scheduleDelayed(IncrementalTask task, int delayMillis);
+
+  /**
+   * Returns the current time in ms, by the clock against which the delays
+   * of {@link #scheduleDelayed} are measured.
+   */
+  long currentTimeMillis();
+}
@@ -16,12 +16,17 @@ public final class Util {
    * values within the array, in which case the largest value in the array
    * is returned. 
    * <p> 
-   * The array is assumed to be in sorted ascending order.
+   * The array is assumed to be in sorted ascending order.  If it is a
+   * {@link SortedArray1D}, the search is delegated to it.
    *
    * @param a - The array to search on
    * @param value - The sought-after value
    */
   public static <T extends Tuple2D> int binarySearch(Array1D a, double value) {
+    if (a instanceof SortedArray1D) {
+      return ((SortedArray1D) a).search(value);
+    }
+
     int low = 0;
     int high = a.size() - 1;
 
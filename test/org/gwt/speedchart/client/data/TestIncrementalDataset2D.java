@@ -0,0 +1,190 @@
+package org.gwt.speedchart.client.data;
+
+import junit.framework.TestCase;
+
+import org.gwt.speedchart.client.Dataset;
+import org.gwt.speedchart.client.data.tuple.Tuple2D;
+import org.gwt.speedchart.client.util.Interval;
+import org.gwt.speedchart.client.util.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestIncrementalDataset2D extends TestCase {
+
+  /**
+   * Runs the scheduled tasks only when told to, a slice at a time.
+   */
+  private static final class ManualTaskScheduler implements TaskScheduler {
+    final List<IncrementalTask> tasks = new ArrayList<IncrementalTask>();
+
+    public void scheduleIncremental(IncrementalTask task) {
+      tasks.add(task);
+    }
+
+    public void scheduleDelayed(IncrementalTask task, int delayMillis) {
+      tasks.add(task);
+    }
+
+    public long currentTimeMillis() {
+      return 0;
+    }
+
+    /**
+     * Runs a slice of the first task, and returns true if it has more work
+     * to do.
+     */
+    boolean step() {
+      if (tasks.get(0).execute()) {
+        return true;
+      }
+      tasks.remove(0);
+      return false;
+    }
+  }
+
+  /**
+   * Records which levels are built each time the dataset changes.
+   */
+  private static final class BuiltLevelsRecorder
+      implements DatasetListener<Tuple2D> {
+    final IncrementalDataset2D ds;
+    final List<String> events = new ArrayList<String>();
+
+    BuiltLevelsRecorder(IncrementalDataset2D ds) {
+      this.ds = ds;
+    }
+
+    public void onDatasetChanged(Dataset<Tuple2D> dataset, double domainStart,
+        double domainEnd) {
+      events.add(builtLevels(ds));
+    }
+
+    public void onDatasetRemoved(Dataset<Tuple2D> dataset) {
+    }
+
+    public void onDatasetAdded(Dataset<Tuple2D> dataset) {
+    }
+  }
+
+  private static final int NUM_POINTS = 1 << 14;
+
+  private ManualTaskScheduler scheduler;
+
+  private IncrementalDataset2D ds;
+
+  private BuiltLevelsRecorder recorder;
+
+  private double[] range;
+
+  @Override
+  protected void setUp() {
+    double[] domain = new double[NUM_POINTS];
+    range = new double[NUM_POINTS];
+    for (int i = 0; i < NUM_POINTS; i++) {
+      domain[i] = i;
+      range[i] = (i * 7919) % 1000;
+    }
+    scheduler = new ManualTaskScheduler();
+    // Level 1 costs 2 values per datapoint, so it takes 8 slices of 2048.
+    ds = new IncrementalDataset2D(domain, range, BinaryMipMapStrategy.MEAN,
+        scheduler, 2048);
+    recorder = new BuiltLevelsRecorder(ds);
+    ds.addListener(recorder);
+  }
+
+  public void testCoarseLevelBuiltByConstructor() {
+    // 16384 >> 4 == 1024 is the first level with at most 1024 datapoints.
+    assertEquals("0 4", builtLevels(ds));
+    assertEquals(1, scheduler.tasks.size());
+    assertFalse(ds.isComplete());
+    assertLevelEquals(4);
+  }
+
+  public void testWideWindowNeverUsesLevel0WhilePending() {
+    MipMapRegion region = ds.getBestMipMapForInterval(
+        new Interval(0, NUM_POINTS), 100);
+    assertEquals(4, region.getMipMap().getLevel());
+
+    region = ds.getBestMipMapForInterval(new Interval(0, NUM_POINTS), 5000);
+    assertEquals(4, region.getMipMap().getLevel());
+
+    // A narrow window fits at level 0.
+    region = ds.getBestMipMapForInterval(new Interval(100, 150), 100);
+    assertEquals(0, region.getMipMap().getLevel());
+  }
+
+  public void testLevelsPublishedAfterEachSlice() {
+    List<String> builtAfterStep = new ArrayList<String>();
+    while (scheduler.step()) {
+      builtAfterStep.add(builtLevels(ds));
+    }
+    builtAfterStep.add(builtLevels(ds));
+
+    // Level 1 (8192 datapoints at 2 values each) takes 8 slices, level 2
+    // is built from level 1 in 4, and level 3 in 2.  The levels above
+    // the coarse level are all built in the last slice.
+    List<String> expected = new ArrayList<String>();
+    for (int i = 0; i < 7; i++) {
+      expected.add("0 4");
+    }
+    for (int i = 0; i < 4; i++) {
+      expected.add("0 1 4");
+    }
+    expected.add("0 1 2 4");
+    expected.add("0 1 2 4");
+    expected.add("0 1 2 3 4");
+    expected.add("0 1 2 3 4 5 6 7 8 9 10 11 12 13 14");
+    assertEquals(expected, builtAfterStep);
+
+    // One notification per level published by the builder.
+    assertEquals(13, recorder.events.size());
+    assertEquals("0 1 4", recorder.events.get(0));
+    assertEquals("0 1 2 4", recorder.events.get(1));
+    assertEquals("0 1 2 3 4", recorder.events.get(2));
+    assertTrue(ds.isComplete());
+    assertTrue(scheduler.tasks.isEmpty());
+
+    for (int level = 0; level < 15; level++) {
+      assertLevelEquals(level);
+    }
+    MipMapRegion region = ds.getBestMipMapForInterval(
+        new Interval(0, NUM_POINTS), 100);
+    assertEquals(8, region.getMipMap().getLevel());
+  }
+
+  /**
+   * Checks the values of a level against pairwise means computed here,
+   * rather than by {@link BinaryMipMapStrategy}, which shares its code
+   * with the dataset under test.
+   */
+  private void assertLevelEquals(int level) {
+    double[] expected = range.clone();
+    int size = NUM_POINTS;
+    for (int l = 0; l < level; l++) {
+      size /= 2;
+      for (int i = 0; i < size; i++) {
+        expected[i] = (expected[2 * i] + expected[2 * i + 1]) / 2.0;
+      }
+    }
+
+    MipMap actual = ds.getMipMapChain().getMipMap(level);
+    assertEquals(size, actual.size());
+    for (int i = 0; i < size; i++) {
+      // Each datapoint takes the domain value of the first of its pair.
+      assertEquals((double) (i << level), actual.getDomain().get(i));
+      assertEquals(expected[i], actual.getRange(0).get(i));
+    }
+  }
+
+  private static String builtLevels(IncrementalDataset2D ds) {
+    StringBuilder sb = new StringBuilder();
+    final int numLevels = ds.getMipMapChain().size();
+    for (int level = 0; level < numLevels; level++) {
+      if (ds.isMipLevelBuilt(level)) {
+        sb.append(sb.length() == 0 ? "" : " ").append(level);
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,120 @@
+package org.gwt.speedchart.client.data;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class TestLargestTriangleMipMapStrategy extends TestCase {
+
+  private static final int NUM_POINTS = 300;
+
+  private final LargestTriangleMipMapStrategy strategy =
+      new LargestTriangleMipMapStrategy();
+
+  private final Random random = new Random(3);
+
+  public void testFirstAndLastDatapointsAreKept() {
+    for (int n = 1; n <= 70; n++) {
+      double[] domain = domain(n);
+      MipMapChain chain = strategy.mipmap(domain, range(n));
+      for (int level = 0; level < chain.size(); level++) {
+        MipMap mipMap = chain.getMipMap(level);
+        assertEquals(domain[0], mipMap.getDomain().get(0));
+        if (mipMap.size() > 1 || level == 0) {
+          assertEquals("n=" + n + ", level=" + level, domain[n - 1],
+              mipMap.getDomain().getLast());
+        }
+      }
+      assertEquals(1, chain.getMipMap(chain.size() - 1).size());
+    }
+  }
+
+  public void testAppendMatchesMipmap() {
+    double[] domain = domain(NUM_POINTS);
+    double[] range = range(NUM_POINTS);
+    MipMapChain chain = strategy.mipmap(new double[] {domain[0]},
+        new double[] {range[0]});
+    for (int n = 2; n <= NUM_POINTS; n++) {
+      strategy.appendXY(domain[n - 1], range[n - 1], chain);
+      assertChainEquals(domain, range, n, chain);
+    }
+  }
+
+  public void testAppendBatchMatchesMipmap() {
+    double[] domain = domain(NUM_POINTS);
+    double[] range = range(NUM_POINTS);
+    MipMapChain chain = strategy.mipmap(new double[] {domain[0]},
+        new double[] {range[0]});
+    int n = 1;
+    while (n < NUM_POINTS) {
+      final int count = Math.min(NUM_POINTS - n, 1 + random.nextInt(9));
+      double[] xs = new double[count];
+      double[] ys = new double[count];
+      System.arraycopy(domain, n, xs, 0, count);
+      System.arraycopy(range, n, ys, 0, count);
+      strategy.appendBatch(xs, ys, chain);
+      n += count;
+      assertChainEquals(domain, range, n, chain);
+    }
+  }
+
+  public void testSetRangeValueMatchesMipmap() {
+    for (int n = NUM_POINTS - 1; n <= NUM_POINTS; n++) {
+      double[] domain = domain(n);
+      double[] range = range(n);
+      MipMapChain chain = strategy.mipmap(domain, range);
+      for (int i = 0; i < 500; i++) {
+        final int pointIndex = random.nextInt(n);
+        // Mostly small nudges, which tend to leave the selection alone.
+        range[pointIndex] = random.nextInt(4) == 0
+            ? random.nextGaussian() * 100
+            : range[pointIndex] + random.nextGaussian();
+        strategy.setRangeValue(pointIndex, range[pointIndex], chain);
+        assertChainEquals(domain, range, n, chain);
+      }
+    }
+  }
+
+  /**
+   * Checks that <tt>chain</tt> holds the same levels as a chain built from
+   * scratch for the first <tt>n</tt> datapoints.
+   */
+  private void assertChainEquals(double[] domain, double[] range, int n,
+      MipMapChain chain) {
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    System.arraycopy(domain, 0, xs, 0, n);
+    System.arraycopy(range, 0, ys, 0, n);
+    MipMapChain expected = strategy.mipmap(xs, ys);
+
+    assertEquals("n=" + n, expected.size(), chain.size());
+    for (int level = 0; level < expected.size(); level++) {
+      MipMap expectedLevel = expected.getMipMap(level);
+      MipMap actualLevel = chain.getMipMap(level);
+      final String where = "n=" + n + ", level=" + level;
+      assertEquals(where, expectedLevel.size(), actualLevel.size());
+      for (int i = 0; i < expectedLevel.size(); i++) {
+        assertEquals(where, expectedLevel.getDomain().get(i),
+            actualLevel.getDomain().get(i));
+        assertEquals(where, expectedLevel.getRange(0).get(i),
+            actualLevel.getRange(0).get(i));
+      }
+    }
+  }
+
+  private static double[] domain(int n) {
+    double[] domain = new double[n];
+    for (int i = 0; i < n; i++) {
+      domain[i] = 1000.0 * i;
+    }
+    return domain;
+  }
+
+  private double[] range(int n) {
+    double[] range = new double[n];
+    for (int i = 0; i < n; i++) {
+      range[i] = random.nextGaussian() * 100;
+    }
+    return range;
+  }
+}
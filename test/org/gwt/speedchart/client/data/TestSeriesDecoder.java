@@ -0,0 +1,168 @@
+package org.gwt.speedchart.client.data;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class TestSeriesDecoder extends TestCase {
+
+  private static final double[] SPECIAL_VALUES = {
+      Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY,
+      Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MAX_VALUE,
+      Double.MAX_VALUE, 1.0, 1.0, -1.5
+  };
+
+  public void testSpecialRangeValues() {
+    final int n = SPECIAL_VALUES.length;
+    double[] domain = new double[n];
+    for (int i = 0; i < n; i++) {
+      domain[i] = 1000 * i;
+    }
+    assertRoundTrip(domain, SPECIAL_VALUES, SeriesEncoder.DEFAULT_CHUNK_SIZE);
+    assertRoundTrip(domain, SPECIAL_VALUES, 3);
+  }
+
+  public void testSpecialDomainValues() {
+    // Not all integers, so the domain is XOR-encoded.
+    double[] domain = {Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -0.0,
+        0.0, 0.5, Double.MAX_VALUE, Double.POSITIVE_INFINITY};
+    double[] range = new double[domain.length];
+    assertRoundTrip(domain, range, SeriesEncoder.DEFAULT_CHUNK_SIZE);
+    assertRoundTrip(domain, range, 2);
+  }
+
+  public void testIrregularIntegerDomain() {
+    Random random = new Random(11);
+    final int n = 5000;
+    double[] domain = new double[n];
+    double[] range = new double[n];
+    long x = 1288000000000L;
+    for (int i = 0; i < n; i++) {
+      // Steps that need each width of delta-of-delta.
+      switch (random.nextInt(5)) {
+        case 0: x += 1000; break;
+        case 1: x += random.nextInt(100); break;
+        case 2: x += random.nextInt(5000); break;
+        case 3: x += random.nextInt(1000000); break;
+        default: x += (long) random.nextInt(1 << 30) << 10; break;
+      }
+      domain[i] = x;
+      range[i] = random.nextInt(4) == 0 ? range[Math.max(0, i - 1)]
+          : random.nextGaussian();
+    }
+    assertRoundTrip(domain, range, SeriesEncoder.DEFAULT_CHUNK_SIZE);
+    assertRoundTrip(domain, range, 1);
+  }
+
+  public void testEmptySeries() {
+    SeriesDecoder decoder = new SeriesDecoder();
+    decoder.feed(SeriesEncoder.encode(new double[0], new double[0]));
+    assertTrue(decoder.isComplete());
+    assertEquals(0, decoder.getNumDecoded());
+  }
+
+  public void testSplitFeeds() {
+    Random random = new Random(5);
+    final int n = 700;
+    double[] domain = new double[n];
+    double[] range = new double[n];
+    for (int i = 0; i < n; i++) {
+      domain[i] = 60000.0 * i;
+      range[i] = random.nextDouble();
+    }
+    range[17] = Double.NaN;
+    range[18] = -0.0;
+    range[400] = Double.NEGATIVE_INFINITY;
+    byte[] bytes = SeriesEncoder.encode(domain, range, 64);
+
+    for (int trial = 0; trial < 20; trial++) {
+      SeriesDecoder decoder = new SeriesDecoder();
+      int offset = 0;
+      int numDecoded = 0;
+      while (offset < bytes.length) {
+        // Mostly single bytes, with the odd larger piece.
+        final int length = Math.min(bytes.length - offset,
+            random.nextInt(4) == 0 ? 1 + random.nextInt(300) : 1);
+        decoder.feed(bytes, offset, length);
+        offset += length;
+        assertTrue(decoder.getNumDecoded() >= numDecoded);
+        numDecoded = decoder.getNumDecoded();
+        assertEquals(offset == bytes.length, decoder.isComplete());
+      }
+      assertDecoded(domain, range, decoder);
+    }
+  }
+
+  public void testTruncatedStreamIsIncomplete() {
+    byte[] bytes = SeriesEncoder.encode(new double[] {1, 2, 3},
+        new double[] {4, 5, 6});
+    SeriesDecoder decoder = new SeriesDecoder();
+    decoder.feed(bytes, 0, bytes.length - 1);
+    assertFalse(decoder.isComplete());
+  }
+
+  public void testRejectsTotalAboveMaximum() {
+    byte[] bytes = SeriesEncoder.encode(new double[] {1, 2, 3},
+        new double[] {4, 5, 6});
+    try {
+      new SeriesDecoder(2).feed(bytes);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    // A total of 2^31 datapoints.
+    try {
+      new SeriesDecoder().feed(new byte[] {SeriesEncoder.VERSION,
+          (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08});
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  public void testRejectsChunkOverrun() {
+    byte[] bytes = SeriesEncoder.encode(new double[] {1, 2, 3},
+        new double[] {4, 5, 6});
+    // VERSION, total, numPoints, then numBytes, which each fit in a byte.
+    assertEquals(3, bytes[1]);
+    assertEquals(3, bytes[2]);
+    bytes[3] = 2;
+    try {
+      new SeriesDecoder().feed(bytes);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static void assertRoundTrip(double[] domain, double[] range,
+      int chunkSize) {
+    SeriesDecoder decoder = new SeriesDecoder();
+    decoder.feed(SeriesEncoder.encode(domain, range, chunkSize));
+    assertTrue(decoder.isComplete());
+    assertDecoded(domain, range, decoder);
+  }
+
+  private static void assertDecoded(double[] domain, double[] range,
+      SeriesDecoder decoder) {
+    assertEquals(domain.length, decoder.getNumDecoded());
+    for (int i = 0; i < domain.length; i++) {
+      assertSameDouble(domain[i], decoder.getDomain()[i]);
+      assertSameDouble(range[i], decoder.getRange()[i]);
+    }
+  }
+
+  /**
+   * Checks that two doubles are the same value, telling -0 from 0 and
+   * matching NaN with NaN.
+   */
+  private static void assertSameDouble(double expected, double actual) {
+    if (Double.isNaN(expected)) {
+      assertTrue("expected NaN, was " + actual, Double.isNaN(actual));
+    } else {
+      assertEquals(Double.doubleToLongBits(expected),
+          Double.doubleToLongBits(actual));
+    }
+  }
+}
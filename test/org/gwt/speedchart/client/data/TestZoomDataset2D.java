@@ -0,0 +1,141 @@
+package org.gwt.speedchart.client.data;
+
+import junit.framework.TestCase;
+
+import org.gwt.speedchart.client.util.Interval;
+import org.gwt.speedchart.client.util.TaskScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestZoomDataset2D extends TestCase {
+
+  /**
+   * Holds on to the requests until they are answered by the test.
+   */
+  private static final class PendingDatasetModel
+      implements ZoomDataset2D.DatasetModel {
+    final List<ZoomDataset2D.Request> requests =
+        new ArrayList<ZoomDataset2D.Request>();
+    final List<ZoomDataset2D.Callback> callbacks =
+        new ArrayList<ZoomDataset2D.Callback>();
+
+    public double[] getUnits() {
+      return new double[] {1};
+    }
+
+    public void requestData(ZoomDataset2D.Request request,
+        ZoomDataset2D.Callback callback) {
+      requests.add(request);
+      callbacks.add(callback);
+    }
+
+    /**
+     * Answers every pending request with a datapoint of the specified
+     * value at each integral domain value of its region.
+     */
+    void answerAll(double value) {
+      while (!requests.isEmpty()) {
+        Interval region = requests.remove(0).getRegion();
+        final int start = (int) region.getStart();
+        final int n = (int) region.getEnd() - start;
+        double[] domain = new double[n];
+        double[] range = new double[n];
+        for (int i = 0; i < n; i++) {
+          domain[i] = start + i;
+          range[i] = value;
+        }
+        callbacks.remove(0).provideData(domain, range);
+      }
+    }
+  }
+
+  /**
+   * Never runs tasks; only the clock matters here.
+   */
+  private static final class ManualClock implements TaskScheduler {
+    long now = 1000;
+
+    public void scheduleIncremental(IncrementalTask task) {
+    }
+
+    public void scheduleDelayed(IncrementalTask task, int delayMillis) {
+    }
+
+    public long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  private static final Interval VIEW = new Interval(0, 1000);
+
+  private static final int TILE_SIZE = 100;
+
+  private PendingDatasetModel model;
+
+  private ManualClock clock;
+
+  private ZoomDataset2D ds;
+
+  @Override
+  protected void setUp() {
+    model = new PendingDatasetModel();
+    clock = new ManualClock();
+    ds = new ZoomDataset2D(model, new Interval(0, 1000));
+    ds.setTaskScheduler(clock);
+    ds.setTileSize(TILE_SIZE);
+  }
+
+  public void testInvalidatedTileIsRequestedAgain() {
+    draw();
+    assertEquals(1000 / TILE_SIZE, model.requests.size());
+    model.answerAll(1);
+    draw();
+    assertTrue(model.requests.isEmpty());
+
+    ds.invalidate(150, 160);
+    MipMapRegion region = draw();
+    assertEquals(1, model.requests.size());
+    assertEquals(1, model.requests.get(0).getTileIdx());
+    // Drawn until it is replaced.
+    assertEquals(1.0, valueAt(region, 155));
+
+    model.answerAll(2);
+    region = draw();
+    assertTrue(model.requests.isEmpty());
+    assertEquals(2.0, valueAt(region, 155));
+    assertEquals(1.0, valueAt(region, 255));
+  }
+
+  public void testTailTileIsRequestedAgain() {
+    ds.setTailTimeToLive(50);
+    draw();
+    model.answerAll(1);
+
+    clock.now += 10;
+    draw();
+    assertTrue(model.requests.isEmpty());
+
+    clock.now += 100;
+    draw();
+    assertEquals(1, model.requests.size());
+    assertEquals(1000 / TILE_SIZE - 1, model.requests.get(0).getTileIdx());
+    model.answerAll(2);
+    assertEquals(2.0, valueAt(draw(), 999));
+  }
+
+  private MipMapRegion draw() {
+    return ds.getBestMipMapForInterval(VIEW, 2000);
+  }
+
+  private static double valueAt(MipMapRegion region, double x) {
+    MipMap mipMap = region.getMipMap();
+    for (int i = 0; i < mipMap.size(); i++) {
+      if (mipMap.getDomain().get(i) == x) {
+        return mipMap.getRange(0).get(i);
+      }
+    }
+    fail("no datapoint at " + x);
+    return Double.NaN;
+  }
+}
@@ -2,96 +2,211 @@ package org.gwt.speedchart.client.util;
 
 import junit.framework.TestCase;
 
+import java.util.Random;
+
 public class TestIntervalSet extends TestCase {
 
-  public void XtestAdd() {
+  /**
+   * Endpoints are integers in [0, DOMAIN_SIZE].
+   */
+  private static final int DOMAIN_SIZE = 40;
+
+  /**
+   * Brute-force reference set, which records for each unit cell
+   * [k, k + 1) of the domain whether it is in the set.
+   */
+  private static final class CellSet {
+    final boolean[] cells = new boolean[DOMAIN_SIZE];
+
+    void add(int start, int end) {
+      for (int k = start; k < end; k++) {
+        cells[k] = true;
+      }
+    }
+
+    void remove(int start, int end) {
+      for (int k = start; k < end; k++) {
+        cells[k] = false;
+      }
+    }
+
+    boolean covers(int start, int end) {
+      for (int k = start; k < end; k++) {
+        if (!cells[k]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    CellSet getGaps(int start, int end) {
+      CellSet result = new CellSet();
+      for (int k = start; k < end; k++) {
+        result.cells[k] = !cells[k];
+      }
+      return result;
+    }
+
+    CellSet difference(CellSet other) {
+      CellSet result = new CellSet();
+      for (int k = 0; k < DOMAIN_SIZE; k++) {
+        result.cells[k] = cells[k] && !other.cells[k];
+      }
+      return result;
+    }
+
+    CellSet intersection(CellSet other) {
+      CellSet result = new CellSet();
+      for (int k = 0; k < DOMAIN_SIZE; k++) {
+        result.cells[k] = cells[k] && other.cells[k];
+      }
+      return result;
+    }
+
+    /**
+     * Returns the maximal runs of cells, formatted as by
+     * {@link IntervalSet#toString()}.
+     */
+    public String toString() {
+      StringBuilder sb = new StringBuilder("[");
+      int k = 0;
+      while (k < DOMAIN_SIZE) {
+        if (!cells[k]) {
+          k++;
+          continue;
+        }
+        int end = k;
+        while (end < DOMAIN_SIZE && cells[end]) {
+          end++;
+        }
+        if (sb.length() > 1) {
+          sb.append(", ");
+        }
+        sb.append("[").append((double) k).append(", ")
+            .append((double) end).append("]");
+        k = end;
+      }
+      return sb.append("]").toString();
+    }
+  }
+
+  public void testAdd() {
     IntervalSet is = new IntervalSet();
 
     is.add(new Interval(1, 2));
     is.add(new Interval(2, 3));
     is.add(new Interval(0, 2));
     is.add(new Interval(5, 6));
-    assertEquals(is.size(), 2);
+    assertEquals(2, is.size());
 
     is.add(new Interval(3, 6));
-    assertEquals(is.size(), 1);
+    assertEquals(1, is.size());
     Interval i = is.get(0);
-    assertEquals(i.getStart(), 0.0);
-    assertEquals(i.getEnd(), 6.0);
+    assertEquals(0.0, i.getStart());
+    assertEquals(6.0, i.getEnd());
+
+    is.add(new Interval(7, 7));
+    assertEquals(1, is.size());
+  }
+
+  public void testRemove() {
+    IntervalSet is = new IntervalSet();
+    is.add(0, 10);
+    is.remove(2, 3);
+    assertEquals("[[0.0, 2.0], [3.0, 10.0]]", is.toString());
+    is.remove(0, 2);
+    assertEquals("[[3.0, 10.0]]", is.toString());
+    is.remove(-5, 20);
+    assertEquals(0, is.size());
   }
 
-  public void XtestDifference() {
+  public void testCovers() {
+    IntervalSet is = new IntervalSet();
+    is.add(0, 5);
+    is.add(10, 20);
+    assertTrue(is.covers(0, 5));
+    assertTrue(is.covers(11, 12));
+    assertTrue(is.covers(30, 30));
+    assertFalse(is.covers(4, 11));
+    assertFalse(is.covers(-1, 1));
+  }
+
+  public void testDifference() {
     IntervalSet is1 = new IntervalSet();
-    is1.add(new Interval( 0,  5));
+    is1.add(new Interval(0, 5));
     is1.add(new Interval(10, 20));
 
     IntervalSet is2 = new IntervalSet();
-    is2.add(new Interval( 3,  13));
+    is2.add(new Interval(3, 13));
 
-    IntervalSet is3 = is2.difference(is1);
-    System.out.println(is3);
-
-    //IntervalSet is4 = is1.difference(is2);
-    //System.out.println(is4);
+    assertEquals("[[5.0, 10.0]]", is2.difference(is1).toString());
+    assertEquals("[[0.0, 3.0], [13.0, 20.0]]", is1.difference(is2).toString());
   }
 
-
   public void testDifference2() {
     IntervalSet is1 = new IntervalSet();
-    is1.add(new Interval( 0,  10));
+    is1.add(new Interval(0, 10));
 
     IntervalSet is2 = new IntervalSet();
-    is2.add(new Interval( 2,  10));
-
-    IntervalSet is3 = is2.difference(is1);
-    System.out.println(is3);
+    is2.add(new Interval(2, 10));
 
-    //IntervalSet is4 = is1.difference(is2);
-    //System.out.println(is4);
+    assertEquals(0, is2.difference(is1).size());
+    assertEquals("[[0.0, 2.0]]", is1.difference(is2).toString());
   }
 
-  
-
-//   public static void testDiff1() {
-//     IntervalSet is = new IntervalSet();
-
-//     is.add(new Interval(0, 5));
-//     IntervalSet d = is.difference(new Interval(2, 3));
-//     if (d.size() != 2)
-//       System.out.println("FAIL: testDiff: size=" + d.size());
-//     Interval i1 = d.get(0);
-//     if (!i1.equals(new Interval(0, 2)))
-//       System.out.println("FAIL: testDiff: i1: " + i1);
-//     Interval i2 = d.get(1);
-//     if (!i2.equals(new Interval(3, 5)))
-//       System.out.println("FAIL: testDiff: i2: " + i2);
-//   }
-
-//   public static void testDiff2() {
-
-//     IntervalSet is = new IntervalSet();
-
-//     is.add(new Interval(0, 20));
-//     is.add(new Interval(30, 60));
-//     IntervalSet d = is.difference(new Interval(10, 40));
-//     if (d.size() != 2)
-//       System.out.println("FAIL: testDiff: size=" + d.size());
-//   }
-
-//   public static void testDiffSame() {
-
-//     IntervalSet is = new IntervalSet();
-
-//     is.add(new Interval(0, 20));
-//     IntervalSet d = is.difference(new Interval(0, 20));
-//     if (d.size() != 0)
-//       System.out.println("FAIL: testSame: size=" + d.size());
-//   }
+  public void testIntersection() {
+    IntervalSet is1 = new IntervalSet();
+    is1.add(0, 5);
+    is1.add(10, 20);
 
-//     public static Test suite() {
-// 	suite.addTest(new MathTest("testAdd"));
-// 	suite.addTest(new MathTest("testDivideByZero"));
-// 	return suite;
-//     }
+    IntervalSet is2 = new IntervalSet();
+    is2.add(3, 12);
+    is2.add(15, 16);
+    is2.add(19, 30);
+
+    assertEquals("[[3.0, 5.0], [10.0, 12.0], [15.0, 16.0], [19.0, 20.0]]",
+        is1.intersection(is2).toString());
+    assertEquals(is1.intersection(is2).toString(),
+        is2.intersection(is1).toString());
+  }
 
+  public void testAgainstReference() {
+    Random random = new Random(42);
+    for (int trial = 0; trial < 200; trial++) {
+      IntervalSet a = new IntervalSet();
+      IntervalSet b = new IntervalSet();
+      CellSet refA = new CellSet();
+      CellSet refB = new CellSet();
+
+      for (int op = 0; op < 30; op++) {
+        final boolean toA = random.nextBoolean();
+        IntervalSet set = toA ? a : b;
+        CellSet ref = toA ? refA : refB;
+        final int start = random.nextInt(DOMAIN_SIZE + 1);
+        final int end = start + random.nextInt(DOMAIN_SIZE + 1 - start);
+        if (random.nextInt(3) == 0) {
+          set.remove(start, end);
+          ref.remove(start, end);
+        } else {
+          set.add(start, end);
+          ref.add(start, end);
+        }
+        assertEquals(ref.toString(), set.toString());
+
+        final int qStart = random.nextInt(DOMAIN_SIZE + 1);
+        final int qEnd = qStart + random.nextInt(DOMAIN_SIZE + 1 - qStart);
+        assertEquals(ref.covers(qStart, qEnd), set.covers(qStart, qEnd));
+        assertEquals(ref.getGaps(qStart, qEnd).toString(),
+            set.getGaps(new Interval(qStart, qEnd)).toString());
+      }
+
+      assertEquals(refA.difference(refB).toString(),
+          a.difference(b).toString());
+      assertEquals(refB.difference(refA).toString(),
+          b.difference(a).toString());
+      assertEquals(refA.intersection(refB).toString(),
+          a.intersection(b).toString());
+      assertEquals(refA.toString(), new IntervalSet(a).toString());
+    }
+  }
 }
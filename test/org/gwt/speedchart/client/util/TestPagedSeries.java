@@ -0,0 +1,139 @@
+package org.gwt.speedchart.client.util;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class TestPagedSeries extends TestCase {
+
+  private static final int PAGE_SIZE = 8;
+
+  public void testInsertReplacesOverlappedDatapoints() {
+    PagedSeries series = new PagedSeries(PAGE_SIZE);
+    series.insert(new double[] {0, 1, 2, 3}, new double[] {10, 11, 12, 13});
+    series.insert(new double[] {1, 2.5}, new double[] {21, 22});
+
+    assertArrayEquals(new double[] {0, 1, 2.5, 3},
+        series.getDomain().toArray());
+    assertArrayEquals(new double[] {10, 21, 22, 13},
+        series.getRange().toArray());
+    assertEquals(2, series.count(1, 2.5));
+  }
+
+  public void testRemovedPagesAreMerged() {
+    PagedSeries series = new PagedSeries(PAGE_SIZE);
+    series.insert(sequence(0, 64), sequence(0, 64));
+    assertEquals(8, series.getNumPages());
+
+    // Leaves 1 datapoint of the first page and 2 of the last.
+    series.remove(1, 61);
+    assertEquals(3, series.size());
+    assertEquals(1, series.getNumPages());
+  }
+
+  public void testSplitPagesAreMerged() {
+    PagedSeries series = new PagedSeries(PAGE_SIZE);
+    series.insert(sequence(0, 16), sequence(0, 16));
+    for (int i = 0; i < 16; i++) {
+      series.insert(new double[] {i + 0.5}, new double[] {-i});
+    }
+    assertEquals(32, series.size());
+    assertPagesCompact(series, PAGE_SIZE);
+  }
+
+  public void testAgainstTreeMap() {
+    Random random = new Random(7);
+    for (int trial = 0; trial < 100; trial++) {
+      final int pageSize = 1 + random.nextInt(PAGE_SIZE);
+      PagedSeries series = new PagedSeries(pageSize);
+      TreeMap<Double, Double> reference = new TreeMap<Double, Double>();
+
+      for (int op = 0; op < 60; op++) {
+        final double start = random.nextInt(200);
+        if (random.nextInt(3) == 0) {
+          final double end = start + random.nextInt(40);
+          series.remove(start, end);
+          removeClosed(reference, start, end);
+        } else {
+          final int n = 1 + random.nextInt(30);
+          double[] xs = new double[n];
+          double[] ys = new double[n];
+          double x = start;
+          for (int i = 0; i < n; i++) {
+            xs[i] = x;
+            ys[i] = random.nextDouble();
+            x += 0.5 * (1 + random.nextInt(3));
+          }
+          series.insert(xs, ys);
+          removeClosed(reference, xs[0], xs[n - 1]);
+          for (int i = 0; i < n; i++) {
+            reference.put(xs[i], ys[i]);
+          }
+        }
+
+        assertEquals(reference.size(), series.size());
+        double[] domain = series.getDomain().toArray();
+        double[] range = series.getRange().toArray();
+        int i = 0;
+        for (Map.Entry<Double, Double> e : reference.entrySet()) {
+          assertEquals(e.getKey().doubleValue(), domain[i]);
+          assertEquals(e.getValue().doubleValue(), range[i]);
+          i++;
+        }
+
+        final double qStart = random.nextInt(220) - 10;
+        final double qEnd = qStart + random.nextInt(50);
+        assertEquals(closed(reference, qStart, qEnd).size(),
+            series.count(qStart, qEnd));
+        assertEquals(reference.headMap(qStart).size(),
+            series.countLessThan(qStart));
+        assertPagesCompact(series, pageSize);
+      }
+    }
+  }
+
+  /**
+   * Checks the bound on the number of pages that follows from no two
+   * neighbouring pages fitting into a single one.
+   */
+  private static void assertPagesCompact(PagedSeries series, int pageSize) {
+    assertTrue("pages=" + series.getNumPages() + ", size=" + series.size(),
+        series.getNumPages() * pageSize <= 2 * series.size() + pageSize);
+  }
+
+  private static SortedMap<Double, Double> closed(
+      TreeMap<Double, Double> map, double start, double end) {
+    SortedMap<Double, Double> result = new TreeMap<Double, Double>(
+        map.subMap(start, end));
+    if (map.containsKey(end)) {
+      result.put(end, map.get(end));
+    }
+    return result;
+  }
+
+  private static void removeClosed(TreeMap<Double, Double> map,
+      double start, double end) {
+    if (end < start) {
+      return;
+    }
+    map.keySet().removeAll(closed(map, start, end).keySet());
+  }
+
+  private static double[] sequence(int start, int end) {
+    double[] a = new double[end - start];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = start + i;
+    }
+    return a;
+  }
+
+  private static void assertArrayEquals(double[] expected, double[] actual) {
+    assertEquals(expected.length, actual.length);
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], actual[i]);
+    }
+  }
+}